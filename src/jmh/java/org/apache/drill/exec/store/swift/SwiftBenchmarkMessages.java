@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Representative messages shared by the benchmarks.
+ */
+public final class SwiftBenchmarkMessages {
+
+    public static final String MT103 = "{1:F01BICFOOYYAXXX8683497519}{2:O1031535051028ESPBESMMAXXX54237522470510281535N}" +
+            "{3:{113:ROMF}{108:0510280182794665}{119:STP}}{4:\n" +
+            ":20:0061350113089908\n" +
+            ":13C:/RNCTIME/1534+0000\n" +
+            ":23B:CRED\n" +
+            ":23E:SDVA\n" +
+            ":32A:061028EUR100000,\n" +
+            ":33B:EUR100000,\n" +
+            ":50K:/12345678\n" +
+            "AGENTES DE BOLSA FOO AGENCIA\n" +
+            "AV XXXXX 123 BIS 9 PL\n" +
+            "12345 BARCELONA\n" +
+            ":52A:/2337\n" +
+            "FOOAESMMXXX\n" +
+            ":53A:FOOAESMMXXX\n" +
+            ":57A:BICFOOYYXXX\n" +
+            ":59:/ES0123456789012345671234\n" +
+            "FOO AGENTES DE BOLSA ASOC\n" +
+            ":71A:OUR\n" +
+            ":72:/BNF/TRANSF. BCO. FOO\n" +
+            "-}{5:{MAC:88B4F929}{CHK:22EF370A4073}}";
+
+    public static final String MT202 = "{1:F01BANKBEBBAXXX0000000000}{2:I202BANKDEFFXXXXN}{3:{108:MUR202}}{4:\n" +
+            ":20:TRN202REF\n" +
+            ":21:RELREF202\n" +
+            ":32A:230915USD2500000,00\n" +
+            ":52A:BANKBEBB\n" +
+            ":58A:BANKUS33\n" +
+            "-}{5:{CHK:ABCDEF123456}}";
+
+    public static final String MT940 = "{1:F01BANKDEFFAXXX1234567890}{2:O9401200230915BANKBEBBAXXX12345678902309151200N}{4:\n" +
+            ":20:STMT20230915\n" +
+            ":25:DE89370400440532013000\n" +
+            ":28C:235/1\n" +
+            ":60F:C230914EUR1000,00\n" +
+            ":61:2309150915D250,00NTRFNONREF//REF1\n" +
+            ":86:PAYMENT ONE\n" +
+            ":61:2309150915C500,00NTRFNONREF//REF2\n" +
+            ":86:PAYMENT TWO\n" +
+            ":62F:C230915EUR1250,00\n" +
+            "-}{5:{CHK:123456789ABC}}";
+
+    public static final String MT950 = "{1:F01BANKDEFFAXXX1234567891}{2:O9501700230915BANKBEBBAXXX12345678912309151700N}{4:\n" +
+            ":20:STMT950REF\n" +
+            ":25:12345678\n" +
+            ":28C:102/1\n" +
+            ":60F:C230914USD52000,00\n" +
+            ":61:2309150915D12000,00NTRFREF1//ABC1\n" +
+            ":61:2309150915C3500,00NTRFREF2//ABC2\n" +
+            ":61:2309150915D1500,00NCHKREF3//ABC3\n" +
+            ":62F:C230915USD42000,00\n" +
+            ":64:C230915USD42000,00\n" +
+            "-}{5:{CHK:0987654321AB}}";
+
+    private static final String[] ALL = {MT103, MT202, MT940, MT950};
+
+    private SwiftBenchmarkMessages() {
+    }
+
+    /**
+     * @param messageType 103, 202, 940 or 950
+     */
+    public static String message(String messageType) {
+        switch (messageType) {
+            case "103": return MT103;
+            case "202": return MT202;
+            case "940": return MT940;
+            case "950": return MT950;
+            default: throw new IllegalArgumentException("No sample message of type " + messageType);
+        }
+    }
+
+    /**
+     * Builds the content of a file cycling through the sample messages, one per line.
+     */
+    public static byte[] file(int messageCount) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < messageCount; i++) {
+            byte[] message = ALL[i % ALL.length].getBytes(StandardCharsets.UTF_8);
+            out.write(message, 0, message.length);
+            out.write('\n');
+        }
+        return out.toByteArray();
+    }
+}
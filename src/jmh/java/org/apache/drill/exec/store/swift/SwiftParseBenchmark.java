@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import com.prowidesoftware.swift.model.field.Field;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses single messages of the common types, through {@link SwiftUtils#parseMessage(String)}
+ * and through a reused {@link SwiftMessageParser}, and measures the column name helpers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SwiftParseBenchmark {
+
+    @Param({"103", "202", "940", "950"})
+    public String messageType;
+
+    private String message;
+    private byte[] bytes;
+    private String label;
+    private SwiftMessageParser parser;
+
+    @Setup
+    public void setup() {
+        message = SwiftBenchmarkMessages.message(messageType);
+        bytes = message.getBytes(StandardCharsets.UTF_8);
+        label = Field.getLabel("32A", messageType, null, Locale.getDefault());
+        parser = new SwiftMessageParser(SwiftProjection.ALL, Locale.getDefault());
+    }
+
+    @Benchmark
+    public Object parseMessage() {
+        return SwiftUtils.parseMessage(message);
+    }
+
+    @Benchmark
+    public void parseBytes(Blackhole blackhole) {
+        parser.parse(bytes, 0, bytes.length, (name, value) -> blackhole.consume(value));
+    }
+
+    @Benchmark
+    public String cleanUpFieldName() {
+        return SwiftUtils.cleanUpFieldName(label);
+    }
+
+    @Benchmark
+    public String resolveLabel() {
+        return SwiftUtils.cleanUpFieldName(Field.getLabel("32A", messageType, null, Locale.getDefault()));
+    }
+
+    @Benchmark
+    public String cachedLabel() {
+        return SwiftFieldLabels.forMessageType(messageType, Locale.getDefault()).columnName("32A");
+    }
+}
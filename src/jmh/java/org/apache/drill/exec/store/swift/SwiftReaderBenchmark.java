@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.exec.memory.RootAllocator;
+import org.apache.drill.exec.physical.resultSet.ResultSetLoader;
+import org.apache.drill.exec.physical.resultSet.RowSetLoader;
+import org.apache.drill.exec.physical.resultSet.impl.ResultSetLoaderImpl;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a generated file of mixed messages the way {@link SwiftBatchReader} does:
+ * splitting the stream, parsing each message and writing it into result set vectors.
+ * The auxiliary counters give the throughput in bytes and messages per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SwiftReaderBenchmark {
+
+    @Param({"1000", "10000"})
+    public int messageCount;
+
+    private byte[] file;
+    private RootAllocator allocator;
+    private SwiftMessageParser parser;
+
+    /**
+     * Bytes and messages read, reported per second by JMH.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long bytes;
+        public long messages;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            messages = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        file = SwiftBenchmarkMessages.file(messageCount);
+        allocator = new RootAllocator(Long.MAX_VALUE);
+        parser = new SwiftMessageParser(SwiftProjection.ALL, Locale.getDefault());
+    }
+
+    @TearDown
+    public void tearDown() {
+        allocator.close();
+    }
+
+    @Benchmark
+    public int split(Throughput throughput) throws IOException {
+        SwiftMessageSplitter splitter = new SwiftMessageSplitter(new ByteArrayInputStream(file));
+        int count = 0;
+        while (splitter.next()) {
+            count++;
+        }
+        throughput.bytes += file.length;
+        throughput.messages += count;
+        return count;
+    }
+
+    @Benchmark
+    public int read(Throughput throughput) throws IOException {
+        SwiftMessageSplitter splitter = new SwiftMessageSplitter(new ByteArrayInputStream(file));
+        ResultSetLoader loader = new ResultSetLoaderImpl(allocator);
+        RowSetLoader rowWriter = loader.writer();
+        SwiftFieldSink sink = new SwiftColumnSink(rowWriter, false);
+        int count = 0;
+        loader.startBatch();
+        while (splitter.next()) {
+            if (rowWriter.isFull()) {
+                loader.harvest().clear();
+                loader.startBatch();
+            }
+            rowWriter.start();
+            parser.parse(splitter.buffer(), 0, splitter.length(), sink);
+            rowWriter.save();
+            count++;
+        }
+        loader.harvest().clear();
+        loader.close();
+        throughput.bytes += file.length;
+        throughput.messages += count;
+        return count;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift.udfs;
+
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.exec.expr.holders.NullableVarCharHolder;
+import org.apache.drill.exec.memory.RootAllocator;
+import org.apache.drill.exec.store.swift.SwiftBenchmarkMessages;
+import org.apache.drill.exec.vector.complex.MapVector;
+import org.apache.drill.exec.vector.complex.impl.ComplexWriterImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls <code>swift_parse</code> the way generated code does, on a message held in a
+ * {@link DrillBuf} and writing into a real map vector.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SwiftParseFunctionBenchmark {
+
+    // Rows written before the output vector is cleared
+    private static final int BATCH_SIZE = 4096;
+
+    @Param({"103", "202", "940", "950"})
+    public String messageType;
+
+    private RootAllocator allocator;
+    private DrillBuf input;
+    private MapVector output;
+    private ComplexWriterImpl writer;
+    private SwiftParserFunction.SwiftParse function;
+    private int row;
+
+    @Setup
+    public void setup() {
+        allocator = new RootAllocator(Long.MAX_VALUE);
+        byte[] message = SwiftBenchmarkMessages.message(messageType).getBytes(StandardCharsets.UTF_8);
+        input = allocator.buffer(message.length);
+        input.setBytes(0, message);
+
+        NullableVarCharHolder holder = new NullableVarCharHolder();
+        holder.isSet = 1;
+        holder.start = 0;
+        holder.end = message.length;
+        holder.buffer = input;
+
+        output = new MapVector("output", allocator, null);
+        writer = new ComplexWriterImpl("swift", output);
+
+        function = new SwiftParserFunction.SwiftParse();
+        function.messageText = holder;
+        function.outWriter = writer;
+        function.outBuffer = allocator.buffer(256);
+        function.setup();
+    }
+
+    @TearDown
+    public void tearDown() {
+        output.clear();
+        function.outBuffer.release();
+        input.release();
+        allocator.close();
+    }
+
+    @Benchmark
+    public void eval() {
+        if (row == BATCH_SIZE) {
+            output.clear();
+            writer.allocate();
+            row = 0;
+        }
+        writer.setPosition(row++);
+        function.eval();
+    }
+}
@@ -18,24 +18,747 @@
 
 package org.apache.drill.exec.store.swift;
 
+import org.apache.drill.common.AutoCloseables;
+import org.apache.drill.common.exceptions.CustomErrorContext;
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.common.types.TypeProtos.DataMode;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.ops.MetricDef;
+import org.apache.drill.exec.ops.OperatorStats;
 import org.apache.drill.exec.physical.impl.scan.v3.ManagedReader;
+import org.apache.drill.exec.physical.impl.scan.v3.file.FileDescrip;
 import org.apache.drill.exec.physical.impl.scan.v3.file.FileSchemaNegotiator;
+import org.apache.drill.exec.physical.resultSet.ResultSetLoader;
+import org.apache.drill.exec.physical.resultSet.RowSetLoader;
+import org.apache.drill.exec.record.metadata.MetadataUtils;
+import org.apache.drill.exec.record.metadata.TupleMetadata;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapred.FileSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * Reads a file of concatenated FIN messages and writes one row per message, or an
+ * ISO 20022 document and writes one row per transaction, see {@link SwiftMxParser}.
+ * Columns are discovered as the messages are parsed, so the schema is the union
+ * of the fields found in the file, unless the format declares a fixed schema, in
+ * which case fields outside of it are dropped.
+ * <p>
+ * Repeated tags keep their last value, or are returned as arrays, or the messages
+ * are flattened into one row per entry, depending on the {@link SwiftRepeatedTags}
+ * mode of the format.
+ * <p>
+ * Malformed messages fail the query, or are skipped or returned as error rows,
+ * depending on the {@link SwiftErrorMode} of the format.
+ * <p>
+ * The reader publishes the {@link Metric}s of the scan in the operator profile.
+ * <p>
+ * When the scan has a pushed limit, such as for <code>SELECT * ... LIMIT 10</code>, the
+ * reader closes the file as soon as the limit is reached instead of reading it to the end.
+ * <p>
+ * In the incremental mode, the reader starts at the {@link SwiftWatermark} of the file
+ * and only returns the messages appended since the previous scan. A last message that
+ * may still be growing is left for the next scan. The watermark only moves when the
+ * reader is closed after returning every message of the file, and neither the reader
+ * nor the fragment failed, so a scan stopped early by a limit, cancelled or failed
+ * reads the same messages again next time.
+ */
 public class SwiftBatchReader implements ManagedReader {
-    public SwiftBatchReader(FileSchemaNegotiator negotiator, SwiftFormatConfig config) {
-        Locale locale = Locale.getDefault();
 
+    private static final Logger logger = LoggerFactory.getLogger(SwiftBatchReader.class);
+
+    /**
+     * Operator metrics of the scan. Times are in nanoseconds. When the messages are
+     * parsed on the reader thread, the parser writes the fields as it goes, so the
+     * parse time includes writing the field values and the write time only covers
+     * starting and saving the rows. With parse threads, the parse time is the time
+     * the reader waits for the workers.
+     */
+    public enum Metric implements MetricDef {
+        MESSAGES_READ,
+        MESSAGES_SKIPPED,
+        MESSAGES_FAILED,
+        BYTES_READ,
+        LARGEST_MESSAGE,
+        SPLIT_TIME_NS,
+        PARSE_TIME_NS,
+        WRITE_TIME_NS;
+
+        @Override
+        public int metricId() {
+            return ordinal();
+        }
+    }
+
+    private final FileDescrip file;
+    private final CustomErrorContext errorContext;
+    private final ResultSetLoader loader;
+    private final RowSetLoader rowWriter;
+    private final SwiftProjection projection;
+    private final SwiftMessageParser parser;
+    private SwiftHeaderFilter filter;
+    private final SwiftColumnSink sink;
+    private final boolean useMessageIndex;
+    private final boolean incremental;
+    private final boolean fixedSchema;
+    private final SwiftErrorMode errorMode;
+    // True if the messages are checked when nothing is projected, since a malformed one would fail or be skipped
+    private final boolean checkMessages;
+    private final SwiftEnvelope envelope;
+    private final SwiftRepeatedTags repeatedTags;
+    private final SwiftOutputMode outputMode;
+    private final int maxErrors;
+    private InputStream fsStream;
+    private SwiftMessageSource messages;
+    private SwiftMessageIndex.Reader indexReader;
+    private SwiftMessageIndex.Writer indexWriter;
+    private SwiftParsePipeline pipeline;
+    private SwiftMxParser mxParser;
+    private final OperatorStats stats;
+    private final FragmentContext fragmentContext;
+
+    // Status of the file read in the incremental mode, and the end and last bytes of the last complete message
+    private final String watermarkName;
+    private FileStatus watermarkStatus;
+    private long watermark;
+    private final byte[] watermarkTail = new byte[SwiftWatermark.TAIL_SIZE];
+    private int watermarkTailLength;
+    // True once every message of the file was returned, false if the reader failed
+    private boolean finished;
+    private boolean failed;
+
+    // Fields of the current message outside of its entries, and the next entry to write, in the rows mode
+    private SwiftRecord messageFields;
+    private int nextEntry;
+    // Writer of the long output mode, which takes the fields of the current message one at a time
+    private SwiftLongSink longSink;
+    private int nextField;
+
+    private long messagesRead;
+    private long messagesSkipped;
+    private long messagesFailed;
+    private long bytesRead;
+    private long largestMessage;
+    private long splitTime;
+    private long parseTime;
+    private long writeTime;
+
+    /**
+     * @param limit the row limit pushed into the scan, or a negative value if there is none
+     */
+    public SwiftBatchReader(FileSchemaNegotiator negotiator, SwiftFormatConfig config, SwiftProjection projection,
+                            int limit) {
+        this.file = negotiator.file();
+        this.outputMode = SwiftOutputMode.of(config.getOutputMode());
+        boolean longOutput = outputMode == SwiftOutputMode.LONG;
+        // The long mode returns every field, and every occurrence of the repeated tags, whatever the projection
+        this.projection = longOutput ? SwiftProjection.ALL : projection;
+        this.repeatedTags = longOutput ? SwiftRepeatedTags.ARRAY : SwiftRepeatedTags.of(config.getRepeatedTags());
+        this.parser = new SwiftMessageParser(this.projection, Locale.getDefault(), repeatedTags);
+        SwiftHeaderFilter headerFilter = SwiftHeaderFilter.of(config);
+        this.filter = headerFilter.isEmpty() ? null : headerFilter;
+        this.incremental = config.isIncremental();
+        this.watermarkName = SwiftWatermark.name(config);
+        // An index covers a whole split, which an incremental scan does not read
+        this.useMessageIndex = config.isMessageIndex() && !incremental;
+        this.fixedSchema = SwiftSchemaRegistry.isFixed(config.getSchemaMode());
+        this.errorMode = SwiftErrorMode.of(config.getErrorMode());
+        this.envelope = SwiftEnvelope.of(config.getEnvelope());
+        this.maxErrors = config.getMaxErrors();
+        this.checkMessages = errorMode != SwiftErrorMode.EMIT || maxErrors > 0;
+        this.errorContext = negotiator.parentErrorContext();
+        this.stats = negotiator.context().getStats();
+        this.fragmentContext = negotiator.context().getFragmentContext();
+        SwiftBicDirectory bicDirectory = config.getBicDirectory() == null ? null
+                : SwiftBicDirectory.forPath(config.getBicDirectory());
+        openFile();
+
+        if (longOutput) {
+            messageFields = new SwiftRecord(true);
+        } else if (repeatedTags == SwiftRepeatedTags.ROWS) {
+            messageFields = new SwiftRecord();
+        } else if (config.getParseThreads() > 0 && !projection.isEmpty()) {
+            long widthPerNode = fragmentContext.getOptions()
+                    .getLong(ExecConstants.MAX_WIDTH_PER_NODE_KEY);
+            int threads = SwiftParsePipeline.threads(config.getParseThreads(),
+                    Runtime.getRuntime().availableProcessors(), widthPerNode);
+            int queueDepth = config.getQueueDepth() > 0 ? config.getQueueDepth() : SwiftParsePipeline.DEFAULT_QUEUE_DEPTH;
+            if (limit > 0) {
+                // No point in splitting messages ahead of the limit
+                queueDepth = Math.min(queueDepth, limit);
+            }
+            pipeline = new SwiftParsePipeline(threads, queueDepth, projection, Locale.getDefault(), repeatedTags);
+        }
+
+        TupleMetadata schema = null;
+        if (longOutput) {
+            schema = SwiftOutputMode.longSchema();
+        } else if (fixedSchema) {
+            // Declaring every column up front keeps the schema stable across message types
+            schema = SwiftSchemaRegistry.schema(config.getMessageTypes(), Locale.getDefault(), repeatedTags);
+            if (bicDirectory != null) {
+                SwiftBicDirectory.Table table = bicDirectory.table();
+                for (String column : SwiftColumnSink.bicColumns(SwiftProjection.SENDER, table)) {
+                    schema.addColumn(MetadataUtils.newScalar(column, MinorType.VARCHAR, DataMode.OPTIONAL));
+                }
+                for (String column : SwiftColumnSink.bicColumns(SwiftProjection.RECEIVER, table)) {
+                    schema.addColumn(MetadataUtils.newScalar(column, MinorType.VARCHAR, DataMode.OPTIONAL));
+                }
+            }
+        }
+        if (schema != null) {
+            if (errorMode == SwiftErrorMode.EMIT) {
+                schema.addColumn(MetadataUtils.newScalar(SwiftErrorMode.ERROR_COLUMN, MinorType.VARCHAR, DataMode.OPTIONAL));
+                schema.addColumn(MetadataUtils.newScalar(SwiftErrorMode.OFFSET_COLUMN, MinorType.BIGINT, DataMode.OPTIONAL));
+            }
+            negotiator.tableSchema(schema, true);
+        }
+
+        this.loader = negotiator.build();
+        this.rowWriter = loader.writer();
+        // In the long mode, the column sink only writes the error columns
+        this.sink = new SwiftColumnSink(rowWriter, fixedSchema || longOutput, bicDirectory);
+        if (longOutput) {
+            longSink = new SwiftLongSink(rowWriter, file.split().getPath().toString());
+        }
     }
 
     @Override
     public boolean next() {
-        return false;
+        try {
+            while (!rowWriter.isFull()) {
+                if (!nextMessage()) {
+                    finished = true;
+                    return false;
+                }
+            }
+            if (loader.atLimit()) {
+                // The scan has all the rows it needs, the rest of the file is not read
+                closeFile();
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            publishMetrics();
+        }
     }
 
     @Override
     public void close() {
+        publishMetrics();
+        closeFile();
+        if (finished && !failed && fragmentContext.getExecutorState().shouldContinue()) {
+            commitWatermark();
+        }
+    }
+
+    /**
+     * Releases the file and the threads of the reader. An index that was not committed
+     * is incomplete and is dropped.
+     */
+    private void closeFile() {
+        AutoCloseables.closeSilently(pipeline, mxParser, fsStream, indexReader, indexWriter);
+        pipeline = null;
+        mxParser = null;
+        fsStream = null;
+        messages = null;
+        indexReader = null;
+        indexWriter = null;
+    }
+
+    /**
+     * Opens the file and positions the stream at the start of the split. Compressed
+     * files cannot be split, so they are always read from the start to the end.
+     * When the split has an up to date message index, and the scan can make use of
+     * it, the messages are read through the index instead. An ISO 20022 document is
+     * read whole by the reader of the first split. In the incremental mode, the format
+     * is not split and the stream is positioned at the watermark of the file, unless
+     * the file is compressed.
+     */
+    private void openFile() {
+        FileSplit split = file.split();
+        Path path = split.getPath();
+        try {
+            boolean compressed = new CompressionCodecFactory(file.fileSystem().getConf()).getCodec(path) != null;
+            boolean fromStart = compressed || split.getStart() == 0;
+            if (envelope == SwiftEnvelope.MX || envelope == SwiftEnvelope.AUTO) {
+                fsStream = file.fileSystem().openPossiblyCompressedStream(path);
+                if (isMx(fromStart)) {
+                    if (outputMode == SwiftOutputMode.LONG) {
+                        throw UserException
+                                .unsupportedError()
+                                .message("The long output mode does not support ISO 20022 documents")
+                                .addContext("File", path.toString())
+                                .addContext(errorContext)
+                                .build(logger);
+                    }
+                    if (fromStart) {
+                        mxParser = new SwiftMxParser(projection);
+                        mxParser.open(fsStream);
+                    }
+                    return;
+                }
+            }
+            if (useMessageIndex && !compressed && openMessageIndex(split)) {
+                AutoCloseables.closeSilently(fsStream);
+                fsStream = null;
+                return;
+            }
+            if (fsStream == null) {
+                fsStream = file.fileSystem().openPossiblyCompressedStream(path);
+            }
+            if (incremental && !compressed) {
+                openIncremental(path);
+            } else if (fromStart) {
+                long end = compressed ? Long.MAX_VALUE : split.getStart() + split.getLength();
+                messages = new SwiftMessageSplitter(fsStream, 0, end, envelope);
+            } else {
+                ((Seekable) fsStream).seek(split.getStart());
+                messages = new SwiftMessageSplitter(fsStream, split.getStart(), split.getStart() + split.getLength(), envelope);
+            }
+        } catch (IOException e) {
+            throw UserException
+                    .dataReadError(e)
+                    .message("Unable to open SWIFT file %s", file.split().getPath())
+                    .addContext(e.getMessage())
+                    .addContext(errorContext)
+                    .build(logger);
+        }
+    }
+
+    /**
+     * Positions the stream at the watermark of the file, if it has one.
+     */
+    private void openIncremental(Path path) throws IOException {
+        watermarkStatus = file.fileSystem().getFileStatus(path);
+        long start = SwiftWatermark.read(file.fileSystem(), path, watermarkName, watermarkStatus);
+        if (start > 0) {
+            AutoCloseables.closeSilently(fsStream);
+            FSDataInputStream in = file.fileSystem().open(path);
+            fsStream = in;
+            in.seek(start);
+        }
+        messages = new SwiftMessageSplitter(fsStream, start, Long.MAX_VALUE, envelope);
+    }
+
+    /**
+     * Tells an ISO 20022 document from FIN messages by the first bytes of the file. When
+     * the file is read from the start, the bytes are pushed back into the stream.
+     */
+    private boolean isMx(boolean fromStart) throws IOException {
+        if (envelope == SwiftEnvelope.MX) {
+            return true;
+        }
+        byte[] head = new byte[SwiftMxParser.HEAD_SIZE];
+        int length = 0;
+        if (fromStart) {
+            PushbackInputStream in = new PushbackInputStream(fsStream, head.length);
+            int count;
+            while (length < head.length && (count = in.read(head, length, head.length - length)) > 0) {
+                length += count;
+            }
+            in.unread(head, 0, length);
+            fsStream = in;
+        } else {
+            length = Math.max(0, ((PositionedReadable) fsStream).read(0, head, 0, head.length));
+        }
+        return SwiftMxParser.isXml(head, length);
+    }
+
+    /**
+     * Reads the split through its message index if the index is up to date and the scan
+     * skips messages or only counts them. Counted messages are only left unread when a
+     * malformed one would be returned as an error row anyway, see {@link SwiftErrorMode#EMIT}.
+     * Otherwise, if the index is missing or stale, prepares to write it while the split is read.
+     *
+     * @return true if the messages are read through the index
+     */
+    private boolean openMessageIndex(FileSplit split) throws IOException {
+        Path path = split.getPath();
+        FileStatus status = file.fileSystem().getFileStatus(path);
+        long start = split.getStart();
+        long end = start + split.getLength();
+        boolean readMessages = !projection.isEmpty() || checkMessages;
+        indexReader = SwiftMessageIndex.open(file.fileSystem(), path, status, start, end, filter, readMessages);
+        if (indexReader == null) {
+            indexWriter = SwiftMessageIndex.create(file.fileSystem(), path, status, start, end);
+            return false;
+        }
+        if (filter == null && readMessages) {
+            // Every message is read anyway, which is faster by streaming the file
+            AutoCloseables.closeSilently(indexReader);
+            indexReader = null;
+            return false;
+        }
+        // The index applies the filter
+        messages = indexReader;
+        filter = null;
+        return true;
+    }
+
+    private boolean nextMessage() {
+        if (mxParser != null) {
+            return nextMxMessage();
+        }
+        if (messages == null) {
+            // The split is part of an ISO 20022 document, read by the reader of the first split
+            return false;
+        }
+        if (pipeline != null) {
+            return nextParsedMessage();
+        }
+        if (longSink != null) {
+            return nextField();
+        }
+        if (messageFields != null) {
+            return nextEntry();
+        }
+        if (!nextRawMessage()) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        if (projection.isEmpty()) {
+            // Nothing is projected, as for COUNT(*), so the message is only checked, for the
+            // count to match the rows of SELECT *
+            rowWriter.start();
+            if (checkMessages) {
+                boolean truncated = messages.isTruncated();
+                if (truncated || !parser.check(messages.buffer(), 0, messages.length())) {
+                    parseTime += System.nanoTime() - start;
+                    malformedMessage(messages.offset(), truncated ? SwiftMessageSplitter.TRUNCATED_ERROR : parser.error());
+                    return true;
+                }
+            }
+            rowWriter.save();
+            writeTime += System.nanoTime() - start;
+            return true;
+        }
+
+        rowWriter.start();
+        long parseStart = System.nanoTime();
+        boolean truncated = messages.isTruncated();
+        boolean parsed = !truncated && parser.parse(messages.buffer(), 0, messages.length(), sink);
+        long parseEnd = System.nanoTime();
+        parseTime += parseEnd - parseStart;
+        if (!parsed) {
+            malformedMessage(messages.offset(), truncated ? SwiftMessageSplitter.TRUNCATED_ERROR : parser.error());
+            return true;
+        }
+        rowWriter.save();
+        writeTime += parseStart - start + System.nanoTime() - parseEnd;
+        return true;
+    }
+
+    /**
+     * Writes the next entry of the current message, or moves on to the next message once
+     * all of its entries are written, see {@link SwiftRepeatedTags#ROWS}. The fields of the
+     * message outside of the entries are parsed once into a record, and repeated in the row
+     * of each entry, while the tags of an entry are only decoded when its row is written.
+     * The current message stays in the buffer of the splitter until then, even across batches.
+     */
+    private boolean nextEntry() {
+        long start = System.nanoTime();
+        if (nextEntry >= parser.entryCount()) {
+            if (!nextRawMessage()) {
+                return false;
+            }
+            start = System.nanoTime();
+            rowWriter.start();
+            boolean truncated = messages.isTruncated();
+            messageFields.clear();
+            boolean parsed = !truncated && parser.parse(messages.buffer(), 0, messages.length(), messageFields);
+            long parseEnd = System.nanoTime();
+            parseTime += parseEnd - start;
+            start = parseEnd;
+            if (!parsed) {
+                malformedMessage(messages.offset(), truncated ? SwiftMessageSplitter.TRUNCATED_ERROR : parser.error());
+                return true;
+            }
+            nextEntry = 0;
+            if (parser.entryCount() == 0) {
+                // A message without entries is returned as a single row
+                messageFields.replay(sink);
+                rowWriter.save();
+                parseTime += System.nanoTime() - start;
+                return true;
+            }
+        } else {
+            rowWriter.start();
+        }
+        messageFields.replay(sink);
+        parser.writeEntry(nextEntry, sink);
+        nextEntry++;
+        if (projection.isProjected(SwiftRepeatedTags.ENTRY_COLUMN)) {
+            sink.bigint(SwiftRepeatedTags.ENTRY_COLUMN, nextEntry);
+        }
+        rowWriter.save();
+        parseTime += System.nanoTime() - start;
+        return true;
+    }
+
+    /**
+     * Writes the next field of the current message, or moves on to the next message once
+     * all of its fields are written, see {@link SwiftOutputMode#LONG}. The message is parsed
+     * once into a record, which keeps the block and tag of each field, and the fields are
+     * replayed one row at a time, so a message can span batches.
+     */
+    private boolean nextField() {
+        long start = System.nanoTime();
+        if (nextField >= messageFields.fieldCount()) {
+            if (!nextRawMessage()) {
+                return false;
+            }
+            start = System.nanoTime();
+            rowWriter.start();
+            boolean truncated = messages.isTruncated();
+            messageFields.clear();
+            nextField = 0;
+            boolean parsed = !truncated && parser.parse(messages.buffer(), 0, messages.length(), messageFields);
+            long parseEnd = System.nanoTime();
+            parseTime += parseEnd - start;
+            start = parseEnd;
+            if (!parsed) {
+                malformedMessage(messages.offset(), truncated ? SwiftMessageSplitter.TRUNCATED_ERROR : parser.error());
+                return true;
+            }
+            longSink.message(messages.offset());
+        } else {
+            rowWriter.start();
+        }
+        int next = messageFields.replayNext(nextField, longSink);
+        if (next == -1) {
+            // Only the sources of fields that were not returned are left, the row is not saved
+            nextField = messageFields.fieldCount();
+        } else {
+            nextField = next;
+            rowWriter.save();
+        }
+        writeTime += System.nanoTime() - start;
+        return true;
+    }
+
+    /**
+     * Writes the next transaction of an ISO 20022 document. The parser only passes the
+     * fields of a transaction to the sink once it has read all of it, so a syntax error
+     * leaves the row empty. The document cannot be read past the error.
+     */
+    private boolean nextMxMessage() {
+        rowWriter.start();
+        long start = System.nanoTime();
+        boolean found;
+        try {
+            found = mxParser.next(sink);
+        } catch (IOException e) {
+            long offset = mxParser.offset();
+            AutoCloseables.closeSilently(mxParser);
+            mxParser = null;
+            malformedMessage(offset, e.getMessage());
+            return true;
+        }
+        parseTime += System.nanoTime() - start;
+        if (!found) {
+            return false;
+        }
+        messagesRead++;
+        rowWriter.save();
+        return true;
+    }
+
+    /**
+     * Writes the next message parsed by the pipeline, after topping the pipeline up
+     * with the messages that follow.
+     */
+    private boolean nextParsedMessage() {
+        while (!pipeline.isFull() && nextRawMessage()) {
+            pipeline.submit(messages.buffer(), messages.length(), messages.offset(), messages.isTruncated());
+        }
+        SwiftRecord record;
+        long start = System.nanoTime();
+        try {
+            record = pipeline.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw UserException
+                    .executionError(e)
+                    .message("Interrupted while parsing SWIFT file %s", file.split().getPath())
+                    .addContext(errorContext)
+                    .build(logger);
+        } catch (ExecutionException e) {
+            throw UserException
+                    .dataReadError(e.getCause())
+                    .message("Error parsing SWIFT file %s", file.split().getPath())
+                    .addContext(e.getCause().getMessage())
+                    .addContext(errorContext)
+                    .build(logger);
+        }
+        long parseEnd = System.nanoTime();
+        parseTime += parseEnd - start;
+        if (record == null) {
+            return false;
+        }
+        rowWriter.start();
+        if (!record.isParsed()) {
+            malformedMessage(record.offset(), record.error());
+            return true;
+        }
+        record.replay(sink);
+        rowWriter.save();
+        writeTime += System.nanoTime() - parseEnd;
+        return true;
+    }
+
+    /**
+     * Advances to the next message of the split which passes the header filter.
+     *
+     * @return false at the end of the split
+     */
+    private boolean nextRawMessage() {
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                boolean found = messages.next();
+                splitTime += System.nanoTime() - start;
+                if (!found) {
+                    commitMessageIndex();
+                    return false;
+                }
+                int length = messages.length();
+                if (watermarkStatus != null) {
+                    if (messages.endsStream() && !SwiftWatermark.isQuiet(file.fileSystem(), file.split().getPath())) {
+                        // The message may still be growing, the next scan reads it whole
+                        return false;
+                    }
+                    moveWatermark(length);
+                }
+                messagesRead++;
+                bytesRead += length;
+                largestMessage = Math.max(largestMessage, length);
+                if (indexWriter != null) {
+                    indexMessage();
+                }
+                // Messages filtered out on their header are skipped before any parsing
+                if (filter == null || filter.matches(messages.buffer(), 0, length)) {
+                    return true;
+                }
+                messagesSkipped++;
+            }
+        } catch (IOException e) {
+            throw UserException
+                    .dataReadError(e)
+                    .message("Error reading SWIFT file %s", file.split().getPath())
+                    .addContext(e.getMessage())
+                    .addContext(errorContext)
+                    .build(logger);
+        }
+    }
+
+    /**
+     * Handles a message that could not be parsed, in the row started for it. The parser
+     * rejects a message before passing any of its fields to the sink, so the row is still
+     * empty: it either gets the error columns or is not saved, and the next message
+     * overwrites it.
+     */
+    private void malformedMessage(long offset, String error) {
+        messagesFailed++;
+        if (errorMode == SwiftErrorMode.FAIL) {
+            throw parseError(offset, error);
+        }
+        if (maxErrors > 0 && messagesFailed > maxErrors) {
+            throw UserException
+                    .dataReadError()
+                    .message("Too many malformed SWIFT messages, the limit is %d", maxErrors)
+                    .addContext("Last error", String.format("%s at offset %d", error, offset))
+                    .addContext("File", file.split().getPath().toString())
+                    .addContext(errorContext)
+                    .build(logger);
+        }
+        logger.debug("Malformed SWIFT message at offset {} of {}: {}", offset, file.split().getPath(), error);
+        if (errorMode == SwiftErrorMode.EMIT) {
+            sink.error(error, offset);
+            rowWriter.save();
+        }
+    }
+
+    private void publishMetrics() {
+        stats.setLongStat(Metric.MESSAGES_READ, messagesRead);
+        stats.setLongStat(Metric.MESSAGES_SKIPPED, messagesSkipped);
+        stats.setLongStat(Metric.MESSAGES_FAILED, messagesFailed);
+        stats.setLongStat(Metric.BYTES_READ, bytesRead);
+        stats.setLongStat(Metric.LARGEST_MESSAGE, largestMessage);
+        stats.setLongStat(Metric.SPLIT_TIME_NS, splitTime);
+        stats.setLongStat(Metric.PARSE_TIME_NS, parseTime);
+        stats.setLongStat(Metric.WRITE_TIME_NS, writeTime);
+    }
+
+    private UserException parseError(long offset, String error) {
+        return UserException
+                .dataReadError()
+                .message("Unable to parse SWIFT message at offset %d: %s", offset, error)
+                .addContext("File", file.split().getPath().toString())
+                .addContext(errorContext)
+                .build(logger);
+    }
+
+    /**
+     * Adds the current message to the index being written. The index is optional, so
+     * a failure to write it is logged and does not fail the query.
+     */
+    private void indexMessage() {
+        try {
+            indexWriter.add(messages.offset(), messages.buffer(), messages.length(), messages.isTruncated());
+        } catch (IOException e) {
+            logger.warn("Unable to write SWIFT message index for {}", file.split().getPath(), e);
+            AutoCloseables.closeSilently(indexWriter);
+            indexWriter = null;
+        }
+    }
+
+    private void commitMessageIndex() {
+        if (indexWriter == null) {
+            return;
+        }
+        try {
+            indexWriter.commit();
+        } catch (IOException e) {
+            logger.warn("Unable to write SWIFT message index for {}", file.split().getPath(), e);
+        }
+        AutoCloseables.closeSilently(indexWriter);
+        indexWriter = null;
+    }
+
+    /**
+     * Keeps the end and the last bytes of the current message, which is complete, as the
+     * watermark to write when the reader is closed.
+     */
+    private void moveWatermark(int length) {
+        watermark = messages.offset() + length;
+        watermarkTailLength = Math.min(watermarkTail.length, length);
+        System.arraycopy(messages.buffer(), length - watermarkTailLength, watermarkTail, 0, watermarkTailLength);
+    }
 
+    private void commitWatermark() {
+        if (watermarkStatus == null || watermarkTailLength == 0) {
+            return;
+        }
+        SwiftWatermark.write(file.fileSystem(), file.split().getPath(), watermarkName, watermarkStatus, watermark,
+                watermarkTail, watermarkTailLength);
+        watermarkStatus = null;
     }
 }
@@ -0,0 +1,509 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift;
+
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.common.exceptions.UserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A BIC directory loaded from a local file, to look up the institution name, city or
+ * country of a BIC without joining every message with the directory.
+ * <p>
+ * The file is tab separated, with a header line naming the columns. The <code>bic</code>
+ * column holds the BIC8 or BIC11 of each institution, and the other columns are the
+ * attributes returned by the lookups, named like the columns of the reader. A BIC8 stands
+ * for the head office, BIC8 followed by <code>XXX</code>.
+ * <p>
+ * Each file is loaded once per drillbit, into an open addressing table held off heap:
+ * the BIC11 is packed into a <code>long</code> key, which maps to the offset of the
+ * attributes of the institution in a single data buffer. The lines of the file are
+ * streamed straight into these buffers, so a load holds no copy of the file on heap.
+ * The file is checked for changes every few seconds, on a background thread, which
+ * loads a changed file while the lookups keep using the previous table, then swaps the
+ * new table in. Tables are immutable once loaded, so they are shared between threads.
+ * <p>
+ * The reader takes the directory from the format config, and the
+ * <code>swift_bic_lookup</code> function from the {@link #PATH_PROPERTY} system property
+ * of the drillbit, set for instance in <code>DRILL_JAVA_OPTS</code>.
+ */
+public class SwiftBicDirectory {
+
+    /**
+     * Returned by the lookups when the directory has no entry for the BIC.
+     */
+    public static final int NOT_FOUND = -1;
+
+    public static final String BIC_COLUMN = "bic";
+
+    /**
+     * The system property holding the path of the directory used by the functions.
+     */
+    public static final String PATH_PROPERTY = "drill.swift.bic_directory";
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftBicDirectory.class);
+
+    private static final Map<String, SwiftBicDirectory> DIRECTORIES = new ConcurrentHashMap<>();
+
+    // Checks and loads the changed files, one at a time, off the query threads
+    private static final ExecutorService RELOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "swift-bic-directory-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final long RELOAD_CHECK_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    private static final int BIC8_LENGTH = 8;
+    private static final int BIC11_LENGTH = 11;
+    private static final int LOGICAL_TERMINAL_LENGTH = 12;
+    // The logical terminal code, dropped to form the BIC11
+    private static final int TERMINAL_CODE = 8;
+    // Keys are the BIC11 in base 37, with the characters coded from 1 so that 0 marks an empty slot
+    private static final int RADIX = 37;
+    private static final long BRANCH_RADIX = RADIX * RADIX * RADIX;
+    private static final long HEAD_OFFICE = (code('X') * RADIX + code('X')) * RADIX + code('X');
+    private static final int MAX_VALUE_LENGTH = 0xffff;
+
+    private final Path path;
+    private final AtomicLong lastCheck;
+    private volatile Table table;
+    // Only written by the constructor and then by the reload thread
+    private volatile long lastModified;
+
+    private SwiftBicDirectory(String path) {
+        this.path = Paths.get(path);
+        try {
+            this.lastModified = Files.getLastModifiedTime(this.path).toMillis();
+            this.table = load(this.path);
+        } catch (IOException e) {
+            throw UserException
+                    .dataReadError(e)
+                    .message("Cannot read the BIC directory %s", path)
+                    .addContext(e.getMessage())
+                    .build(logger);
+        }
+        this.lastCheck = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @param path the path of the directory file on the local file system of the drillbit
+     * @return the directory, loaded on first use
+     * @throws UserException if the file cannot be read
+     */
+    public static SwiftBicDirectory forPath(String path) {
+        return DIRECTORIES.computeIfAbsent(path, SwiftBicDirectory::new);
+    }
+
+    /**
+     * @return the current table of the directory. If the file changed, the table is loaded again
+     * in the background, and the next calls return the new table once it is loaded.
+     */
+    public Table table() {
+        long now = System.nanoTime();
+        long last = lastCheck.get();
+        // A single caller schedules the check, the others go on with the current table
+        if (now - last > RELOAD_CHECK_INTERVAL && lastCheck.compareAndSet(last, now)) {
+            checkForChanges();
+        }
+        return table;
+    }
+
+    /**
+     * Schedules a check of the file, which loads the file again if it changed.
+     *
+     * @return the future of the check, done once the new table, if any, is in use
+     */
+    Future<?> checkForChanges() {
+        return RELOADER.submit(this::reloadIfChanged);
+    }
+
+    private void reloadIfChanged() {
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified != lastModified) {
+                Table loaded = load(path);
+                table = loaded;
+                lastModified = modified;
+                logger.info("Reloaded the BIC directory {}: {} entries", path, loaded.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot reload the BIC directory {}, keeping the previous one", path, e);
+        }
+    }
+
+    private static Table load(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            String[] columns = header == null ? new String[0] : header.split("\t", -1);
+            int bicColumn = -1;
+            List<String> attributes = new ArrayList<>();
+            int[] attributeColumns = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                String name = SwiftUtils.cleanUpFieldName(columns[i].trim());
+                if (name.equals(BIC_COLUMN)) {
+                    bicColumn = i;
+                } else {
+                    attributeColumns[attributes.size()] = i;
+                    attributes.add(name);
+                }
+            }
+            if (bicColumn == -1) {
+                throw UserException
+                        .dataReadError()
+                        .message("The BIC directory %s has no %s column", path, BIC_COLUMN)
+                        .build(logger);
+            }
+
+            Table.Builder table = new Table.Builder(attributes, Files.size(path));
+            int skipped = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                long key = bicColumn < fields.length ? key(fields[bicColumn]) : 0;
+                if (key == 0) {
+                    skipped++;
+                    continue;
+                }
+                table.startEntry(key);
+                for (int i = 0; i < attributes.size(); i++) {
+                    int column = attributeColumns[i];
+                    table.addValue(column < fields.length ? fields[column].trim() : "");
+                }
+            }
+            if (skipped > 0) {
+                logger.debug("Skipped {} lines without a valid BIC in the BIC directory {}", skipped, path);
+            }
+            return table.build();
+        }
+    }
+
+    /**
+     * Packs a BIC8, BIC11 or logical terminal address into a key.
+     *
+     * @return the key of the BIC11, or 0 if the string is not a BIC
+     */
+    static long key(CharSequence bic) {
+        int start = 0;
+        int end = bic.length();
+        while (start < end && bic.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && bic.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int length = end - start;
+        if (length != BIC8_LENGTH && length != BIC11_LENGTH && length != LOGICAL_TERMINAL_LENGTH) {
+            return 0;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            if (length == LOGICAL_TERMINAL_LENGTH && i == TERMINAL_CODE) {
+                continue;
+            }
+            int code = code(bic.charAt(start + i));
+            if (code == 0) {
+                return 0;
+            }
+            key = key * RADIX + code;
+        }
+        return length == BIC8_LENGTH ? key * BRANCH_RADIX + HEAD_OFFICE : key;
+    }
+
+    /**
+     * Packs a BIC held in a buffer into a key, without decoding it.
+     *
+     * @see #key(CharSequence)
+     */
+    static long key(DrillBuf buffer, int start, int end) {
+        while (start < end && buffer.getByte(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.getByte(end - 1) == ' ') {
+            end--;
+        }
+        int length = end - start;
+        if (length != BIC8_LENGTH && length != BIC11_LENGTH && length != LOGICAL_TERMINAL_LENGTH) {
+            return 0;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            if (length == LOGICAL_TERMINAL_LENGTH && i == TERMINAL_CODE) {
+                continue;
+            }
+            int code = code((char) buffer.getByte(start + i));
+            if (code == 0) {
+                return 0;
+            }
+            key = key * RADIX + code;
+        }
+        return length == BIC8_LENGTH ? key * BRANCH_RADIX + HEAD_OFFICE : key;
+    }
+
+    /**
+     * @return the code of a BIC character from 1 to 36, or 0 if it cannot be part of a BIC
+     */
+    private static int code(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        } else if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 11;
+        }
+        return 0;
+    }
+
+    /**
+     * The entries of a directory file. The keys and the offsets of the entries are held
+     * in two parallel open addressing tables, and the attributes of each entry in the data
+     * buffer as a sequence of 2 byte lengths followed by UTF-8 bytes.
+     */
+    public static class Table {
+        private final List<String> attributes;
+        private final int size;
+        private final int mask;
+        private final LongBuffer keys;
+        private final IntBuffer records;
+        private final ByteBuffer data;
+
+        private Table(Builder builder) {
+            this.attributes = Collections.unmodifiableList(builder.attributes);
+            this.size = builder.size;
+            this.mask = builder.mask;
+            this.keys = builder.keys;
+            this.records = builder.records;
+            this.data = builder.data;
+        }
+
+        /**
+         * Fills the off heap buffers of a table one entry at a time, growing them as needed.
+         */
+        static class Builder {
+            private static final int INITIAL_CAPACITY = 1024;
+
+            private final List<String> attributes;
+            private int size;
+            private int mask;
+            private LongBuffer keys;
+            private IntBuffer records;
+            private ByteBuffer data;
+
+            /**
+             * @param expectedDataSize the initial size of the data buffer, such as the size of the file
+             */
+            Builder(List<String> attributes, long expectedDataSize) {
+                this.attributes = attributes;
+                allocateSlots(INITIAL_CAPACITY);
+                long dataSize = Math.min(Math.max(expectedDataSize, INITIAL_CAPACITY), Integer.MAX_VALUE / 2);
+                this.data = ByteBuffer.allocateDirect((int) dataSize);
+            }
+
+            /**
+             * Adds an entry, whose values follow. The last line of a BIC wins.
+             */
+            void startEntry(long key) {
+                // Half full at most, so that probes stay short
+                if ((size + 1) * 2 > keys.capacity()) {
+                    LongBuffer oldKeys = keys;
+                    IntBuffer oldRecords = records;
+                    allocateSlots(keys.capacity() * 2);
+                    for (int i = 0; i < oldKeys.capacity(); i++) {
+                        if (oldKeys.get(i) != 0) {
+                            put(oldKeys.get(i), oldRecords.get(i));
+                        }
+                    }
+                }
+                put(key, data.position());
+            }
+
+            /**
+             * Adds a value of the current entry, cut to the longest value held by the table.
+             */
+            void addValue(String value) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                int length = Math.min(bytes.length, MAX_VALUE_LENGTH);
+                if (data.remaining() < 2 + length) {
+                    int capacity = Math.max(data.capacity() * 2, data.position() + 2 + length);
+                    ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+                    data.flip();
+                    grown.put(data);
+                    data = grown;
+                }
+                data.putShort((short) length);
+                data.put(bytes, 0, length);
+            }
+
+            Table build() {
+                return new Table(this);
+            }
+
+            private void allocateSlots(int capacity) {
+                mask = capacity - 1;
+                keys = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+                records = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+                size = 0;
+            }
+
+            private void put(long key, int record) {
+                int slot = slot(key, mask);
+                while (keys.get(slot) != 0 && keys.get(slot) != key) {
+                    slot = (slot + 1) & mask;
+                }
+                if (keys.get(slot) == 0) {
+                    size++;
+                }
+                keys.put(slot, key);
+                records.put(slot, record);
+            }
+        }
+
+        /**
+         * @return the names of the attributes of the entries, in the order of the file
+         */
+        public List<String> attributes() {
+            return attributes;
+        }
+
+        /**
+         * @return the index of the attribute with the given column name, or -1 if there is none
+         */
+        public int attributeIndex(String name) {
+            return attributes.indexOf(SwiftUtils.cleanUpFieldName(name.trim()));
+        }
+
+        /**
+         * @return the number of BICs in the directory
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Finds the entry of a BIC8, BIC11 or logical terminal address. A branch which is
+         * not in the directory falls back to its head office.
+         *
+         * @return the entry, or {@link #NOT_FOUND}
+         */
+        public int lookup(CharSequence bic) {
+            return lookup(key(bic));
+        }
+
+        /**
+         * @see #lookup(CharSequence)
+         */
+        public int lookup(DrillBuf buffer, int start, int end) {
+            return lookup(key(buffer, start, end));
+        }
+
+        private int lookup(long key) {
+            if (key == 0) {
+                return NOT_FOUND;
+            }
+            int record = find(key);
+            long headOffice = key - key % BRANCH_RADIX + HEAD_OFFICE;
+            return record == NOT_FOUND && headOffice != key ? find(headOffice) : record;
+        }
+
+        private int find(long key) {
+            int slot = slot(key, mask);
+            while (true) {
+                long slotKey = keys.get(slot);
+                if (slotKey == key) {
+                    return records.get(slot);
+                } else if (slotKey == 0) {
+                    return NOT_FOUND;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            // The low digits of the key are the branch code, which is XXX for most entries
+            long hash = key * 0x9e3779b97f4a7c15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        /**
+         * @return the offset in the data buffer of the value of an attribute of an entry
+         */
+        public int valueStart(int record, int attribute) {
+            int pos = record;
+            for (int i = 0; i < attribute; i++) {
+                pos += 2 + valueLength(pos + 2);
+            }
+            return pos + 2;
+        }
+
+        /**
+         * @param valueStart the offset returned by {@link #valueStart(int, int)}
+         * @return the length in bytes of the value
+         */
+        public int valueLength(int valueStart) {
+            return ((data.get(valueStart - 2) & 0xff) << 8) | (data.get(valueStart - 1) & 0xff);
+        }
+
+        /**
+         * Copies a value to the start of a buffer, which must be large enough.
+         */
+        public void copyValue(int valueStart, int length, DrillBuf out) {
+            for (int i = 0; i < length; i++) {
+                out.setByte(i, data.get(valueStart + i));
+            }
+        }
+
+        /**
+         * @return the value of an attribute of an entry, or null if it is empty
+         */
+        public String value(int record, int attribute) {
+            int start = valueStart(record, attribute);
+            int length = valueLength(start);
+            if (length == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = data.get(start + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
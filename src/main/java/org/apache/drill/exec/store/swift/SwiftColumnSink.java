@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.types.TypeProtos.DataMode;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.common.types.Types;
+import org.apache.drill.exec.physical.resultSet.RowSetLoader;
+import org.apache.drill.exec.record.MaterializedField;
+import org.apache.drill.exec.record.metadata.ColumnMetadata;
+import org.apache.drill.exec.record.metadata.MetadataUtils;
+import org.apache.drill.exec.vector.accessor.ScalarWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes the parsed fields to the columns of the current row, adding columns as
+ * new fields are found. Dates and amounts of composite fields get typed columns.
+ * With a fixed schema no column is added, and fields outside the schema are dropped,
+ * with a warning for the first one.
+ * Tags returned as arrays get repeated columns, see {@link SwiftRepeatedTags#ARRAY}.
+ * <p>
+ * The fields of block 3 and block 4 tags come with the index of their column in the
+ * labels of the message type, see {@link SwiftFieldLabels.Column#index(int)}. Each
+ * column is resolved to its writer once, and the writer is then read from an array
+ * by that index. The few header fields are only known by name, and their writers are
+ * looked up by the name itself. The writers are resolved again when the schema version
+ * of the loader changes, other than by a column added by the sink, which only appends
+ * to the schema.
+ * <p>
+ * With a {@link SwiftBicDirectory}, the sender and receiver are looked up as they are
+ * written, and the attributes of their entries are written to columns such as
+ * <code>sender_name</code> or <code>receiver_country</code>.
+ */
+public class SwiftColumnSink implements SwiftFieldSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftColumnSink.class);
+
+    private static final int INITIAL_INDEX_COUNT = 64;
+    // Bounds the arrays kept for the message types which are not held in the label cache
+    private static final int MAX_INDEXED_TYPES = 256;
+    // Marks an index resolved to a column dropped by the fixed schema
+    private static final Object DROPPED = new Object();
+
+    private final RowSetLoader rowWriter;
+    private final boolean fixedSchema;
+    // Writers by column name, null for the columns dropped by the fixed schema
+    private final Map<String, ScalarWriter> writers = new HashMap<>();
+    private final Map<String, ScalarWriter> elementWriters = new HashMap<>();
+    // Writers by column index, for each message type, see resolvedWriter()
+    private final Map<SwiftFieldLabels, Object[]> indexedWriters = new IdentityHashMap<>();
+    private SwiftFieldLabels labels;
+    private Object[] labelWriters;
+    // The index of the column of the next field, or -1 if it is only known by name
+    private int nextIndex = -1;
+    private int schemaVersion;
+    private boolean warnedDroppedColumn;
+    private final SwiftBicDirectory bicDirectory;
+    // The directory table the attribute column names were built for
+    private SwiftBicDirectory.Table bicTable;
+    private String[] senderColumns;
+    private String[] receiverColumns;
+
+    public SwiftColumnSink(RowSetLoader rowWriter, boolean fixedSchema) {
+        this(rowWriter, fixedSchema, null);
+    }
+
+    /**
+     * @param bicDirectory the directory of the sender and receiver attributes, or null
+     */
+    public SwiftColumnSink(RowSetLoader rowWriter, boolean fixedSchema, SwiftBicDirectory bicDirectory) {
+        this.rowWriter = rowWriter;
+        this.fixedSchema = fixedSchema;
+        this.bicDirectory = bicDirectory;
+        this.schemaVersion = rowWriter.loader().schemaVersion();
+    }
+
+    /**
+     * @return the names of the columns holding the directory attributes of a BIC column
+     */
+    public static String[] bicColumns(String bicColumn, SwiftBicDirectory.Table table) {
+        String[] columns = new String[table.attributes().size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = bicColumn + "_" + table.attributes().get(i);
+        }
+        return columns;
+    }
+
+    @Override
+    public boolean needsColumns() {
+        return true;
+    }
+
+    @Override
+    public void column(SwiftFieldLabels labels, int index) {
+        if (labels != this.labels) {
+            this.labels = labels;
+            labelWriters = indexedWriters.get(labels);
+            if (labelWriters == null) {
+                if (indexedWriters.size() == MAX_INDEXED_TYPES) {
+                    indexedWriters.clear();
+                }
+                labelWriters = new Object[INITIAL_INDEX_COUNT];
+                indexedWriters.put(labels, labelWriters);
+            }
+        }
+        nextIndex = index;
+    }
+
+    @Override
+    public void string(String name, String value) {
+        ScalarWriter writer = resolvedWriter(name, MinorType.VARCHAR, false);
+        if (writer != null) {
+            writer.setString(value);
+        }
+        if (bicDirectory != null) {
+            if (name.equals(SwiftProjection.SENDER)) {
+                writeBicAttributes(value, true);
+            } else if (name.equals(SwiftProjection.RECEIVER)) {
+                writeBicAttributes(value, false);
+            }
+        }
+    }
+
+    private void writeBicAttributes(String bic, boolean sender) {
+        SwiftBicDirectory.Table table = bicDirectory.table();
+        if (table != bicTable) {
+            bicTable = table;
+            senderColumns = bicColumns(SwiftProjection.SENDER, table);
+            receiverColumns = bicColumns(SwiftProjection.RECEIVER, table);
+        }
+        int record = table.lookup(bic);
+        if (record == SwiftBicDirectory.NOT_FOUND) {
+            return;
+        }
+        String[] columns = sender ? senderColumns : receiverColumns;
+        for (int i = 0; i < columns.length; i++) {
+            String value = table.value(record, i);
+            if (value != null) {
+                string(columns[i], value);
+            }
+        }
+    }
+
+    @Override
+    public void date(String name, LocalDate value) {
+        ScalarWriter writer = resolvedWriter(name, MinorType.DATE, false);
+        if (writer != null) {
+            writer.setDate(value);
+        }
+    }
+
+    @Override
+    public void decimal(String name, BigDecimal value) {
+        ScalarWriter writer = resolvedWriter(name, MinorType.VARDECIMAL, false);
+        if (writer != null) {
+            writer.setDecimal(value);
+        }
+    }
+
+    @Override
+    public void stringElement(String name, String value) {
+        ScalarWriter writer = resolvedWriter(name, MinorType.VARCHAR, true);
+        if (writer != null) {
+            writer.setString(value);
+        }
+    }
+
+    @Override
+    public void dateElement(String name, LocalDate value) {
+        ScalarWriter writer = resolvedWriter(name, MinorType.DATE, true);
+        if (writer != null) {
+            writer.setDate(value);
+        }
+    }
+
+    @Override
+    public void decimalElement(String name, BigDecimal value) {
+        ScalarWriter writer = resolvedWriter(name, MinorType.VARDECIMAL, true);
+        if (writer != null) {
+            writer.setDecimal(value);
+        }
+    }
+
+    /**
+     * Writes a BIGINT column, such as the offset of a malformed message.
+     */
+    public void bigint(String name, long value) {
+        ScalarWriter writer = resolvedWriter(name, MinorType.BIGINT, false);
+        if (writer != null) {
+            writer.setLong(value);
+        }
+    }
+
+    /**
+     * Writes the error columns of a message that could not be parsed, see {@link SwiftErrorMode#EMIT}.
+     */
+    public void error(String error, long offset) {
+        string(SwiftErrorMode.ERROR_COLUMN, error == null ? "Unknown error" : error);
+        bigint(SwiftErrorMode.OFFSET_COLUMN, offset);
+    }
+
+    /**
+     * @return the writer of the next field, read by index if the field came with the index of its
+     * column, or null if the schema is fixed and does not have the column
+     */
+    private ScalarWriter resolvedWriter(String name, MinorType type, boolean element) {
+        int version = rowWriter.loader().schemaVersion();
+        if (version != schemaVersion) {
+            // Some other writer changed the schema, the writers may have moved
+            schemaVersion = version;
+            writers.clear();
+            elementWriters.clear();
+            for (Object[] array : indexedWriters.values()) {
+                Arrays.fill(array, null);
+            }
+        }
+        int index = nextIndex;
+        if (index == -1) {
+            return element ? getElementWriter(name, type) : getColumnWriter(name, type);
+        }
+        nextIndex = -1;
+        // Element writers follow the column writers of the same index
+        int slot = index * 2 + (element ? 1 : 0);
+        if (slot >= labelWriters.length) {
+            labelWriters = Arrays.copyOf(labelWriters, Math.max(slot + 1, labelWriters.length * 2));
+            indexedWriters.put(labels, labelWriters);
+        }
+        Object writer = labelWriters[slot];
+        if (writer == null) {
+            ScalarWriter resolved = element ? getElementWriter(name, type) : getColumnWriter(name, type);
+            writer = resolved == null ? DROPPED : resolved;
+            labelWriters[slot] = writer;
+        }
+        return writer == DROPPED ? null : (ScalarWriter) writer;
+    }
+
+    /**
+     * @return the writer of the column, or null if the schema is fixed and does not have the column
+     */
+    private ScalarWriter getColumnWriter(String name, MinorType type) {
+        ScalarWriter writer = writers.get(name);
+        if (writer == null && !writers.containsKey(name)) {
+            int index = columnIndex(name, type, DataMode.OPTIONAL);
+            writer = index == -1 ? null : rowWriter.scalar(index);
+            writers.put(name, writer);
+        }
+        return writer;
+    }
+
+    /**
+     * @return the writer which appends to the array column, or null if the schema is fixed
+     * and does not have the column as an array
+     */
+    private ScalarWriter getElementWriter(String name, MinorType type) {
+        ScalarWriter writer = elementWriters.get(name);
+        if (writer == null && !elementWriters.containsKey(name)) {
+            int index = columnIndex(name, type, DataMode.REPEATED);
+            boolean isArray = index != -1 && rowWriter.tupleSchema().metadata(index).isArray();
+            writer = isArray ? rowWriter.array(index).scalar() : null;
+            elementWriters.put(name, writer);
+        }
+        return writer;
+    }
+
+    /**
+     * @return the index of the column, which is added if the schema is dynamic, or -1
+     */
+    private int columnIndex(String name, MinorType type, DataMode mode) {
+        int index = rowWriter.tupleSchema().index(name);
+        if (index == -1) {
+            if (fixedSchema) {
+                if (!warnedDroppedColumn) {
+                    warnedDroppedColumn = true;
+                    logger.warn("The fixed SWIFT schema has no column {}, its values are dropped. Other columns may be "
+                            + "dropped too, such as the block 4 fields of the message types outside of the schema "
+                            + "registry. Use the dynamic schema mode to read them.", name);
+                }
+                return -1;
+            }
+            ColumnMetadata colSchema;
+            if (type == MinorType.VARDECIMAL) {
+                colSchema = MetadataUtils.fromField(MaterializedField.create(name, Types.withPrecisionAndScale(
+                        MinorType.VARDECIMAL, mode,
+                        SwiftMessageParser.AMOUNT_PRECISION, SwiftMessageParser.AMOUNT_SCALE)));
+            } else {
+                colSchema = MetadataUtils.newScalar(name, type, mode);
+            }
+            index = rowWriter.addColumn(colSchema);
+            // Adding a column does not move the others, so the resolved writers stay valid
+            schemaVersion = rowWriter.loader().schemaVersion();
+        }
+        return index;
+    }
+}
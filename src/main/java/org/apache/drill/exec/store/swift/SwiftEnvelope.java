@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * The way messages are packed in a file. Each envelope adds delimiters or padding
+ * around the FIN messages, which the {@link SwiftMessageSplitter} drops as it scans
+ * the bytes, so the files can be read as they are delivered.
+ */
+public enum SwiftEnvelope {
+
+    /**
+     * Any of the envelopes below except {@link #LINES}, the default. A file starting with
+     * <code>&lt;</code> is read as {@link #MX}. Otherwise a message ends at the next basic
+     * header, at an RJE separator or at a DOS-PCC end marker, whichever comes first.
+     */
+    AUTO,
+
+    /**
+     * Bare FIN messages, each one running up to the next basic header.
+     */
+    FIN,
+
+    /**
+     * Alliance RJE files, where messages are separated by a <code>$</code> outside of any block.
+     */
+    RJE,
+
+    /**
+     * DOS-PCC files, where each message starts with a <code>0x01</code> byte and ends with a
+     * <code>0x03</code> byte, and is padded with spaces up to the next sector.
+     */
+    DOSPCC,
+
+    /**
+     * One message per line, as in dumps of message tables. A line break ends the message
+     * and anything around it on the line is dropped.
+     */
+    LINES,
+
+    /**
+     * ISO 20022 XML documents, read by {@link SwiftMxParser} with a row per transaction.
+     * A document cannot be split, so it is read whole by the reader of the first split.
+     * The header filters and the fixed schema only apply to FIN messages.
+     */
+    MX;
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftEnvelope.class);
+
+    public static final byte RJE_SEPARATOR = '$';
+    public static final byte DOSPCC_START = 0x01;
+    public static final byte DOSPCC_END = 0x03;
+
+    /**
+     * @param envelope the envelope of the format config, such as <code>rje</code> or
+     * <code>dos-pcc</code>, which may be null
+     * @return the envelope
+     */
+    public static SwiftEnvelope of(String envelope) {
+        if (envelope == null || envelope.isEmpty()) {
+            return AUTO;
+        }
+        try {
+            return valueOf(envelope.replace("-", "").replace("_", "").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw UserException
+                    .validationError()
+                    .message("Unknown SWIFT envelope: %s. Use auto, fin, rje, dospcc, lines or mx.", envelope)
+                    .build(logger);
+        }
+    }
+
+    /**
+     * @return a table of the bytes ending a message, indexed by their unsigned value. The
+     * RJE separator only ends a message outside of any block.
+     */
+    boolean[] delimiters() {
+        boolean[] delimiters = new boolean[256];
+        if (this == AUTO || this == RJE) {
+            delimiters[RJE_SEPARATOR] = true;
+        }
+        if (this == AUTO || this == DOSPCC) {
+            delimiters[DOSPCC_END] = true;
+        }
+        if (this == LINES) {
+            delimiters['\n'] = true;
+            delimiters['\r'] = true;
+        }
+        return delimiters;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * What the reader does with a message that cannot be parsed, such as a truncated or
+ * garbled message in an archive. The splitter resyncs on the basic header of the next
+ * message by a plain byte scan, so a malformed message never costs more than reading
+ * its own bytes, whatever the mode.
+ */
+public enum SwiftErrorMode {
+
+    /**
+     * Fails the query, the default.
+     */
+    FAIL,
+
+    /**
+     * Drops the message.
+     */
+    SKIP,
+
+    /**
+     * Returns a row holding only the error and the offset of the message in the file,
+     * in the {@link #ERROR_COLUMN} and {@link #OFFSET_COLUMN} columns.
+     */
+    EMIT;
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftErrorMode.class);
+
+    public static final String ERROR_COLUMN = "_error";
+    public static final String OFFSET_COLUMN = "_raw_offset";
+
+    /**
+     * @param errorMode the error mode of the format config, which may be null
+     * @return the error mode
+     */
+    public static SwiftErrorMode of(String errorMode) {
+        if (errorMode == null || errorMode.isEmpty()) {
+            return FAIL;
+        }
+        try {
+            return valueOf(errorMode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw UserException
+                    .validationError()
+                    .message("Unknown SWIFT error mode: %s. Use fail, skip or emit.", errorMode)
+                    .build(logger);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import com.prowidesoftware.swift.model.field.Field;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the column names of block 3 and block 4 tags. A column name is the cleaned up
+ * Prowide label of the tag, which only depends on the tag name, the message type and
+ * the locale, so it is resolved once and shared by every reader and function in the
+ * drillbit.
+ * <p>
+ * The names of a given message type and locale are held in an array indexed by the tag
+ * name. Standard tag names are two digits with an optional letter option, or three digits
+ * in block 3, which gives a small, dense index and lets the parser look a name up from the
+ * raw bytes of the message without building a string. Other tag names are not cached.
+ * <p>
+ * Each cached tag also gets a small, dense index within its message type, see
+ * {@link Column#index(int)}, which sinks use to find the writer of a column in an array
+ * rather than by its name.
+ */
+public class SwiftFieldLabels {
+
+    // Upper bound on the number of message type and locale combinations held in the cache
+    private static final int MAX_TABLES = 1024;
+
+    // 2 digit tags with an optional letter, then 3 digit tags
+    private static final int TWO_DIGIT_SLOTS = 100 * 27;
+    private static final int SLOTS = TWO_DIGIT_SLOTS + 1000;
+
+    static final String[] BLOCK3_TAGS = {
+            "103", "106", "108", "111", "113", "115", "119", "121", "165", "423", "424", "433", "434"
+    };
+
+    private static final ConcurrentMap<Locale, ConcurrentMap<String, SwiftFieldLabels>> CACHE = new ConcurrentHashMap<>();
+
+    private final String messageType;
+    private final Locale locale;
+    // Written without locking: a slot is either null or a fully built immutable Column
+    private final Column[] columns = new Column[SLOTS];
+    // Two threads resolving the same tag may both take an index, which only wastes one
+    private final AtomicInteger columnCount = new AtomicInteger();
+
+    private SwiftFieldLabels(String messageType, Locale locale) {
+        this.messageType = messageType;
+        this.locale = locale;
+        // Block 3 tags do not depend on the message type
+        for (String tag : BLOCK3_TAGS) {
+            columnName(tag);
+        }
+    }
+
+    /**
+     * @param messageType the message type, such as <code>103</code>, or null if it is unknown
+     * @param locale the locale of the labels
+     * @return the column names of the given message type
+     */
+    public static SwiftFieldLabels forMessageType(String messageType, Locale locale) {
+        String key = messageType == null ? "" : messageType;
+        ConcurrentMap<String, SwiftFieldLabels> tables = CACHE.get(locale);
+        if (tables == null) {
+            tables = CACHE.computeIfAbsent(locale, l -> new ConcurrentHashMap<>());
+        }
+        SwiftFieldLabels labels = tables.get(key);
+        if (labels == null) {
+            labels = new SwiftFieldLabels(messageType, locale);
+            if (tables.size() < MAX_TABLES) {
+                SwiftFieldLabels existing = tables.putIfAbsent(key, labels);
+                if (existing != null) {
+                    labels = existing;
+                }
+            }
+        }
+        return labels;
+    }
+
+    public String messageType() {
+        return messageType;
+    }
+
+    /**
+     * Returns the column name of a tag whose name is held in a byte buffer.
+     */
+    public String columnName(byte[] buffer, int nameStart, int nameEnd) {
+        return column(buffer, nameStart, nameEnd).name(Column.LABEL);
+    }
+
+    /**
+     * Returns the column name of a tag, such as <code>32A</code>.
+     */
+    public String columnName(String tagName) {
+        byte[] bytes = tagName.getBytes(StandardCharsets.UTF_8);
+        return columnName(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the columns of a tag whose name is held in a byte buffer. The columns of
+     * a tag which is not a standard tag name are built on each call and have no index.
+     */
+    public Column column(byte[] buffer, int nameStart, int nameEnd) {
+        int slot = slot(buffer, nameStart, nameEnd);
+        if (slot == -1) {
+            return new Column(resolve(new String(buffer, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8)), -1);
+        }
+        Column column = columns[slot];
+        if (column == null) {
+            column = new Column(resolve(new String(buffer, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8)),
+                    columnCount.getAndIncrement());
+            columns[slot] = column;
+        }
+        return column;
+    }
+
+    private String resolve(String tagName) {
+        return SwiftUtils.cleanUpFieldName(Field.getLabel(tagName, messageType, null, locale));
+    }
+
+    /**
+     * @return the index of the tag name in the name array, or -1 if it is not a standard tag name
+     */
+    private static int slot(byte[] buffer, int start, int end) {
+        int length = end - start;
+        if (length < 2 || length > 3 || !isDigit(buffer[start]) || !isDigit(buffer[start + 1])) {
+            return -1;
+        }
+        int number = (buffer[start] - '0') * 10 + (buffer[start + 1] - '0');
+        if (length == 2) {
+            return number * 27;
+        }
+        byte last = buffer[start + 2];
+        if (last >= 'A' && last <= 'Z') {
+            return number * 27 + (last - 'A' + 1);
+        } else if (isDigit(last)) {
+            return TWO_DIGIT_SLOTS + number * 10 + (last - '0');
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * The columns of a tag: the column of its value, named after its label, and the
+     * typed columns of its date, currency and amount components.
+     */
+    public static final class Column {
+
+        public static final int LABEL = 0;
+        public static final int DATE = 1;
+        public static final int CURRENCY = 2;
+        public static final int AMOUNT = 3;
+        private static final int COMPONENTS = 4;
+
+        private final String[] names;
+        private final int index;
+
+        private Column(String label, int index) {
+            this.names = new String[] {label, label + "_date", label + "_currency", label + "_amount"};
+            this.index = index;
+        }
+
+        /**
+         * @param component one of {@link #LABEL}, {@link #DATE}, {@link #CURRENCY} or {@link #AMOUNT}
+         */
+        public String name(int component) {
+            return names[component];
+        }
+
+        /**
+         * @param component one of {@link #LABEL}, {@link #DATE}, {@link #CURRENCY} or {@link #AMOUNT}
+         * @return the index of the column among the columns of the message type, or -1 if the tag
+         * is not cached
+         */
+        public int index(int component) {
+            return index == -1 ? -1 : index * COMPONENTS + component;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Receives the fields of a message from {@link SwiftMessageParser}, so that the
+ * format reader and the UDFs can write them straight to their output without
+ * building an intermediate map.
+ */
+public interface SwiftFieldSink {
+
+    /**
+     * @param name the column name of the field
+     * @param value the value of the field, never null
+     */
+    void string(String name, String value);
+
+    /**
+     * Receives a date component of a composite field, such as the value date of 32A.
+     * Sinks without typed output receive the ISO date as a string.
+     */
+    default void date(String name, LocalDate value) {
+        string(name, value.toString());
+    }
+
+    /**
+     * Receives an amount component of a composite field, such as the amount of 32A.
+     * Sinks without typed output receive the plain amount as a string.
+     */
+    default void decimal(String name, BigDecimal value) {
+        string(name, value.toPlainString());
+    }
+
+    /**
+     * Receives one value of a tag returned as an array, see {@link SwiftRepeatedTags#ARRAY}.
+     * Sinks without arrays keep the last value.
+     */
+    default void stringElement(String name, String value) {
+        string(name, value);
+    }
+
+    /**
+     * Receives one date of a tag returned as an array.
+     */
+    default void dateElement(String name, LocalDate value) {
+        date(name, value);
+    }
+
+    /**
+     * Receives one amount of a tag returned as an array.
+     */
+    default void decimalElement(String name, BigDecimal value) {
+        decimal(name, value);
+    }
+
+    /**
+     * @return true if the sink returns where each field comes from, in which case the
+     * parser calls {@link #source(int, String)} before the fields of each block and tag
+     */
+    default boolean needsSources() {
+        return false;
+    }
+
+    /**
+     * Receives the block and tag of the fields that follow.
+     *
+     * @param block the block number, or 0 for the fields derived from several blocks, such as the sender
+     * @param tag the tag name, such as <code>32A</code> or <code>CHK</code>, or null for the header blocks
+     */
+    default void source(int block, String tag) {
+    }
+
+    /**
+     * @return true if the sink keeps its columns by index, in which case the parser calls
+     * {@link #column(SwiftFieldLabels, int)} before each field of a cached block 3 or block 4 tag
+     */
+    default boolean needsColumns() {
+        return false;
+    }
+
+    /**
+     * Receives the index of the column of the next field, see {@link SwiftFieldLabels.Column#index(int)}.
+     * The fields which are not preceded by an index, such as the header fields, are only known by name.
+     *
+     * @param labels the labels of the message type the index belongs to
+     * @param index the index of the column among the columns of the message type
+     */
+    default void column(SwiftFieldLabels labels, int index) {
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.rex.RexCall;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexLiteral;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.drill.exec.physical.base.GroupScan;
+import org.apache.drill.exec.planner.logical.RelOptHelper;
+import org.apache.drill.exec.planner.physical.FilterPrel;
+import org.apache.drill.exec.planner.physical.ScanPrel;
+import org.apache.drill.exec.store.StoragePluginOptimizerRule;
+import org.apache.drill.exec.store.dfs.FileSelection;
+import org.apache.drill.exec.store.dfs.easy.EasyGroupScan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pushes the conditions of a query on the header columns into the SWIFT scan, so that
+ * {@link SwiftHeaderFilter} skips the messages which cannot match before they are parsed.
+ * The conditions are:
+ * <ul>
+ * <li><code>message_type</code>, <code>sender</code> and <code>receiver</code> equal to a
+ * literal, or to one of several literals combined with <code>OR</code> or <code>IN</code>,
+ * which the planner may have turned into a <code>SEARCH</code></li>
+ * <li><code>block2_direction</code> equal to <code>Input</code> or <code>Output</code></li>
+ * <li><code>block2_mir_date</code> compared to a YYMMDD literal, or <code>BETWEEN</code> two of them</li>
+ * </ul>
+ * They become the header conditions of a copy of the format config. The conditions of the
+ * format config are kept as defaults and only narrowed: values are intersected, and when no
+ * value is left, or the direction of the query is not that of the format, the scan gets an
+ * empty range of MIR dates, which no message matches. The pushed conditions may select more
+ * messages than the query, a strict bound on the MIR date becomes an inclusive one for
+ * instance, so the filter of the query stays on top of the scan.
+ * <p>
+ * With the fixed schema mode the message types of the format also give the columns of the
+ * scan, so conditions on the message type are not pushed.
+ * <p>
+ * The scan with the pushed conditions shares the statistics of the format plugin, see
+ * {@link SwiftFormatPlugin#withHeaderFilter(SwiftFormatConfig)}.
+ * <p>
+ * Incremental scans are left alone, since their config names their watermark, and so is the
+ * long output mode, which has no header columns. Messages skipped by a pushed condition are
+ * never parsed, so a malformed one does not count as an error, as with the conditions of the
+ * format config.
+ */
+public class SwiftFilterPushDown extends StoragePluginOptimizerRule {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftFilterPushDown.class);
+
+    public static final SwiftFilterPushDown INSTANCE = new SwiftFilterPushDown();
+
+    private static final String MESSAGE_TYPE = "message_type";
+    private static final String DIRECTION = "block2_direction";
+    private static final String MIR_DATE = "block2_mir_date";
+    private static final int MIR_DATE_LENGTH = 6;
+    // An empty range of MIR dates, for the conditions which leave no message
+    private static final String NO_MIR_DATE_FROM = "999999";
+    private static final String NO_MIR_DATE_TO = "000000";
+
+    private SwiftFilterPushDown() {
+        super(RelOptHelper.some(FilterPrel.class, RelOptHelper.any(ScanPrel.class)), "SwiftFilterPushDown:Filter_On_Scan");
+    }
+
+    @Override
+    public boolean matches(RelOptRuleCall call) {
+        ScanPrel scan = call.rel(1);
+        return scan.getGroupScan() instanceof EasyGroupScan
+                && ((EasyGroupScan) scan.getGroupScan()).getFormatPlugin() instanceof SwiftFormatPlugin;
+    }
+
+    @Override
+    public void onMatch(RelOptRuleCall call) {
+        FilterPrel filter = call.rel(0);
+        ScanPrel scan = call.rel(1);
+        EasyGroupScan groupScan = (EasyGroupScan) scan.getGroupScan();
+        SwiftFormatPlugin plugin = (SwiftFormatPlugin) groupScan.getFormatPlugin();
+        SwiftFormatConfig config = plugin.getConfig();
+        if (config.isIncremental() || SwiftOutputMode.of(config.getOutputMode()) == SwiftOutputMode.LONG) {
+            return;
+        }
+
+        Conditions conditions = new Conditions(config, scan.getRowType().getFieldNames());
+        // IN lists may come as a SEARCH of their values, which is expanded back into equalities
+        RexNode condition = RexUtil.expandSearch(filter.getCluster().getRexBuilder(), null, filter.getCondition());
+        for (RexNode conjunction : RelOptUtil.conjunctions(condition)) {
+            conditions.add(conjunction);
+        }
+        SwiftFormatConfig pushedConfig = conditions.config();
+        if (pushedConfig.equals(config)) {
+            return;
+        }
+
+        try {
+            SwiftFormatPlugin pushedPlugin = plugin.withHeaderFilter(pushedConfig);
+            FileSelection selection = FileSelection.create(null, groupScan.getFiles(), groupScan.getSelectionRoot());
+            GroupScan pushedScan = pushedPlugin.getGroupScan(groupScan.getUserName(), selection, groupScan.getColumns());
+            ScanPrel pushedScanPrel = new ScanPrel(scan.getCluster(), scan.getTraitSet(), pushedScan, scan.getRowType(),
+                    scan.getTable());
+            call.transformTo(filter.copy(filter.getTraitSet(), Collections.singletonList(pushedScanPrel)));
+        } catch (IOException e) {
+            // The scan is still correct without the pushed conditions
+            logger.debug("Unable to push the header conditions into the SWIFT scan", e);
+        }
+    }
+
+    /**
+     * The header conditions of the format config, narrowed by the conditions of the query.
+     */
+    private static class Conditions {
+        private final SwiftFormatConfig config;
+        private final List<String> columns;
+        private final boolean fixedSchema;
+        // True once the conditions leave no message
+        private boolean none;
+        private List<String> messageTypes;
+        private List<String> senders;
+        private List<String> receivers;
+        private String direction;
+        private String mirDateFrom;
+        private String mirDateTo;
+
+        Conditions(SwiftFormatConfig config, List<String> columns) {
+            this.config = config;
+            this.columns = columns;
+            this.fixedSchema = SwiftSchemaRegistry.isFixed(config.getSchemaMode());
+            this.messageTypes = config.getMessageTypes();
+            this.senders = config.getSenders();
+            this.receivers = config.getReceivers();
+            this.direction = config.getDirection();
+            this.mirDateFrom = config.getMirDateFrom();
+            this.mirDateTo = config.getMirDateTo();
+        }
+
+        SwiftFormatConfig config() {
+            if (none) {
+                return config.withHeaderFilter(config.getMessageTypes(), config.getSenders(), config.getReceivers(),
+                        config.getDirection(), NO_MIR_DATE_FROM, NO_MIR_DATE_TO);
+            }
+            return config.withHeaderFilter(messageTypes, senders, receivers, direction, mirDateFrom, mirDateTo);
+        }
+
+        /**
+         * Narrows the conditions with one conjunction of the filter, ignoring it unless it is
+         * a comparison, or an <code>OR</code> of equalities, on a single header column.
+         */
+        void add(RexNode conjunction) {
+            String column = null;
+            List<String> values = new ArrayList<>();
+            List<RexNode> disjunctions = RelOptUtil.disjunctions(conjunction);
+            for (RexNode disjunction : disjunctions) {
+                if (!(disjunction instanceof RexCall) || ((RexCall) disjunction).getOperands().size() != 2) {
+                    return;
+                }
+                RexCall comparison = (RexCall) disjunction;
+                SqlKind kind = comparison.getKind();
+                String name = columnName(comparison.getOperands().get(0));
+                String value = literal(comparison.getOperands().get(1));
+                if (name == null) {
+                    name = columnName(comparison.getOperands().get(1));
+                    value = literal(comparison.getOperands().get(0));
+                    kind = kind.reverse();
+                }
+                if (name == null || value == null || (column != null && !column.equals(name))) {
+                    return;
+                }
+                column = name;
+                if (disjunctions.size() == 1 && column.equals(MIR_DATE)) {
+                    addMirDate(kind, value);
+                    return;
+                }
+                if (kind != SqlKind.EQUALS) {
+                    return;
+                }
+                values.add(value);
+            }
+            if (column == null) {
+                return;
+            }
+            switch (column) {
+                case MESSAGE_TYPE:
+                    if (!fixedSchema) {
+                        messageTypes = narrow(messageTypes, values);
+                    }
+                    break;
+                case SwiftProjection.SENDER:
+                    senders = values.stream().allMatch(Conditions::isBic) ? narrow(senders, values) : senders;
+                    break;
+                case SwiftProjection.RECEIVER:
+                    receivers = values.stream().allMatch(Conditions::isBic) ? narrow(receivers, values) : receivers;
+                    break;
+                case DIRECTION:
+                    if (values.size() == 1
+                            && ("input".equalsIgnoreCase(values.get(0)) || "output".equalsIgnoreCase(values.get(0)))) {
+                        if (direction == null || direction.isEmpty()) {
+                            direction = values.get(0).toLowerCase(Locale.ROOT);
+                        } else if (Character.toUpperCase(direction.charAt(0))
+                                != Character.toUpperCase(values.get(0).charAt(0))) {
+                            none = true;
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void addMirDate(SqlKind kind, String value) {
+            if (value.length() != MIR_DATE_LENGTH || !value.chars().allMatch(Character::isDigit)) {
+                return;
+            }
+            // YYMMDD dates compare as strings
+            boolean from = kind == SqlKind.EQUALS || kind == SqlKind.GREATER_THAN
+                    || kind == SqlKind.GREATER_THAN_OR_EQUAL;
+            boolean to = kind == SqlKind.EQUALS || kind == SqlKind.LESS_THAN || kind == SqlKind.LESS_THAN_OR_EQUAL;
+            if (from && (mirDateFrom == null || value.compareTo(mirDateFrom) > 0)) {
+                mirDateFrom = value;
+            }
+            if (to && (mirDateTo == null || value.compareTo(mirDateTo) < 0)) {
+                mirDateTo = value;
+            }
+        }
+
+        /**
+         * @return the name of the column the node reads, possibly through a cast, or null
+         */
+        private String columnName(RexNode node) {
+            if (node.getKind() == SqlKind.CAST) {
+                node = ((RexCall) node).getOperands().get(0);
+            }
+            if (!(node instanceof RexInputRef)) {
+                return null;
+            }
+            return columns.get(((RexInputRef) node).getIndex()).toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * @return the value of a character literal, or null
+         */
+        private static String literal(RexNode node) {
+            if (!(node instanceof RexLiteral) || ((RexLiteral) node).isNull()
+                    || !SqlTypeName.CHAR_TYPES.contains(((RexLiteral) node).getTypeName())) {
+                return null;
+            }
+            return ((RexLiteral) node).getValueAs(String.class);
+        }
+
+        private static boolean isBic(String value) {
+            return value.length() == 8 || value.length() == SwiftHeaderPart.BIC11_LENGTH;
+        }
+
+        /**
+         * @return the values of the query which are also allowed by the current values. If there
+         * are none, no message matches and the current values are returned.
+         */
+        private List<String> narrow(List<String> current, List<String> values) {
+            if (current == null || current.isEmpty()) {
+                return values;
+            }
+            List<String> narrowed = new ArrayList<>(values);
+            narrowed.retainAll(current);
+            if (narrowed.isEmpty()) {
+                none = true;
+                return current;
+            }
+            return narrowed;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift;
+
+import io.netty.buffer.DrillBuf;
+
+/**
+ * Computes a 64 bit hash of the business content of a FIN message, to find duplicates
+ * with a hash aggregate or join instead of comparing the raw text.
+ * <p>
+ * The hash covers the message type, the sender and receiver BIC11 and the text of
+ * block 4 with each run of whitespace reduced to a single space. It leaves out the
+ * session and sequence numbers, the MIR, the user header (block 3) and the trailers,
+ * which differ between copies of the same message. The sender and receiver are taken
+ * the same way as {@link SwiftHeaderPart#SENDER} and {@link SwiftHeaderPart#RECEIVER},
+ * so the input and output copies of a message have the same fingerprint.
+ * <p>
+ * The message is read once, front to back, and nothing is allocated.
+ */
+public class SwiftFingerprint {
+
+    /**
+     * Returned when the message has no basic header, application header or block 4.
+     * A message which would hash to this value is given {@link #ZERO_HASH} instead.
+     */
+    public static final long NOT_FOUND = 0;
+
+    private static final long ZERO_HASH = 1;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Offsets within the block content
+    private static final int LOGICAL_TERMINAL_START = 3;
+    private static final int LOGICAL_TERMINAL_LENGTH = 12;
+    private static final int INPUT_RECEIVER_START = 4;
+    private static final int OUTPUT_SENDER_START = 14;
+    private static final int MESSAGE_TYPE_START = 1;
+    private static final int MESSAGE_TYPE_END = 4;
+    // The logical terminal code, dropped to form the BIC11
+    private static final int TERMINAL_CODE = 8;
+
+    private SwiftFingerprint() {
+    }
+
+    /**
+     * @param buffer the buffer holding the message
+     * @param start the offset of the message in the buffer
+     * @param end the offset just past the end of the message
+     * @return the fingerprint of the message, or {@link #NOT_FOUND} if it is malformed
+     */
+    public static long fingerprint(DrillBuf buffer, int start, int end) {
+        int block1 = -1;
+        int block1End = -1;
+        int block2 = -1;
+        int block2End = -1;
+        int pos = start;
+        while (pos + 2 < end) {
+            if (buffer.getByte(pos) != '{') {
+                pos++;
+                continue;
+            }
+            byte id = buffer.getByte(pos + 1);
+            boolean numbered = buffer.getByte(pos + 2) == ':';
+            int contentStart = pos + 3;
+            if (numbered && id == '4') {
+                long hash = hashHeaders(buffer, block1, block1End, block2, block2End);
+                return hash == NOT_FOUND ? NOT_FOUND : hashBlock4(buffer, contentStart, end, hash);
+            }
+
+            // Skip over the block and any nested tags
+            int depth = 0;
+            do {
+                byte b = buffer.getByte(pos++);
+                if (b == '{') {
+                    depth++;
+                } else if (b == '}') {
+                    depth--;
+                }
+            } while (depth > 0 && pos < end);
+            if (depth > 0) {
+                return NOT_FOUND;
+            }
+            if (numbered && id == '1') {
+                block1 = contentStart;
+                block1End = pos - 1;
+            } else if (numbered && id == '2') {
+                block2 = contentStart;
+                block2End = pos - 1;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static long hashHeaders(DrillBuf buffer, int block1, int block1End, int block2, int block2End) {
+        if (block1 == -1 || block2 == -1 || block1End - block1 < LOGICAL_TERMINAL_START + LOGICAL_TERMINAL_LENGTH) {
+            return NOT_FOUND;
+        }
+        byte direction = block2 < block2End ? buffer.getByte(block2) : 0;
+        int sender;
+        int receiver;
+        if (direction == 'I' && block2End - block2 >= INPUT_RECEIVER_START + LOGICAL_TERMINAL_LENGTH) {
+            sender = block1 + LOGICAL_TERMINAL_START;
+            receiver = block2 + INPUT_RECEIVER_START;
+        } else if (direction == 'O' && block2End - block2 >= OUTPUT_SENDER_START + LOGICAL_TERMINAL_LENGTH) {
+            sender = block2 + OUTPUT_SENDER_START;
+            receiver = block1 + LOGICAL_TERMINAL_START;
+        } else {
+            return NOT_FOUND;
+        }
+
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = block2 + MESSAGE_TYPE_START; i < block2 + MESSAGE_TYPE_END; i++) {
+            hash = update(hash, buffer.getByte(i));
+        }
+        hash = update(hash, (byte) 0);
+        hash = hashBic11(buffer, sender, hash);
+        hash = update(hash, (byte) 0);
+        hash = hashBic11(buffer, receiver, hash);
+        return update(hash, (byte) 0);
+    }
+
+    private static long hashBic11(DrillBuf buffer, int terminal, long hash) {
+        for (int i = 0; i < LOGICAL_TERMINAL_LENGTH; i++) {
+            if (i != TERMINAL_CODE) {
+                hash = update(hash, buffer.getByte(terminal + i));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes block 4 up to its closing brace, with leading and trailing whitespace
+     * dropped and any other run of whitespace hashed as a single space, so that line
+     * endings and padding do not change the fingerprint.
+     */
+    private static long hashBlock4(DrillBuf buffer, int pos, int end, long hash) {
+        int depth = 1;
+        boolean started = false;
+        boolean space = false;
+        for (; pos < end; pos++) {
+            byte b = buffer.getByte(pos);
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                space = started;
+                continue;
+            }
+            if (b == '{') {
+                depth++;
+            } else if (b == '}' && --depth == 0) {
+                return finish(hash);
+            }
+            if (space) {
+                hash = update(hash, (byte) ' ');
+                space = false;
+            }
+            hash = update(hash, b);
+            started = true;
+        }
+        // Unterminated block 4
+        return NOT_FOUND;
+    }
+
+    private static long update(long hash, byte b) {
+        return (hash ^ (b & 0xff)) * FNV_PRIME;
+    }
+
+    /**
+     * FNV-1a mixes the last bytes poorly, so the hash goes through the MurmurHash3
+     * finalizer before it is used for hash partitioning.
+     */
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == NOT_FOUND ? ZERO_HASH : hash;
+    }
+}
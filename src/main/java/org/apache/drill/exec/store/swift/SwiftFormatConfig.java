@@ -31,14 +31,81 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
+/**
+ * Configuration of the SWIFT format. Besides the file extensions, the format can be
+ * restricted to the messages with given header fields. These conditions are checked on
+ * the raw header of each message, before it is parsed, so a format defined for, say,
+ * the MT103 messages of a sender reads little more than the I/O of the file.
+ * With a message index, later scans of the same file do not even read the messages
+ * that are filtered out.
+ * <p>
+ * The header conditions of the config are the defaults of every query on the format.
+ * The conditions of a query on the header columns narrow them further, see
+ * {@link SwiftFilterPushDown}.
+ */
 @JsonTypeName(SwiftFormatPlugin.DEFAULT_NAME)
 @JsonInclude(JsonInclude.Include.NON_DEFAULT)
 public class SwiftFormatConfig implements FormatPluginConfig {
     private final List<String> extensions;
+    private final List<String> messageTypes;
+    private final List<String> senders;
+    private final List<String> receivers;
+    private final String direction;
+    private final String mirDateFrom;
+    private final String mirDateTo;
+    private final boolean messageIndex;
+    private final String schemaMode;
+    private final int parseThreads;
+    private final int queueDepth;
+    private final String errorMode;
+    private final int maxErrors;
+    private final String envelope;
+    private final String repeatedTags;
+    private final String bicDirectory;
+    private final String outputMode;
+    private final boolean incremental;
+
+    public SwiftFormatConfig(List<String> extensions) {
+        this(extensions, null, null, null, null, null, null, false, null, 0, 0, null, 0, null, null, null, null, false);
+    }
 
     @JsonCreator
-    public SwiftFormatConfig(@JsonProperty("extensions") List<String> extensions) {
-        this.extensions = extensions == null ? Arrays.asList("accdb", "mdb") : ImmutableList.copyOf(extensions);
+    public SwiftFormatConfig(@JsonProperty("extensions") List<String> extensions,
+                             @JsonProperty("messageTypes") List<String> messageTypes,
+                             @JsonProperty("senders") List<String> senders,
+                             @JsonProperty("receivers") List<String> receivers,
+                             @JsonProperty("direction") String direction,
+                             @JsonProperty("mirDateFrom") String mirDateFrom,
+                             @JsonProperty("mirDateTo") String mirDateTo,
+                             @JsonProperty("messageIndex") boolean messageIndex,
+                             @JsonProperty("schemaMode") String schemaMode,
+                             @JsonProperty("parseThreads") int parseThreads,
+                             @JsonProperty("queueDepth") int queueDepth,
+                             @JsonProperty("errorMode") String errorMode,
+                             @JsonProperty("maxErrors") int maxErrors,
+                             @JsonProperty("envelope") String envelope,
+                             @JsonProperty("repeatedTags") String repeatedTags,
+                             @JsonProperty("bicDirectory") String bicDirectory,
+                             @JsonProperty("outputMode") String outputMode,
+                             @JsonProperty("incremental") boolean incremental) {
+        this.extensions = extensions == null ? Arrays.asList("fin", "rje", "dos") : ImmutableList.copyOf(extensions);
+        this.messageTypes = messageTypes == null ? null : ImmutableList.copyOf(messageTypes);
+        this.senders = senders == null ? null : ImmutableList.copyOf(senders);
+        this.receivers = receivers == null ? null : ImmutableList.copyOf(receivers);
+        this.direction = direction;
+        this.mirDateFrom = mirDateFrom;
+        this.mirDateTo = mirDateTo;
+        this.messageIndex = messageIndex;
+        this.schemaMode = schemaMode;
+        this.parseThreads = parseThreads;
+        this.queueDepth = queueDepth;
+        this.errorMode = errorMode;
+        this.maxErrors = maxErrors;
+        this.envelope = envelope;
+        this.repeatedTags = repeatedTags;
+        this.bicDirectory = bicDirectory;
+        this.outputMode = outputMode;
+        this.incremental = incremental;
     }
 
     @JsonInclude(Include.NON_DEFAULT)
@@ -46,6 +113,165 @@ public class SwiftFormatConfig implements FormatPluginConfig {
         return extensions;
     }
 
+    /**
+     * @return the message types to read, such as <code>103</code>, or null to read all of them
+     */
+    @JsonInclude(Include.NON_NULL)
+    public List<String> getMessageTypes() {
+        return messageTypes;
+    }
+
+    /**
+     * @return the BIC8 or BIC11 of the senders of the messages to read, or null
+     */
+    @JsonInclude(Include.NON_NULL)
+    public List<String> getSenders() {
+        return senders;
+    }
+
+    /**
+     * @return the BIC8 or BIC11 of the receivers of the messages to read, or null
+     */
+    @JsonInclude(Include.NON_NULL)
+    public List<String> getReceivers() {
+        return receivers;
+    }
+
+    /**
+     * @return <code>input</code> or <code>output</code> to read the messages of one direction only, or null
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return the first MIR date of the output messages to read, as YYMMDD, or null
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getMirDateFrom() {
+        return mirDateFrom;
+    }
+
+    /**
+     * @return the last MIR date of the output messages to read, as YYMMDD, or null
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getMirDateTo() {
+        return mirDateTo;
+    }
+
+    /**
+     * @return true to keep a sidecar index of the messages of each file split, see {@link SwiftMessageIndex}
+     */
+    @JsonInclude(Include.NON_DEFAULT)
+    public boolean isMessageIndex() {
+        return messageIndex;
+    }
+
+    /**
+     * @return <code>dynamic</code>, the default, to discover the columns from the messages, or
+     * <code>fixed</code> to declare the columns of the known message types up front, see
+     * {@link SwiftSchemaRegistry}
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getSchemaMode() {
+        return schemaMode;
+    }
+
+    /**
+     * @return the number of threads parsing the messages of each file besides the reader
+     * thread, or 0 to parse on the reader thread. The number is capped by the number of
+     * cores, or by the share of a fragment when the width per node is set, see
+     * {@link SwiftParsePipeline#threads(int, int, long)}.
+     */
+    @JsonInclude(Include.NON_DEFAULT)
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /**
+     * @return the maximum number of messages being parsed ahead of the reader, or 0 for the default
+     */
+    @JsonInclude(Include.NON_DEFAULT)
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return what to do with a message that cannot be parsed: <code>fail</code>, the default, to fail
+     * the query, <code>skip</code> to drop it, or <code>emit</code> to return a row with the error, see
+     * {@link SwiftErrorMode}
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getErrorMode() {
+        return errorMode;
+    }
+
+    /**
+     * @return the number of malformed messages a reader skips or emits before failing the query,
+     * or 0 for no limit
+     */
+    @JsonInclude(Include.NON_DEFAULT)
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * @return the envelope of the messages in the files: <code>auto</code>, the default, <code>fin</code>,
+     * <code>rje</code>, <code>dospcc</code>, <code>lines</code> or <code>mx</code>, see {@link SwiftEnvelope}
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * @return how repeated tags are returned: <code>last</code>, the default, <code>array</code>
+     * or <code>rows</code>, see {@link SwiftRepeatedTags}
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getRepeatedTags() {
+        return repeatedTags;
+    }
+
+    /**
+     * @return the path of a BIC directory file on the local file system of each drillbit, whose attributes
+     * are added for the sender and receiver, such as <code>sender_name</code>, or null, see {@link SwiftBicDirectory}
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getBicDirectory() {
+        return bicDirectory;
+    }
+
+    /**
+     * @return the shape of the rows: <code>wide</code>, the default, for a row per message, or <code>long</code>
+     * for a row per field, see {@link SwiftOutputMode}
+     */
+    @JsonInclude(Include.NON_NULL)
+    public String getOutputMode() {
+        return outputMode;
+    }
+
+    /**
+     * @return true to read only the messages appended to each file since the previous scan, see
+     * {@link SwiftWatermark}
+     */
+    @JsonInclude(Include.NON_DEFAULT)
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * @return a copy of the config with the given header conditions, the other options being unchanged
+     */
+    public SwiftFormatConfig withHeaderFilter(List<String> messageTypes, List<String> senders, List<String> receivers,
+                                              String direction, String mirDateFrom, String mirDateTo) {
+        return new SwiftFormatConfig(extensions, messageTypes, senders, receivers, direction, mirDateFrom, mirDateTo,
+                messageIndex, schemaMode, parseThreads, queueDepth, errorMode, maxErrors, envelope, repeatedTags,
+                bicDirectory, outputMode, incremental);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -55,18 +281,54 @@ public class SwiftFormatConfig implements FormatPluginConfig {
             return false;
         }
         SwiftFormatConfig that = (SwiftFormatConfig) o;
-        return Objects.equals(extensions, that.extensions);
+        return Objects.equals(extensions, that.extensions)
+                && Objects.equals(messageTypes, that.messageTypes)
+                && Objects.equals(senders, that.senders)
+                && Objects.equals(receivers, that.receivers)
+                && Objects.equals(direction, that.direction)
+                && Objects.equals(mirDateFrom, that.mirDateFrom)
+                && Objects.equals(mirDateTo, that.mirDateTo)
+                && messageIndex == that.messageIndex
+                && Objects.equals(schemaMode, that.schemaMode)
+                && parseThreads == that.parseThreads
+                && queueDepth == that.queueDepth
+                && Objects.equals(errorMode, that.errorMode)
+                && maxErrors == that.maxErrors
+                && Objects.equals(envelope, that.envelope)
+                && Objects.equals(repeatedTags, that.repeatedTags)
+                && Objects.equals(bicDirectory, that.bicDirectory)
+                && Objects.equals(outputMode, that.outputMode)
+                && incremental == that.incremental;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(extensions);
+        return Objects.hash(extensions, messageTypes, senders, receivers, direction, mirDateFrom, mirDateTo, messageIndex,
+                schemaMode, parseThreads, queueDepth, errorMode, maxErrors, envelope, repeatedTags, bicDirectory, outputMode,
+                incremental);
     }
 
     @Override
     public String toString() {
         return new PlanStringBuilder(this)
                 .field("extensions", extensions)
+                .field("messageTypes", messageTypes)
+                .field("senders", senders)
+                .field("receivers", receivers)
+                .field("direction", direction)
+                .field("mirDateFrom", mirDateFrom)
+                .field("mirDateTo", mirDateTo)
+                .field("messageIndex", messageIndex)
+                .field("schemaMode", schemaMode)
+                .field("parseThreads", parseThreads)
+                .field("queueDepth", queueDepth)
+                .field("errorMode", errorMode)
+                .field("maxErrors", maxErrors)
+                .field("envelope", envelope)
+                .field("repeatedTags", repeatedTags)
+                .field("bicDirectory", bicDirectory)
+                .field("outputMode", outputMode)
+                .field("incremental", incremental)
                 .toString();
     }
 }
@@ -18,33 +18,60 @@
 
 package org.apache.drill.exec.store.swift;
 
+import org.apache.calcite.plan.RelOptRule;
 import org.apache.drill.common.logical.StoragePluginConfig;
 import org.apache.drill.common.types.TypeProtos;
 import org.apache.drill.common.types.Types;
+import org.apache.drill.exec.ops.OperatorMetricRegistry;
 import org.apache.drill.exec.physical.impl.scan.v3.file.FileReaderFactory;
 import org.apache.drill.exec.physical.impl.scan.v3.file.FileScanLifecycleBuilder;
 import org.apache.drill.exec.physical.impl.scan.v3.file.FileSchemaNegotiator;
 import org.apache.drill.exec.physical.impl.scan.v3.ManagedReader;
+import org.apache.drill.exec.physical.base.ScanStats;
+import org.apache.drill.exec.planner.PlannerPhase;
+import org.apache.drill.exec.planner.physical.PlannerSettings;
 import org.apache.drill.exec.server.DrillbitContext;
+import org.apache.drill.exec.store.dfs.DrillFileSystem;
 import org.apache.drill.exec.store.dfs.easy.EasyFormatPlugin;
+import org.apache.drill.exec.store.dfs.easy.EasyGroupScan;
 import org.apache.drill.exec.store.dfs.easy.EasySubScan;
+import org.apache.drill.exec.util.ImpersonationUtil;
 import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Set;
 
 
 public class SwiftFormatPlugin extends EasyFormatPlugin<SwiftFormatConfig> {
 
+    private static final Logger logger = LoggerFactory.getLogger(SwiftFormatPlugin.class);
+
     protected static final String DEFAULT_NAME = "swift";
+    public static final String OPERATOR_TYPE = "SWIFT_SUB_SCAN";
     private final DrillbitContext context;
+    private final SwiftStatistics statistics;
+
+    static {
+        // The profile looks up the names of the metrics of an operator by its type
+        OperatorMetricRegistry.register(OPERATOR_TYPE, SwiftBatchReader.Metric.class);
+    }
 
     private static class SwiftReaderFactory extends FileReaderFactory {
         private final SwiftFormatConfig config;
-        public SwiftReaderFactory(SwiftFormatConfig config) {
+        private final SwiftProjection projection;
+        private final int limit;
+
+        public SwiftReaderFactory(SwiftFormatConfig config, SwiftProjection projection, int limit) {
             this.config = config;
+            this.projection = projection;
+            this.limit = limit;
         }
 
         @Override
         public ManagedReader newReader(FileSchemaNegotiator negotiator) {
-            return new SwiftBatchReader(negotiator, config);
+            return new SwiftBatchReader(negotiator, config, projection, limit);
         }
     }
 
@@ -53,14 +80,30 @@ public class SwiftFormatPlugin extends EasyFormatPlugin<SwiftFormatConfig> {
                                 SwiftFormatConfig formatConfig) {
         super(name, easyConfig(fsConf, formatConfig), context, storageConfig, formatConfig);
         this.context = context;
+        this.statistics = new SwiftStatistics(formatConfig);
+    }
+
+    private SwiftFormatPlugin(SwiftFormatPlugin plugin, SwiftFormatConfig formatConfig) {
+        super(plugin.getName(), easyConfig(plugin.getFsConf(), formatConfig), plugin.context,
+                plugin.getStorageConfig(), formatConfig);
+        this.context = plugin.context;
+        this.statistics = plugin.statistics.withConfig(formatConfig);
+    }
+
+    /**
+     * @param formatConfig a copy of the format config with other header conditions
+     * @return a plugin for the config, which shares the estimates of the statistics of this plugin
+     */
+    public SwiftFormatPlugin withHeaderFilter(SwiftFormatConfig formatConfig) {
+        return new SwiftFormatPlugin(this, formatConfig);
     }
 
     private static EasyFormatConfig easyConfig(Configuration fsConf, SwiftFormatConfig pluginConfig) {
         return EasyFormatConfig.builder()
                 .readable(true)
                 .writable(false)
-                .blockSplittable(false)
-                .blockSplittable(false)
+                // An incremental scan reads each file from its watermark to its end
+                .blockSplittable(!pluginConfig.isIncremental())
                 .compressible(true)
                 .supportsProjectPushdown(true)
                 .extensions(pluginConfig.getExtensions())
@@ -68,12 +111,42 @@ public class SwiftFormatPlugin extends EasyFormatPlugin<SwiftFormatConfig> {
                 .defaultName(DEFAULT_NAME)
                 .scanVersion(ScanFrameworkVersion.EVF_V2)
                 .supportsLimitPushdown(true)
+                .scanOpType(OPERATOR_TYPE)
                 .build();
     }
 
+    /**
+     * Gives the planner the row count estimated by {@link SwiftStatistics} rather than one
+     * row per KB, so that joins with SWIFT data are planned on realistic cardinalities.
+     */
+    @Override
+    protected ScanStats getScanStats(PlannerSettings settings, EasyGroupScan scan) {
+        try {
+            DrillFileSystem fs = ImpersonationUtil.createFileSystem(scan.getUserName(), getFsConf());
+            return statistics.scanStats(fs, scan.getWorkIterable());
+        } catch (RuntimeException e) {
+            logger.debug("Unable to estimate the rows of the SWIFT scan", e);
+            return super.getScanStats(settings, scan);
+        }
+    }
+
+    /**
+     * Pushes the conditions of queries on the header columns into the scan, see {@link SwiftFilterPushDown}.
+     */
+    @Override
+    public Set<? extends RelOptRule> getOptimizerRules(PlannerPhase phase) {
+        if (phase == PlannerPhase.PHYSICAL) {
+            return Collections.singleton(SwiftFilterPushDown.INSTANCE);
+        }
+        return super.getOptimizerRules(phase);
+    }
+
     @Override
     protected void configureScan(FileScanLifecycleBuilder builder, EasySubScan scan) {
         builder.nullType(Types.optional(TypeProtos.MinorType.VARCHAR));
-        builder.readerFactory(new SwiftReaderFactory(formatConfig));
+        // The scan stops, and opens no more files, once the pushed limit is reached
+        builder.limit(scan.getLimit());
+        SwiftProjection projection = SwiftProjection.of(scan.getColumns(), formatConfig.getBicDirectory() != null);
+        builder.readerFactory(new SwiftReaderFactory(formatConfig, projection, scan.getLimit()));
     }
 }
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Selects messages on the fixed position fields of their basic and application
+ * headers: message type, sender, receiver, direction and MIR date. The fields are
+ * compared on the raw bytes of the message, so messages which do not match are
+ * skipped before anything is parsed or written.
+ * <p>
+ * Each condition is optional. A message matches when it satisfies all of the given
+ * conditions, and a message which does not have the header part a condition is
+ * about, such as the MIR date of an input message, does not match it.
+ */
+public class SwiftHeaderFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftHeaderFilter.class);
+
+    private static final int BIC8_LENGTH = 8;
+    private static final int BRANCH_OFFSET = 9;
+
+    private final byte[][] messageTypes;
+    private final byte[][] senders;
+    private final byte[][] receivers;
+    private final byte direction;
+    private final byte[] mirDateFrom;
+    private final byte[] mirDateTo;
+
+    /**
+     * @param messageTypes the message types, such as <code>103</code>, or null for any type
+     * @param senders the BIC8 or BIC11 of the senders, or null for any sender
+     * @param receivers the BIC8 or BIC11 of the receivers, or null for any receiver
+     * @param direction <code>I</code> or <code>input</code>, <code>O</code> or <code>output</code>, or null for both
+     * @param mirDateFrom the first MIR date, as YYMMDD, or null
+     * @param mirDateTo the last MIR date, as YYMMDD, or null
+     */
+    public SwiftHeaderFilter(List<String> messageTypes, List<String> senders, List<String> receivers,
+                             String direction, String mirDateFrom, String mirDateTo) {
+        this.messageTypes = toBytes(messageTypes);
+        this.senders = toBics(senders, "senders");
+        this.receivers = toBics(receivers, "receivers");
+        this.direction = direction == null || direction.isEmpty()
+                ? 0 : (byte) Character.toUpperCase(direction.charAt(0));
+        this.mirDateFrom = toBytes(mirDateFrom);
+        this.mirDateTo = toBytes(mirDateTo);
+    }
+
+    /**
+     * @return the filter described by the format config
+     */
+    public static SwiftHeaderFilter of(SwiftFormatConfig config) {
+        return new SwiftHeaderFilter(config.getMessageTypes(), config.getSenders(), config.getReceivers(),
+                config.getDirection(), config.getMirDateFrom(), config.getMirDateTo());
+    }
+
+    /**
+     * @return true if the filter has no condition and so matches every message
+     */
+    public boolean isEmpty() {
+        return messageTypes == null && senders == null && receivers == null && direction == 0
+                && mirDateFrom == null && mirDateTo == null;
+    }
+
+    /**
+     * @param buffer the buffer holding the message
+     * @param start the offset of the message in the buffer
+     * @param end the offset just past the end of the message
+     * @return true if the message satisfies all the conditions of the filter
+     */
+    public boolean matches(byte[] buffer, int start, int end) {
+        if (direction != 0) {
+            long range = SwiftHeaderPart.DIRECTION.locate(buffer, start, end);
+            if (range == SwiftHeaderPart.NOT_FOUND || buffer[SwiftHeaderPart.start(range)] != direction) {
+                return false;
+            }
+        }
+        if (messageTypes != null && !matchesAny(buffer, SwiftHeaderPart.MESSAGE_TYPE.locate(buffer, start, end),
+                messageTypes)) {
+            return false;
+        }
+        if (senders != null && !matchesBic(buffer, SwiftHeaderPart.SENDER.locate(buffer, start, end), senders)) {
+            return false;
+        }
+        if (receivers != null && !matchesBic(buffer, SwiftHeaderPart.RECEIVER.locate(buffer, start, end), receivers)) {
+            return false;
+        }
+        if (mirDateFrom != null || mirDateTo != null) {
+            return matchesMirDate(buffer, SwiftHeaderPart.MIR_DATE.locate(buffer, start, end));
+        }
+        return true;
+    }
+
+    /**
+     * Matches a message on the header fields held in its index entry.
+     *
+     * @param entry the index entry of the message
+     * @return true if the message satisfies all the conditions of the filter
+     */
+    public boolean matches(SwiftMessageIndex.Entry entry) {
+        byte[] fields = entry.fields();
+        if (direction != 0 && fields[SwiftMessageIndex.DIRECTION] != direction) {
+            return false;
+        }
+        if (messageTypes != null && !matchesAny(fields,
+                entry.range(SwiftMessageIndex.MESSAGE_TYPE, SwiftMessageIndex.MESSAGE_TYPE_LENGTH), messageTypes)) {
+            return false;
+        }
+        if (senders != null && !matchesBic(fields,
+                entry.range(SwiftMessageIndex.SENDER, SwiftMessageIndex.TERMINAL_LENGTH), senders)) {
+            return false;
+        }
+        if (receivers != null && !matchesBic(fields,
+                entry.range(SwiftMessageIndex.RECEIVER, SwiftMessageIndex.TERMINAL_LENGTH), receivers)) {
+            return false;
+        }
+        if (mirDateFrom != null || mirDateTo != null) {
+            return matchesMirDate(fields, entry.range(SwiftMessageIndex.MIR_DATE, SwiftMessageIndex.MIR_DATE_LENGTH));
+        }
+        return true;
+    }
+
+    private boolean matchesMirDate(byte[] buffer, long range) {
+        if (range == SwiftHeaderPart.NOT_FOUND) {
+            return false;
+        }
+        int start = SwiftHeaderPart.start(range);
+        int end = SwiftHeaderPart.end(range);
+        if (mirDateFrom != null && compare(buffer, start, end, mirDateFrom) < 0) {
+            return false;
+        }
+        return mirDateTo == null || compare(buffer, start, end, mirDateTo) <= 0;
+    }
+
+    private static boolean matchesAny(byte[] buffer, long range, byte[][] values) {
+        if (range == SwiftHeaderPart.NOT_FOUND) {
+            return false;
+        }
+        int start = SwiftHeaderPart.start(range);
+        int length = SwiftHeaderPart.end(range) - start;
+        for (byte[] value : values) {
+            if (value.length == length && regionEquals(buffer, start, value, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches a 12 character logical terminal address against BIC8 or BIC11 codes.
+     * The terminal code at position 9 of the address is not part of the BIC.
+     */
+    private static boolean matchesBic(byte[] buffer, long range, byte[][] bics) {
+        if (range == SwiftHeaderPart.NOT_FOUND) {
+            return false;
+        }
+        int start = SwiftHeaderPart.start(range);
+        for (byte[] bic : bics) {
+            if (!regionEquals(buffer, start, bic, 0, BIC8_LENGTH)) {
+                continue;
+            }
+            if (bic.length == BIC8_LENGTH
+                    || regionEquals(buffer, start + BRANCH_OFFSET, bic, BIC8_LENGTH, SwiftHeaderPart.BIC11_LENGTH - BIC8_LENGTH)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(byte[] buffer, int start, byte[] value, int valueStart, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[start + i] != value[valueStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compare(byte[] buffer, int start, int end, byte[] value) {
+        int length = Math.min(end - start, value.length);
+        for (int i = 0; i < length; i++) {
+            int diff = buffer[start + i] - value[i];
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (end - start) - value.length;
+    }
+
+    private static byte[][] toBytes(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        byte[][] bytes = new byte[values.size()][];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = toBytes(values.get(i));
+            if (bytes[i] == null) {
+                bytes[i] = new byte[0];
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[][] toBics(List<String> values, String option) {
+        byte[][] bics = toBytes(values);
+        if (bics != null) {
+            for (byte[] bic : bics) {
+                if (bic.length != BIC8_LENGTH && bic.length != SwiftHeaderPart.BIC11_LENGTH) {
+                    throw UserException
+                            .validationError()
+                            .message("Invalid BIC in the %s option of the SWIFT format: %s",
+                                    option, new String(bic, StandardCharsets.US_ASCII))
+                            .build(logger);
+                }
+            }
+        }
+        return bics;
+    }
+
+    private static byte[] toBytes(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().toUpperCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+    }
+}
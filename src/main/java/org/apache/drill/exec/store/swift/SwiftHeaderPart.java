@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import io.netty.buffer.DrillBuf;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The fixed position parts of the basic header (block 1) and application header
+ * (block 2). Their offsets within the block content are fixed by the FIN standard,
+ * and some depend on whether the message is an input or an output message, so a part
+ * can be located without parsing the message.
+ * <p>
+ * {@link #SENDER} and {@link #RECEIVER} locate the 12 character logical terminal
+ * address of the sender or receiver, from which the BIC11 is formed by dropping the
+ * terminal code at position 9.
+ */
+public enum SwiftHeaderPart {
+    APPLICATION_ID(1, 0, 1, 1, 0, 1),
+    SERVICE_ID(1, 1, 3, 1, 1, 3),
+    LOGICAL_TERMINAL(1, 3, 15, 1, 3, 15),
+    SESSION_NUMBER(1, 15, 19, 1, 15, 19),
+    SEQUENCE_NUMBER(1, 19, 25, 1, 19, 25),
+    DIRECTION(2, 0, 1, 2, 0, 1),
+    MESSAGE_TYPE(2, 1, 4, 2, 1, 4),
+    PRIORITY(2, 16, 17, 2, 46, 47),
+    RECEIVER_ADDRESS(2, 4, 16, 0, 0, 0),
+    DELIVERY_MONITORING(2, 17, 18, 0, 0, 0),
+    OBSOLESCENCE_PERIOD(2, 18, 21, 0, 0, 0),
+    SENDER_INPUT_TIME(0, 0, 0, 2, 4, 8),
+    MIR(0, 0, 0, 2, 8, 36),
+    MIR_DATE(0, 0, 0, 2, 8, 14),
+    MIR_LOGICAL_TERMINAL(0, 0, 0, 2, 14, 26),
+    MIR_SESSION_NUMBER(0, 0, 0, 2, 26, 30),
+    MIR_SEQUENCE_NUMBER(0, 0, 0, 2, 30, 36),
+    RECEIVER_OUTPUT_DATE(0, 0, 0, 2, 36, 42),
+    RECEIVER_OUTPUT_TIME(0, 0, 0, 2, 42, 46),
+    // The sender of an input message is the basic header terminal, of an output message the MIR terminal
+    SENDER(1, 3, 15, 2, 14, 26),
+    // The receiver of an input message is the destination address, of an output message the basic header terminal
+    RECEIVER(2, 4, 16, 1, 3, 15);
+
+    public static final int BIC11_LENGTH = 11;
+
+    /**
+     * Returned by the <code>locate</code> methods when the message does not have the part.
+     */
+    public static final long NOT_FOUND = -1;
+
+    private static final Map<String, SwiftHeaderPart> BY_NAME = new HashMap<>();
+
+    static {
+        for (SwiftHeaderPart part : values()) {
+            String name = part.name().toLowerCase(Locale.ROOT);
+            BY_NAME.put(name, part);
+            BY_NAME.put(part.inputBlock == 1 ? "block1_" + name : "block2_" + name, part);
+        }
+    }
+
+    // Block number and offsets within the block content for input and output messages. Block 0 means not applicable.
+    private final int inputBlock;
+    private final int inputStart;
+    private final int inputEnd;
+    private final int outputBlock;
+    private final int outputStart;
+    private final int outputEnd;
+
+    SwiftHeaderPart(int inputBlock, int inputStart, int inputEnd, int outputBlock, int outputStart, int outputEnd) {
+        this.inputBlock = inputBlock;
+        this.inputStart = inputStart;
+        this.inputEnd = inputEnd;
+        this.outputBlock = outputBlock;
+        this.outputStart = outputStart;
+        this.outputEnd = outputEnd;
+    }
+
+    /**
+     * @param name the part name, such as <code>mir_date</code> or <code>block2_mir_date</code>
+     * @return the part, or null if there is no such part
+     */
+    public static SwiftHeaderPart fromName(String name) {
+        return BY_NAME.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return true if the part is a logical terminal address to be returned as a BIC11
+     */
+    public boolean isBic() {
+        return this == SENDER || this == RECEIVER;
+    }
+
+    /**
+     * @return the start offset of a range returned by one of the <code>locate</code> methods
+     */
+    public static int start(long range) {
+        return (int) (range >>> 32);
+    }
+
+    /**
+     * @return the end offset of a range returned by one of the <code>locate</code> methods
+     */
+    public static int end(long range) {
+        return (int) range;
+    }
+
+    /**
+     * Locates the part in a message held in a byte array, using the block offsets found by the tokenizer.
+     *
+     * @param tokenizer the tokenizer holding the message
+     * @return the start and end offsets of the part in the buffer, or {@link #NOT_FOUND}
+     */
+    public long locate(SwiftTokenizer tokenizer) {
+        byte direction = tokenizer.hasBlock(2) && tokenizer.blockLength(2) > 0
+                ? tokenizer.buffer()[tokenizer.blockStart(2)] : 0;
+        int block = block(direction);
+        if (block == 0 || !tokenizer.hasBlock(block)) {
+            return NOT_FOUND;
+        }
+        return range(tokenizer.blockStart(block), tokenizer.blockEnd(block), direction);
+    }
+
+    /**
+     * Locates the part in a message held in a {@link DrillBuf}, without copying it. Blocks 1
+     * and 2 are at the front of the message, so only the first few bytes are read.
+     *
+     * @param buffer the buffer holding the message
+     * @param start the offset of the message in the buffer
+     * @param end the offset just past the end of the message
+     * @return the start and end offsets of the part in the buffer, or {@link #NOT_FOUND}
+     */
+    public long locate(DrillBuf buffer, int start, int end) {
+        return locate(buffer::getByte, start, end);
+    }
+
+    /**
+     * Locates the part in a message held in a byte array, without tokenizing it.
+     *
+     * @see #locate(DrillBuf, int, int)
+     */
+    public long locate(byte[] buffer, int start, int end) {
+        return locate(i -> buffer[i], start, end);
+    }
+
+    private long locate(ByteSource buffer, int start, int end) {
+        int block2 = blockStart(buffer, start, end, '2');
+        byte direction = block2 != -1 && block2 < end ? buffer.getByte(block2) : 0;
+        int block = block(direction);
+        if (block == 0) {
+            return NOT_FOUND;
+        }
+        int blockStart = block == 2 ? block2 : blockStart(buffer, start, end, '1');
+        if (blockStart == -1) {
+            return NOT_FOUND;
+        }
+        int blockEnd = blockStart;
+        while (blockEnd < end && buffer.getByte(blockEnd) != '}') {
+            blockEnd++;
+        }
+        return range(blockStart, blockEnd, direction);
+    }
+
+    private int block(byte direction) {
+        if (inputBlock == 1 && outputBlock == 1) {
+            return 1;
+        }
+        if (direction == 'I') {
+            return inputBlock;
+        } else if (direction == 'O') {
+            return outputBlock;
+        }
+        return 0;
+    }
+
+    private long range(int blockStart, int blockEnd, byte direction) {
+        boolean output = direction == 'O' && !(inputBlock == 1 && outputBlock == 1);
+        int partStart = blockStart + (output ? outputStart : inputStart);
+        int partEnd = blockStart + (output ? outputEnd : inputEnd);
+        if (partEnd > blockEnd) {
+            // Optional trailing parts, such as the priority, may be missing
+            return NOT_FOUND;
+        }
+        return ((long) partStart << 32) | partEnd;
+    }
+
+    /**
+     * Finds the content of block 1 or 2 by walking the top level blocks of the message.
+     *
+     * @return the offset just past <code>{n:</code>, or -1 if the block is missing
+     */
+    private static int blockStart(ByteSource buffer, int start, int end, char block) {
+        int pos = start;
+        while (pos + 2 < end) {
+            if (buffer.getByte(pos) != '{') {
+                pos++;
+                continue;
+            }
+            byte id = buffer.getByte(pos + 1);
+            if (id == block && buffer.getByte(pos + 2) == ':') {
+                return pos + 3;
+            }
+            if (id > block && id <= '5') {
+                // Blocks come in order, so the block is missing
+                return -1;
+            }
+            // Skip over the block and any nested tags
+            int depth = 0;
+            do {
+                byte b = buffer.getByte(pos++);
+                if (b == '{') {
+                    depth++;
+                } else if (b == '}') {
+                    depth--;
+                }
+            } while (depth > 0 && pos < end);
+        }
+        return -1;
+    }
+
+    /**
+     * The bytes of a message, held either on or off heap.
+     */
+    private interface ByteSource {
+        byte getByte(int index);
+    }
+}
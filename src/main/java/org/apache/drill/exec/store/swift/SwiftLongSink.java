@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.exec.physical.resultSet.RowSetLoader;
+import org.apache.drill.exec.vector.accessor.ScalarWriter;
+
+/**
+ * Writes each field to the current row as a key and value, for the long output mode,
+ * see {@link SwiftOutputMode#LONG}. The reader starts and saves a row around each field.
+ */
+public class SwiftLongSink implements SwiftFieldSink {
+
+    private final ScalarWriter messageIdWriter;
+    private final ScalarWriter blockWriter;
+    private final ScalarWriter tagWriter;
+    private final ScalarWriter labelWriter;
+    private final ScalarWriter valueWriter;
+    private final String path;
+
+    private long messageId;
+    private int block;
+    private String tag;
+
+    /**
+     * @param path the path of the file being read, which is part of the message ids
+     */
+    public SwiftLongSink(RowSetLoader rowWriter, String path) {
+        this.path = path;
+        this.messageIdWriter = rowWriter.scalar(SwiftOutputMode.MESSAGE_ID_COLUMN);
+        this.blockWriter = rowWriter.scalar(SwiftOutputMode.BLOCK_COLUMN);
+        this.tagWriter = rowWriter.scalar(SwiftOutputMode.TAG_COLUMN);
+        this.labelWriter = rowWriter.scalar(SwiftOutputMode.LABEL_COLUMN);
+        this.valueWriter = rowWriter.scalar(SwiftOutputMode.VALUE_COLUMN);
+    }
+
+    /**
+     * Starts the fields of a message.
+     *
+     * @param offset the offset of the message in the file, which identifies it within the file
+     */
+    public void message(long offset) {
+        this.messageId = SwiftOutputMode.messageId(path, offset);
+        this.block = 0;
+        this.tag = null;
+    }
+
+    @Override
+    public boolean needsSources() {
+        return true;
+    }
+
+    @Override
+    public void source(int block, String tag) {
+        this.block = block;
+        this.tag = tag;
+    }
+
+    @Override
+    public void string(String name, String value) {
+        messageIdWriter.setLong(messageId);
+        if (block != 0) {
+            blockWriter.setInt(block);
+        }
+        if (tag != null) {
+            tagWriter.setString(tag);
+        }
+        labelWriter.setString(name);
+        valueWriter.setString(value);
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.AutoCloseables;
+import org.apache.drill.exec.store.dfs.DrillFileSystem;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A sidecar index of the messages of a file split, which lets later scans of the same
+ * split read only the messages selected by a {@link SwiftHeaderFilter}, or count the
+ * messages without reading the file at all when malformed messages are returned as
+ * error rows, see {@link SwiftErrorMode#EMIT}.
+ * <p>
+ * The index of the split starting at offset <i>n</i> of <code>dir/file.fin</code> is
+ * held in the hidden file <code>dir/.file.fin.n.swiftidx</code>, which Drill does not
+ * list as part of the data. It is written by a scan that reads the whole split, and
+ * ignored as soon as the length or modification time of the file, or the bounds of
+ * the split, no longer match the ones it was built for.
+ * <p>
+ * The index is a header followed by one fixed size entry per message, holding its
+ * offset and length in the file, whether it was truncated, and its direction, message
+ * type, sender and receiver logical terminals, MIR date and UETR (block 3 tag 121).
+ * Missing fields are blank. A truncated message keeps the length that was read, so a
+ * scan through the index flags it just as the scan which read the file did.
+ */
+public class SwiftMessageIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftMessageIndex.class);
+
+    private static final String SUFFIX = ".swiftidx";
+    private static final int MAGIC = 0x53574958;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_MESSAGE_SIZE = 8 * 1024;
+    private static final byte BLANK = ' ';
+
+    // Offsets and lengths of the header fields of an entry
+    static final int DIRECTION = 0;
+    static final int MESSAGE_TYPE = 1;
+    static final int SENDER = 4;
+    static final int RECEIVER = 16;
+    static final int MIR_DATE = 28;
+    static final int UETR = 34;
+    static final int FIELDS_SIZE = 70;
+    static final int MESSAGE_TYPE_LENGTH = 3;
+    static final int TERMINAL_LENGTH = 12;
+    static final int MIR_DATE_LENGTH = 6;
+    static final int UETR_LENGTH = 36;
+
+    // Sizes of the header of the index and of an entry, which are fixed
+    static final int HEADER_SIZE = 2 * Integer.BYTES + 4 * Long.BYTES;
+    static final int ENTRY_SIZE = Long.BYTES + Integer.BYTES + 1 + FIELDS_SIZE;
+
+    /**
+     * @return the path of the index of the split starting at the given offset of the file
+     */
+    public static Path indexPath(Path file, long splitStart) {
+        return new Path(file.getParent(), "." + file.getName() + "." + splitStart + SUFFIX);
+    }
+
+    /**
+     * Opens the index of a split.
+     *
+     * @param fs the file system holding the file
+     * @param file the SWIFT file
+     * @param status the current status of the file
+     * @param splitStart the start offset of the split
+     * @param splitEnd the end offset of the split
+     * @param filter the filter selecting the messages to read, or null to read every message
+     * @param readMessages false if the caller only needs to count the messages
+     * @return the index, or null if there is no index matching the current state of the file
+     */
+    public static Reader open(DrillFileSystem fs, Path file, FileStatus status, long splitStart, long splitEnd,
+                              SwiftHeaderFilter filter, boolean readMessages) {
+        Path indexPath = indexPath(file, splitStart);
+        DataInputStream in = null;
+        try {
+            if (!fs.exists(indexPath)) {
+                return null;
+            }
+            in = new DataInputStream(new BufferedInputStream(fs.open(indexPath), BUFFER_SIZE));
+            if (in.readInt() != MAGIC
+                    || in.readInt() != VERSION
+                    || in.readLong() != status.getLen()
+                    || in.readLong() != status.getModificationTime()
+                    || in.readLong() != splitStart
+                    || in.readLong() != splitEnd) {
+                logger.debug("Ignoring stale SWIFT message index {}", indexPath);
+                AutoCloseables.closeSilently(in);
+                return null;
+            }
+            return new Reader(in, readMessages ? fs.open(file) : null, filter);
+        } catch (IOException e) {
+            logger.warn("Unable to read SWIFT message index {}", indexPath, e);
+            AutoCloseables.closeSilently(in);
+            return null;
+        }
+    }
+
+    /**
+     * Starts writing the index of a split. The index only replaces any existing one
+     * once it is committed, after the whole split has been read.
+     *
+     * @return the writer, or null if the index cannot be written, for instance in a read only directory
+     */
+    public static Writer create(DrillFileSystem fs, Path file, FileStatus status, long splitStart, long splitEnd) {
+        Path indexPath = indexPath(file, splitStart);
+        Path tmpPath = new Path(file.getParent(), indexPath.getName() + "." + UUID.randomUUID() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(fs.create(tmpPath, true), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(status.getLen());
+            out.writeLong(status.getModificationTime());
+            out.writeLong(splitStart);
+            out.writeLong(splitEnd);
+            return new Writer(fs, tmpPath, indexPath, out);
+        } catch (IOException e) {
+            logger.warn("Unable to create SWIFT message index {}", indexPath, e);
+            AutoCloseables.closeSilently(out);
+            deleteQuietly(fs, tmpPath);
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(DrillFileSystem fs, Path path) {
+        try {
+            fs.delete(path, false);
+        } catch (IOException e) {
+            logger.debug("Unable to delete {}", path, e);
+        }
+    }
+
+    /**
+     * The index entry of a message.
+     */
+    public static class Entry {
+        private long offset;
+        private int length;
+        private boolean truncated;
+        private final byte[] fields = new byte[FIELDS_SIZE];
+
+        /**
+         * Fills the entry from the raw bytes of a message.
+         */
+        public void set(long offset, byte[] buffer, int start, int end) {
+            set(offset, buffer, start, end, false);
+        }
+
+        /**
+         * Fills the entry from the raw bytes of a message, which only hold its start if it was truncated.
+         */
+        public void set(long offset, byte[] buffer, int start, int end, boolean truncated) {
+            this.offset = offset;
+            this.length = end - start;
+            this.truncated = truncated;
+            Arrays.fill(fields, BLANK);
+            copy(SwiftHeaderPart.DIRECTION, buffer, start, end, DIRECTION, 1);
+            copy(SwiftHeaderPart.MESSAGE_TYPE, buffer, start, end, MESSAGE_TYPE, MESSAGE_TYPE_LENGTH);
+            copy(SwiftHeaderPart.SENDER, buffer, start, end, SENDER, TERMINAL_LENGTH);
+            copy(SwiftHeaderPart.RECEIVER, buffer, start, end, RECEIVER, TERMINAL_LENGTH);
+            copy(SwiftHeaderPart.MIR_DATE, buffer, start, end, MIR_DATE, MIR_DATE_LENGTH);
+            copyUetr(buffer, start, end);
+        }
+
+        public long offset() {
+            return offset;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        /**
+         * @return true if the message was too large to be read in full
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        byte[] fields() {
+            return fields;
+        }
+
+        /**
+         * @return the range of a field in {@link #fields()}, in the form returned by
+         * {@link SwiftHeaderPart#locate(byte[], int, int)}, or {@link SwiftHeaderPart#NOT_FOUND} if it is blank
+         */
+        long range(int field, int fieldLength) {
+            return fields[field] == BLANK ? SwiftHeaderPart.NOT_FOUND : ((long) field << 32) | (field + fieldLength);
+        }
+
+        private void copy(SwiftHeaderPart part, byte[] buffer, int start, int end, int field, int fieldLength) {
+            long range = part.locate(buffer, start, end);
+            if (range != SwiftHeaderPart.NOT_FOUND) {
+                int partStart = SwiftHeaderPart.start(range);
+                System.arraycopy(buffer, partStart, fields, field,
+                        Math.min(fieldLength, SwiftHeaderPart.end(range) - partStart));
+            }
+        }
+
+        /**
+         * Copies the value of tag 121, which can only be found in block 3, in front of block 4.
+         */
+        private void copyUetr(byte[] buffer, int start, int end) {
+            for (int i = start; i + 4 < end; i++) {
+                if (buffer[i] != '{') {
+                    continue;
+                }
+                if (buffer[i + 1] == '4' && buffer[i + 2] == ':') {
+                    return;
+                }
+                if (buffer[i + 1] == '1' && buffer[i + 2] == '2' && buffer[i + 3] == '1' && buffer[i + 4] == ':') {
+                    int valueStart = i + 5;
+                    int valueEnd = valueStart;
+                    while (valueEnd < end && buffer[valueEnd] != '}') {
+                        valueEnd++;
+                    }
+                    System.arraycopy(buffer, valueStart, fields, UETR, Math.min(UETR_LENGTH, valueEnd - valueStart));
+                    return;
+                }
+            }
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeLong(offset);
+            out.writeInt(length);
+            out.writeBoolean(truncated);
+            out.write(fields);
+        }
+
+        void read(DataInput in) throws IOException {
+            offset = in.readLong();
+            length = in.readInt();
+            truncated = in.readBoolean();
+            in.readFully(fields);
+        }
+    }
+
+    /**
+     * Writes the index of a split as its messages are read.
+     */
+    public static class Writer implements AutoCloseable {
+        private final DrillFileSystem fs;
+        private final Path tmpPath;
+        private final Path indexPath;
+        private final DataOutputStream out;
+        private final Entry entry = new Entry();
+        private boolean committed;
+
+        private Writer(DrillFileSystem fs, Path tmpPath, Path indexPath, DataOutputStream out) {
+            this.fs = fs;
+            this.tmpPath = tmpPath;
+            this.indexPath = indexPath;
+            this.out = out;
+        }
+
+        public void add(long offset, byte[] buffer, int length, boolean truncated) throws IOException {
+            entry.set(offset, buffer, 0, length, truncated);
+            entry.write(out);
+        }
+
+        /**
+         * Replaces the index of the split with the one just written.
+         */
+        public void commit() throws IOException {
+            out.close();
+            fs.delete(indexPath, false);
+            if (!fs.rename(tmpPath, indexPath)) {
+                throw new IOException("Unable to rename " + tmpPath + " to " + indexPath);
+            }
+            committed = true;
+            logger.debug("Wrote SWIFT message index {}", indexPath);
+        }
+
+        /**
+         * Drops the index unless it was committed, as when a query stops before the end of the split.
+         */
+        @Override
+        public void close() {
+            if (!committed) {
+                AutoCloseables.closeSilently(out);
+                deleteQuietly(fs, tmpPath);
+            }
+        }
+    }
+
+    /**
+     * Reads the messages of a split through its index. Messages rejected by the filter
+     * are skipped without reading the file, and when the messages are only counted the
+     * file is not read at all and {@link #buffer()} does not hold the message.
+     */
+    public static class Reader implements SwiftMessageSource, AutoCloseable {
+        private final DataInputStream index;
+        private final FSDataInputStream file;
+        private final SwiftHeaderFilter filter;
+        private final Entry entry = new Entry();
+        private byte[] message = new byte[INITIAL_MESSAGE_SIZE];
+
+        private Reader(DataInputStream index, FSDataInputStream file, SwiftHeaderFilter filter) {
+            this.index = index;
+            this.file = file;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            do {
+                try {
+                    entry.read(index);
+                } catch (EOFException e) {
+                    return false;
+                }
+            } while (filter != null && !filter.matches(entry));
+
+            if (file != null) {
+                if (message.length < entry.length()) {
+                    message = new byte[Math.max(entry.length(), message.length * 2)];
+                }
+                file.readFully(entry.offset(), message, 0, entry.length());
+            }
+            return true;
+        }
+
+        /**
+         * @return the entry of the current message
+         */
+        Entry entry() {
+            return entry;
+        }
+
+        @Override
+        public byte[] buffer() {
+            return message;
+        }
+
+        @Override
+        public int length() {
+            return entry.length();
+        }
+
+        @Override
+        public long offset() {
+            return entry.offset();
+        }
+
+        @Override
+        public boolean isTruncated() {
+            return entry.isTruncated();
+        }
+
+        @Override
+        public void close() {
+            AutoCloseables.closeSilently(index, file);
+        }
+    }
+}
@@ -0,0 +1,744 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import com.prowidesoftware.swift.model.BIC;
+import com.prowidesoftware.swift.model.SwiftBlock1;
+import com.prowidesoftware.swift.model.SwiftBlock2;
+import com.prowidesoftware.swift.model.SwiftBlock2Input;
+import com.prowidesoftware.swift.model.SwiftBlock2Output;
+import com.prowidesoftware.swift.model.SwiftBlock3;
+import com.prowidesoftware.swift.model.SwiftMessage;
+import com.prowidesoftware.swift.model.Tag;
+import com.prowidesoftware.swift.model.field.AmountContainer;
+import com.prowidesoftware.swift.model.field.CurrencyContainer;
+import com.prowidesoftware.swift.model.field.DateContainer;
+import com.prowidesoftware.swift.model.field.Field;
+import io.netty.buffer.DrillBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Parses FIN messages held in a byte buffer, using {@link SwiftTokenizer} to locate
+ * the blocks and tags. Prowide is only used for what needs SWIFT semantics: the
+ * header blocks, labels and the display value of projected fields. A parser holds
+ * reusable state and is meant to be created once per reader or function instance.
+ * <p>
+ * A tag repeated in a message is passed to the sink once, with its last value, unless
+ * the parser returns repeated tags as arrays or as entries, see {@link SwiftRepeatedTags}.
+ * Sinks which return where each field comes from are told the block and tag before
+ * their fields, see {@link SwiftFieldSink#needsSources()}.
+ */
+public class SwiftMessageParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftMessageParser.class);
+
+    private static final int INITIAL_SCRATCH_SIZE = 8 * 1024;
+    private static final int INITIAL_TAG_COUNT = 64;
+    private static final int INITIAL_ENTRY_COUNT = 16;
+
+    /**
+     * Precision and scale of the typed amount columns. FIN amounts have at most 15 digits.
+     */
+    public static final int AMOUNT_PRECISION = 38;
+    public static final int AMOUNT_SCALE = 4;
+
+    // Components of the columns of a tag
+    private static final int LABEL = SwiftFieldLabels.Column.LABEL;
+    private static final int DATE = SwiftFieldLabels.Column.DATE;
+    private static final int CURRENCY = SwiftFieldLabels.Column.CURRENCY;
+    private static final int AMOUNT = SwiftFieldLabels.Column.AMOUNT;
+
+    private final SwiftTokenizer tokenizer = new SwiftTokenizer();
+    private final SwiftProjection projection;
+    private final Locale locale;
+    private byte[] scratch;
+    private String error;
+    private SwiftFieldLabels labels;
+    private final SwiftRepeatedTags repeatedTags;
+
+    // Tags passed to the sink, and the entry of each tag or -1, for the last parsed message
+    private boolean[] tagWritten = new boolean[INITIAL_TAG_COUNT];
+    // True if the sink of the current call is told the block and tag of the fields
+    private boolean sources;
+    // True if the sink of the current call is told the index of the column of each tag field
+    private boolean columns;
+    private int[] tagEntry = new int[INITIAL_TAG_COUNT];
+    // Prowide field and display value of each tag passed to the sink, decoded before any field is passed
+    private Field[] tagField = new Field[INITIAL_TAG_COUNT];
+    private String[] tagDisplay = new String[INITIAL_TAG_COUNT];
+    private final Set<String> seenLabels = new HashSet<>();
+    private final Set<String> seenEntryLabels = new HashSet<>();
+    private int entryCount;
+    private int[] entryStart = new int[INITIAL_ENTRY_COUNT];
+    private int[] entryEnd = new int[INITIAL_ENTRY_COUNT];
+
+    public SwiftMessageParser(SwiftProjection projection) {
+        this(projection, Locale.getDefault());
+    }
+
+    public SwiftMessageParser(SwiftProjection projection, Locale locale) {
+        this(projection, locale, SwiftRepeatedTags.LAST);
+    }
+
+    public SwiftMessageParser(SwiftProjection projection, Locale locale, SwiftRepeatedTags repeatedTags) {
+        this.projection = projection;
+        this.locale = locale;
+        this.repeatedTags = repeatedTags;
+    }
+
+    /**
+     * @return the tokenizer, which holds the offsets of the last parsed message
+     */
+    public SwiftTokenizer tokenizer() {
+        return tokenizer;
+    }
+
+    /**
+     * @return the reason the last message could not be parsed
+     */
+    public String error() {
+        return error;
+    }
+
+    /**
+     * Parses a message held in a {@link DrillBuf}, such as the input of a UDF.
+     * The bytes are copied once into a scratch buffer reused across calls.
+     *
+     * @return true if the message was parsed, false if it is malformed
+     */
+    public boolean parse(DrillBuf buffer, int start, int end, SwiftFieldSink sink) {
+        int length = copy(buffer, start, end);
+        return parse(scratch, 0, length, sink);
+    }
+
+    /**
+     * Tokenizes a message held in a {@link DrillBuf} without parsing any field. The offsets
+     * held by {@link #tokenizer()} are then relative to <code>start</code>.
+     *
+     * @return true if the message is well formed
+     */
+    public boolean tokenize(DrillBuf buffer, int start, int end) {
+        int length = copy(buffer, start, end);
+        return tokenizer.tokenize(scratch, 0, length);
+    }
+
+    /**
+     * Checks a message the way {@link #parse} checks it when every column is projected:
+     * its blocks must be well formed and its header blocks must be valid. No field is
+     * decoded, so counting the messages which would be returned is much cheaper than
+     * parsing them.
+     *
+     * @param buffer the buffer holding the message
+     * @param offset the offset of the message in the buffer
+     * @param length the length of the message
+     * @return true if the message would be parsed, false if it is malformed
+     */
+    public boolean check(byte[] buffer, int offset, int length) {
+        error = null;
+        entryCount = 0;
+        if (!tokenizer.tokenize(buffer, offset, length)) {
+            error = tokenizer.error();
+            return false;
+        }
+        try {
+            new SwiftBlock1(blockValue(1), true);
+            if (tokenizer.hasBlock(2)) {
+                createBlock2();
+            }
+        } catch (RuntimeException e) {
+            error = "Invalid header block: " + e.getMessage();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a message and passes its projected fields to the sink. A malformed message is
+     * rejected before any of its fields is passed to the sink, including a field which
+     * Prowide cannot decode.
+     *
+     * @param buffer the buffer holding the message
+     * @param offset the offset of the message in the buffer
+     * @param length the length of the message
+     * @param sink receives the projected fields
+     * @return true if the message was parsed, false if it is malformed
+     */
+    public boolean parse(byte[] buffer, int offset, int length, SwiftFieldSink sink) {
+        error = null;
+        entryCount = 0;
+        sources = sink.needsSources();
+        columns = sink.needsColumns();
+        if (!tokenizer.tokenize(buffer, offset, length)) {
+            error = tokenizer.error();
+            return false;
+        }
+
+        boolean needsMessage = projection.isProjected("sender")
+                || projection.isProjected("receiver")
+                || projection.isProjected("uuid")
+                || projection.projectsCorrespondentBIC();
+
+        SwiftBlock1 block1 = null;
+        SwiftBlock2 block2 = null;
+        try {
+            if (projection.projectsBlock1() || needsMessage) {
+                block1 = new SwiftBlock1(blockValue(1), true);
+            }
+            if ((projection.projectsBlock2() || needsMessage) && tokenizer.hasBlock(2)) {
+                block2 = createBlock2();
+            }
+        } catch (RuntimeException e) {
+            error = "Invalid header block: " + e.getMessage();
+            return false;
+        }
+
+        String messageType = messageType();
+
+        // Blocks 3 and 4 - tags are named after their label
+        if (projection.projectsTags() || repeatedTags == SwiftRepeatedTags.ROWS) {
+            if (labels == null || !Objects.equals(labels.messageType(), messageType)) {
+                labels = SwiftFieldLabels.forMessageType(messageType, locale);
+            }
+            markTags(messageType);
+        }
+        if (projection.projectsTags() && !decodeTags()) {
+            entryCount = 0;
+            return false;
+        }
+
+        if (sources) {
+            sink.source(0, null);
+        }
+        if (needsMessage) {
+            SwiftMessage swiftMessage = new SwiftMessage();
+            swiftMessage.setBlock1(block1);
+            swiftMessage.setBlock2(block2);
+            if (tokenizer.hasBlock(3)) {
+                swiftMessage.setBlock3(createBlock3());
+            }
+            put(sink, "sender", swiftMessage.getSender());
+            put(sink, "receiver", swiftMessage.getReceiver());
+            String uuid = projection.isProjected("uuid") ? swiftMessage.getUUID() : null;
+            if (uuid != null) {
+                sink.string("UUID", uuid);
+            }
+
+            // Process the BIC
+            if (projection.projectsCorrespondentBIC()) {
+                BIC correspondentBIC = swiftMessage.getCorrespondentBIC();
+                if (correspondentBIC != null) {
+                    processBIC("correspondent_bic", correspondentBIC, sink);
+                }
+            }
+        }
+        put(sink, "message_type", messageType);
+        if (projection.isProjected("block_count")) {
+            sink.string("block_count", String.valueOf(tokenizer.blockCount()));
+        }
+
+        // Parse block 1
+        if (projection.projectsBlock1()) {
+            if (sources) {
+                sink.source(1, null);
+            }
+            put(sink, "block1_name", block1.getName());
+            put(sink, "block1_application_id", block1.getApplicationId());
+            put(sink, "block1_service_id", block1.getServiceId());
+            put(sink, "block1_logical_terminal", block1.getLogicalTerminal());
+            put(sink, "block1_session_number", block1.getSessionNumber());
+            put(sink, "block1_sequence_number", block1.getSequenceNumber());
+        }
+
+        // Parse block 2 - can be Input or Output type
+        if (projection.projectsBlock2() && block2 != null) {
+            if (sources) {
+                sink.source(2, null);
+            }
+            processBlock2(block2, sink);
+        }
+
+        if (projection.projectsTags()) {
+            boolean arrays = repeatedTags == SwiftRepeatedTags.ARRAY;
+            for (int i = 0; i < tokenizer.tagCount(); i++) {
+                int block = tokenizer.tagBlock(i);
+                if (arrays && block == 4) {
+                    processTag(i, sink, true);
+                } else if (tagWritten[i] && tagEntry[i] == -1) {
+                    processTag(i, sink, false);
+                }
+            }
+        }
+
+        // Parse block 5 - Trailer block with system information
+        if (projection.projectsBlock5() && tokenizer.hasBlock(5)) {
+            processBlock5(sink);
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of entries of the repeating sequence in the last parsed message,
+     * which is always 0 unless the parser returns repeated tags as rows
+     */
+    public int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Passes the projected tags of an entry of the last parsed message to the sink. The
+     * fields of the message outside of the entries were passed by {@link #parse}, which
+     * also decoded the values of the entries. The tag names are read from the buffer of
+     * the message, which must not have changed.
+     *
+     * @param entry the entry, from 0 to {@link #entryCount()} excluded
+     */
+    public void writeEntry(int entry, SwiftFieldSink sink) {
+        if (!projection.projectsTags()) {
+            return;
+        }
+        sources = sink.needsSources();
+        for (int i = entryStart[entry]; i < entryEnd[entry]; i++) {
+            if (tagWritten[i]) {
+                processTag(i, sink, false);
+            }
+        }
+    }
+
+    /**
+     * Works out which tags of blocks 3 and 4 are passed to the sink. In the rows mode, the
+     * block 4 tags of the repeating sequence of the message type are first grouped into
+     * entries. A label repeated in the message, or in an entry, then only keeps its last
+     * occurrence, which is found by walking the tags backwards.
+     */
+    private void markTags(String messageType) {
+        int tagCount = tokenizer.tagCount();
+        if (tagWritten.length < tagCount) {
+            int newSize = Math.max(tagCount, tagWritten.length * 2);
+            tagWritten = new boolean[newSize];
+            tagEntry = new int[newSize];
+            tagField = new Field[newSize];
+            tagDisplay = new String[newSize];
+        }
+
+        String[] sequence = repeatedTags == SwiftRepeatedTags.ROWS ? SwiftRepeatedTags.sequence(messageType) : null;
+        int entry = -1;
+        for (int i = 0; i < tagCount; i++) {
+            if (sequence != null && tokenizer.tagBlock(i) == 4) {
+                if (tokenizer.tagNameEquals(i, sequence[0])) {
+                    entry = addEntry(i);
+                } else if (entry != -1 && !inSequence(i, sequence)) {
+                    entry = -1;
+                }
+            }
+            tagEntry[i] = entry;
+            if (entry != -1) {
+                entryEnd[entry] = i + 1;
+            }
+        }
+
+        seenLabels.clear();
+        seenEntryLabels.clear();
+        int currentEntry = -1;
+        for (int i = tagCount - 1; i >= 0; i--) {
+            int block = tokenizer.tagBlock(i);
+            if (block != 3 && block != 4) {
+                tagWritten[i] = false;
+                continue;
+            }
+            String label = labels.columnName(tokenizer.buffer(), tokenizer.tagNameStart(i), tokenizer.tagNameEnd(i));
+            if (tagEntry[i] == -1) {
+                tagWritten[i] = seenLabels.add(label);
+            } else {
+                if (tagEntry[i] != currentEntry) {
+                    currentEntry = tagEntry[i];
+                    seenEntryLabels.clear();
+                }
+                tagWritten[i] = seenEntryLabels.add(label);
+            }
+        }
+    }
+
+    private int addEntry(int tag) {
+        if (entryCount == entryStart.length) {
+            entryStart = Arrays.copyOf(entryStart, entryCount * 2);
+            entryEnd = Arrays.copyOf(entryEnd, entryCount * 2);
+        }
+        entryStart[entryCount] = tag;
+        entryEnd[entryCount] = tag + 1;
+        return entryCount++;
+    }
+
+    private boolean inSequence(int tag, String[] sequence) {
+        for (String name : sequence) {
+            if (tokenizer.tagNameEquals(tag, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void processBlock2(SwiftBlock2 block2, SwiftFieldSink sink) {
+        // Common fields from SwiftBlock2
+        put(sink, "block2_name", block2.getName());
+        put(sink, "block2_block_value", block2.getBlockValue());
+        put(sink, "block2_message_type", block2.getMessageType());
+        put(sink, "block2_message_priority", block2.getMessagePriority());
+        put(sink, "block2_is_input", String.valueOf(block2.isInput()));
+        put(sink, "block2_is_output", String.valueOf(block2.isOutput()));
+        put(sink, "block2_direction", block2.isInput() ? "Input" : "Output");
+
+        if (block2 instanceof SwiftBlock2Input) {
+            SwiftBlock2Input input = (SwiftBlock2Input) block2;
+            // Full block value
+            put(sink, "block2_input_value", input.getValue());
+            // Receiver/destination
+            put(sink, "block2_receiver_address", input.getReceiverAddress());
+            // Delivery options
+            put(sink, "block2_delivery_monitoring", input.getDeliveryMonitoring());
+            put(sink, "block2_obsolescence_period", input.getObsolescencePeriod());
+            // Derived delivery monitoring description
+            String dm = input.getDeliveryMonitoring();
+            if (dm != null && projection.isProjected("block2_delivery_monitoring_desc")) {
+                String dmDesc;
+                switch (dm) {
+                    case "1": dmDesc = "Non-Delivery Warning"; break;
+                    case "2": dmDesc = "Delivery Notification"; break;
+                    case "3": dmDesc = "Non-Delivery Warning and Delivery Notification"; break;
+                    default: dmDesc = dm;
+                }
+                sink.string("block2_delivery_monitoring_desc", dmDesc);
+            }
+            processPriority(input.getMessagePriority(), sink);
+        } else if (block2 instanceof SwiftBlock2Output) {
+            SwiftBlock2Output output = (SwiftBlock2Output) block2;
+            // Full block value
+            put(sink, "block2_output_value", output.getValue());
+            // Sender information
+            put(sink, "block2_sender_input_time", output.getSenderInputTime());
+            // MIR (Message Input Reference) - complete and components
+            put(sink, "block2_mir", output.getMIR());
+            put(sink, "block2_mir_date", output.getMIRDate());
+            put(sink, "block2_mir_logical_terminal", output.getMIRLogicalTerminal());
+            put(sink, "block2_mir_session_number", output.getMIRSessionNumber());
+            put(sink, "block2_mir_sequence_number", output.getMIRSequenceNumber());
+            // Receiver output information
+            put(sink, "block2_receiver_output_date", output.getReceiverOutputDate());
+            put(sink, "block2_receiver_output_time", output.getReceiverOutputTime());
+            processPriority(output.getMessagePriority(), sink);
+        }
+    }
+
+    private void processPriority(String priority, SwiftFieldSink sink) {
+        if (priority != null && projection.isProjected("block2_priority_desc")) {
+            String priorityDesc;
+            switch (priority) {
+                case "S": priorityDesc = "System"; break;
+                case "U": priorityDesc = "Urgent"; break;
+                case "N": priorityDesc = "Normal"; break;
+                default: priorityDesc = priority;
+            }
+            sink.string("block2_priority_desc", priorityDesc);
+        }
+    }
+
+    /**
+     * Decodes the values of the tags of blocks 3 and 4 which {@link #parse} and
+     * {@link #writeEntry} pass to the sink. The label only depends on the tag name, so
+     * unprojected tags are skipped before the value is decoded.
+     *
+     * @return true if every value was decoded, false if Prowide could not decode one of them
+     */
+    private boolean decodeTags() {
+        boolean arrays = repeatedTags == SwiftRepeatedTags.ARRAY;
+        for (int i = 0; i < tokenizer.tagCount(); i++) {
+            tagField[i] = null;
+            tagDisplay[i] = null;
+            if (!tagWritten[i] && !(arrays && tokenizer.tagBlock(i) == 4)) {
+                continue;
+            }
+            SwiftFieldLabels.Column column = labels.column(tokenizer.buffer(), tokenizer.tagNameStart(i),
+                    tokenizer.tagNameEnd(i));
+            if (!isProjected(column)) {
+                continue;
+            }
+            String name = tokenizer.tagName(i);
+            String value = tokenizer.tagValue(i);
+            try {
+                Field field = Field.getField(name, value);
+                tagField[i] = field;
+                tagDisplay[i] = field == null ? value : field.getValueDisplay(locale);
+            } catch (RuntimeException e) {
+                error = "Invalid field " + name + ": " + e.getMessage();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isProjected(SwiftFieldLabels.Column column) {
+        return projection.isProjected(column.name(LABEL)) || isTypedProjected(column);
+    }
+
+    private boolean isTypedProjected(SwiftFieldLabels.Column column) {
+        return projection.isProjected(column.name(DATE))
+                || projection.isProjected(column.name(CURRENCY))
+                || projection.isProjected(column.name(AMOUNT));
+    }
+
+    /**
+     * Adds a block 3 or block 4 tag under its label, with the value decoded by
+     * {@link #decodeTags()}. Composite fields with a date, currency or amount component
+     * also get typed columns named after the label, such as <code>&lt;label&gt;_amount</code>.
+     *
+     * @param array true to pass the values as elements of arrays
+     */
+    private void processTag(int tag, SwiftFieldSink sink, boolean array) {
+        SwiftFieldLabels.Column column = labels.column(tokenizer.buffer(), tokenizer.tagNameStart(tag),
+                tokenizer.tagNameEnd(tag));
+        String label = column.name(LABEL);
+        boolean labelProjected = projection.isProjected(label);
+        boolean typedProjected = isTypedProjected(column);
+        if (!labelProjected && !typedProjected) {
+            return;
+        }
+        if (sources) {
+            sink.source(tokenizer.tagBlock(tag), tokenizer.tagName(tag));
+        }
+        Field field = tagField[tag];
+        if (field != null && typedProjected) {
+            processTypedComponents(field, column, sink, array);
+        }
+        String value = tagDisplay[tag];
+        if (labelProjected && value != null) {
+            announce(sink, column, LABEL);
+            if (array) {
+                sink.stringElement(label, value);
+            } else {
+                sink.string(label, value);
+            }
+        }
+    }
+
+    /**
+     * Tells the sink the index of the column of the next field, if it keeps its columns by index.
+     */
+    private void announce(SwiftFieldSink sink, SwiftFieldLabels.Column column, int component) {
+        int index = column.index(component);
+        if (columns && index != -1) {
+            sink.column(labels, index);
+        }
+    }
+
+    /**
+     * Converts the date, currency and amount components of a field once, at scan time,
+     * using the Prowide field model.
+     */
+    private void processTypedComponents(Field field, SwiftFieldLabels.Column column, SwiftFieldSink sink, boolean array) {
+        try {
+            if (field instanceof DateContainer && projection.isProjected(column.name(DATE))) {
+                List<Calendar> dates = ((DateContainer) field).dates();
+                if (dates != null && !dates.isEmpty() && dates.get(0) != null) {
+                    Calendar calendar = dates.get(0);
+                    LocalDate date = LocalDate.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                            calendar.get(Calendar.DAY_OF_MONTH));
+                    announce(sink, column, DATE);
+                    if (array) {
+                        sink.dateElement(column.name(DATE), date);
+                    } else {
+                        sink.date(column.name(DATE), date);
+                    }
+                }
+            }
+            if (field instanceof CurrencyContainer && projection.isProjected(column.name(CURRENCY))) {
+                List<String> currencies = ((CurrencyContainer) field).currencyStrings();
+                if (currencies != null && !currencies.isEmpty() && currencies.get(0) != null) {
+                    announce(sink, column, CURRENCY);
+                    if (array) {
+                        sink.stringElement(column.name(CURRENCY), currencies.get(0));
+                    } else {
+                        sink.string(column.name(CURRENCY), currencies.get(0));
+                    }
+                }
+            }
+            if (field instanceof AmountContainer && projection.isProjected(column.name(AMOUNT))) {
+                BigDecimal amount = ((AmountContainer) field).amount();
+                if (amount != null) {
+                    BigDecimal scaled = amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+                    announce(sink, column, AMOUNT);
+                    if (array) {
+                        sink.decimalElement(column.name(AMOUNT), scaled);
+                    } else {
+                        sink.decimal(column.name(AMOUNT), scaled);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // A malformed component leaves the typed columns empty, the text value is still available
+            logger.debug("Unable to convert the components of field {}", field.getName(), e);
+        }
+    }
+
+    private void processBlock5(SwiftFieldSink sink) {
+        // Block-level properties
+        int tagCount = 0;
+        for (int i = 0; i < tokenizer.tagCount(); i++) {
+            if (tokenizer.tagBlock(i) == 5) {
+                tagCount++;
+            }
+        }
+        if (sources) {
+            sink.source(5, null);
+        }
+        put(sink, "block5_name", "5");
+        put(sink, "block5_tag_count", String.valueOf(tagCount));
+        put(sink, "block5_is_empty", String.valueOf(tagCount == 0));
+
+        for (int i = 0; i < tokenizer.tagCount(); i++) {
+            if (tokenizer.tagBlock(i) != 5) {
+                continue;
+            }
+            String value = null;
+            if (sources) {
+                sink.source(5, tokenizer.tagName(i));
+            }
+
+            // Well-known trailer tags
+            if (tokenizer.tagNameEquals(i, "MAC")) {
+                // MAC - Message Authentication Code
+                value = putTrailer(sink, i, "block5_mac", null, null);
+            } else if (tokenizer.tagNameEquals(i, "CHK")) {
+                // CHK - Checksum
+                value = putTrailer(sink, i, "block5_chk", null, null);
+            } else if (tokenizer.tagNameEquals(i, "PDE")) {
+                // PDE - Possible Duplicate Emission
+                value = putTrailer(sink, i, "block5_pde", "block5_pde_desc", "Possible Duplicate Emission");
+            } else if (tokenizer.tagNameEquals(i, "PDM")) {
+                // PDM - Possible Duplicate Message
+                value = putTrailer(sink, i, "block5_pdm", "block5_pdm_desc", "Possible Duplicate Message");
+            } else if (tokenizer.tagNameEquals(i, "DLM")) {
+                // DLM - Delayed Message
+                value = putTrailer(sink, i, "block5_dlm", "block5_dlm_desc", "Delayed Message");
+            } else if (tokenizer.tagNameEquals(i, "MRF")) {
+                // MRF - Message Reference
+                value = putTrailer(sink, i, "block5_mrf", null, null);
+            } else if (tokenizer.tagNameEquals(i, "TNG")) {
+                // TNG - Training
+                value = putTrailer(sink, i, "block5_tng", "block5_tng_desc", "Training Message");
+            } else if (tokenizer.tagNameEquals(i, "SYS")) {
+                // SYS - System Originated Message
+                value = putTrailer(sink, i, "block5_sys", "block5_sys_desc", "System Originated Message");
+            }
+
+            // Also capture every tag, including additional/custom tags, under a block5_tag_ prefix
+            String fieldName = "block5_tag_" + tokenizer.tagName(i).toLowerCase();
+            if (projection.isProjected(fieldName)) {
+                sink.string(fieldName, value != null ? value : tokenizer.tagValue(i));
+            }
+        }
+    }
+
+    private String putTrailer(SwiftFieldSink sink, int tag, String fieldName, String descName, String desc) {
+        String value = null;
+        if (projection.isProjected(fieldName)) {
+            value = tokenizer.tagValue(tag);
+            sink.string(fieldName, value);
+        }
+        if (descName != null && projection.isProjected(descName)) {
+            sink.string(descName, desc);
+        }
+        return value;
+    }
+
+    private void processBIC(String fieldPrefix, BIC bic, SwiftFieldSink sink) {
+        String bicFieldName = fieldPrefix + "_";
+        put(sink, bicFieldName + "bic", bic.getBic8());
+        put(sink, bicFieldName + "bic11", bic.getBic11());
+        put(sink, bicFieldName + "institution", bic.getInstitution());
+        put(sink, bicFieldName + "country", bic.getCountry());
+        put(sink, bicFieldName + "location", bic.getLocation());
+        put(sink, bicFieldName + "banch", bic.getBranch());
+    }
+
+    /**
+     * @return the message type from block 2, such as <code>103</code>, or null if there is no block 2
+     */
+    private String messageType() {
+        if (!tokenizer.hasBlock(2) || tokenizer.blockLength(2) < 4) {
+            return null;
+        }
+        int start = tokenizer.blockStart(2) + 1;
+        return tokenizer.string(start, start + 3);
+    }
+
+    private int copy(DrillBuf buffer, int start, int end) {
+        int length = end - start;
+        if (scratch == null || scratch.length < length) {
+            scratch = new byte[Math.max(length, INITIAL_SCRATCH_SIZE)];
+        }
+        buffer.getBytes(start, scratch, 0, length);
+        return length;
+    }
+
+    private String blockValue(int block) {
+        return tokenizer.string(tokenizer.blockStart(block), tokenizer.blockEnd(block));
+    }
+
+    private SwiftBlock2 createBlock2() {
+        String value = blockValue(2);
+        if (value.startsWith("I")) {
+            return new SwiftBlock2Input(value, true);
+        } else if (value.startsWith("O")) {
+            return new SwiftBlock2Output(value, true);
+        }
+        return null;
+    }
+
+    private SwiftBlock3 createBlock3() {
+        SwiftBlock3 block3 = new SwiftBlock3();
+        for (int i = 0; i < tokenizer.tagCount(); i++) {
+            if (tokenizer.tagBlock(i) == 3) {
+                block3.append(new Tag(tokenizer.tagName(i), tokenizer.tagValue(i)));
+            }
+        }
+        return block3;
+    }
+
+    /**
+     * Passes a field to the sink if it is projected and has a value.
+     *
+     * @param name the lower case column name
+     */
+    private void put(SwiftFieldSink sink, String name, String value) {
+        if (value != null && projection.isProjected(name)) {
+            sink.string(name, value);
+        }
+    }
+}
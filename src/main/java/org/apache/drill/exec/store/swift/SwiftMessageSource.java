@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import java.io.IOException;
+
+/**
+ * A sequence of raw FIN messages, read either by splitting a stream or through a
+ * message index.
+ */
+public interface SwiftMessageSource {
+
+    /**
+     * Advances to the next message.
+     *
+     * @return true if a message is available through {@link #buffer()}, false at the end
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the buffer holding the current message. Only the first {@link #length()} bytes are valid.
+     */
+    byte[] buffer();
+
+    /**
+     * @return the length in bytes of the current message
+     */
+    int length();
+
+    /**
+     * @return the offset of the current message in the file
+     */
+    long offset();
+
+    /**
+     * @return true if the current message was too large to be read in full, in which
+     * case {@link #buffer()} only holds its start
+     */
+    default boolean isTruncated() {
+        return false;
+    }
+
+    /**
+     * @return true if the current message runs to the end of the stream rather than to the
+     * next message, in which case it may be cut short if the file is still being written
+     */
+    default boolean endsStream() {
+        return false;
+    }
+}
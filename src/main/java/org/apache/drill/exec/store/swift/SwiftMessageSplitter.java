@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Splits a stream of concatenated FIN messages into individual messages.
+ * <p>
+ * A message starts at a <code>{1:</code> basic header and runs up to the next
+ * basic header or the end of the stream. The characters <code>{</code> and
+ * <code>}</code> are not part of the SWIFT character set, so a basic header can
+ * only ever appear at a message boundary. The input is read in fixed size chunks
+ * and each message is copied into a reusable buffer, so memory use depends on the
+ * largest message and not on the size of the file.
+ * <p>
+ * When reading a block split, the stream is positioned at the start of the split
+ * and the splitter owns every message whose basic header starts inside the split.
+ * Anything in front of the first header belongs to the previous split, and the
+ * last owned message is read to its end even when that lies past the split.
+ * <p>
+ * Depending on the {@link SwiftEnvelope}, a message may also end at a delimiter, such
+ * as the <code>$</code> between RJE messages. Delimiters and whatever lies between a
+ * message and the next basic header, such as DOS-PCC markers and padding, are dropped.
+ * <p>
+ * A message larger than {@link #MAX_MESSAGE_SIZE} is truncated: the rest of it is
+ * scanned for the next basic header without being copied, and the message is
+ * flagged by {@link #isTruncated()}.
+ * <p>
+ * The last message of a file that is still being written may be cut short. Such a
+ * message runs to the end of the stream, which {@link #endsStream()} tells.
+ */
+public class SwiftMessageSplitter implements SwiftMessageSource {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int INITIAL_MESSAGE_SIZE = 8 * 1024;
+    public static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+    public static final String TRUNCATED_ERROR = "Message exceeds " + MAX_MESSAGE_SIZE + " bytes";
+
+    private final InputStream in;
+    private final long end;
+    private final boolean[] delimiters;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int chunkPos;
+    private int chunkLen;
+
+    private byte[] message = new byte[INITIAL_MESSAGE_SIZE];
+    private int messageLength;
+    private long messageOffset;
+    private boolean truncated;
+    // True when the current message runs to the end of the stream
+    private boolean endOfStream;
+
+    // Stream offset of the next byte to be read from the chunk
+    private long position;
+    // True when the previous call stopped at the header of the next message
+    private boolean headerPending;
+    private boolean eof;
+
+    public SwiftMessageSplitter(InputStream in) {
+        this(in, 0, Long.MAX_VALUE, SwiftEnvelope.AUTO);
+    }
+
+    /**
+     * @param in the stream, already positioned at <code>start</code>
+     * @param start the offset of the stream within the file
+     * @param end the offset at which the split ends. Messages starting at or after this offset are not read.
+     * @param envelope the envelope of the messages in the file
+     */
+    public SwiftMessageSplitter(InputStream in, long start, long end, SwiftEnvelope envelope) {
+        this.in = in;
+        this.position = start;
+        this.end = end;
+        this.delimiters = envelope.delimiters();
+    }
+
+    /**
+     * Advances to the next message in the stream.
+     *
+     * @return true if a message is available through {@link #buffer()}, false at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    @Override
+    public boolean next() throws IOException {
+        if (headerPending) {
+            headerPending = false;
+            startMessage(position - 3);
+        } else if (!seekHeader()) {
+            return false;
+        }
+        if (messageOffset >= end) {
+            // The message belongs to the next split
+            eof = true;
+            chunkPos = chunkLen;
+            return false;
+        }
+
+        int b1 = -1;
+        int b2 = -1;
+        int depth = 1;
+        int b;
+        while ((b = read()) != -1) {
+            if (b == '{') {
+                depth++;
+            } else if (b == '}') {
+                depth--;
+            } else if (delimiters[b] && (b != SwiftEnvelope.RJE_SEPARATOR || depth <= 0)) {
+                trim();
+                return true;
+            }
+            if (b == ':' && b2 == '1' && b1 == '{') {
+                // Found the basic header of the next message
+                if (!truncated) {
+                    messageLength -= 2;
+                }
+                headerPending = true;
+                trim();
+                return true;
+            }
+            append((byte) b);
+            b1 = b2;
+            b2 = b;
+        }
+        endOfStream = true;
+        trim();
+        return true;
+    }
+
+    /**
+     * @return the buffer holding the current message. Only the first {@link #length()} bytes are valid.
+     */
+    @Override
+    public byte[] buffer() {
+        return message;
+    }
+
+    /**
+     * @return the length in bytes of the current message
+     */
+    @Override
+    public int length() {
+        return messageLength;
+    }
+
+    /**
+     * @return the offset of the current message from the start of the stream
+     */
+    @Override
+    public long offset() {
+        return messageOffset;
+    }
+
+    @Override
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public boolean endsStream() {
+        return endOfStream;
+    }
+
+    /**
+     * @return the number of bytes consumed from the stream so far
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Scans forward to the first basic header, discarding anything in front of it.
+     */
+    private boolean seekHeader() throws IOException {
+        int b1 = -1;
+        int b2 = -1;
+        int b;
+        while ((b = read()) != -1) {
+            if (b == ':' && b2 == '1' && b1 == '{') {
+                startMessage(position - 3);
+                return true;
+            }
+            b1 = b2;
+            b2 = b;
+        }
+        return false;
+    }
+
+    private void startMessage(long offset) {
+        message[0] = '{';
+        message[1] = '1';
+        message[2] = ':';
+        messageLength = 3;
+        messageOffset = offset;
+        truncated = false;
+        endOfStream = false;
+    }
+
+    /**
+     * Drops whatever follows the closing brace of the last block, such as line
+     * breaks between messages. A block opened after that brace is kept, so that
+     * a message cut short in the middle of a block is seen as malformed.
+     */
+    private void trim() {
+        int end = messageLength;
+        while (end > 3 && message[end - 1] != '}') {
+            if (message[end - 1] == '{') {
+                return;
+            }
+            end--;
+        }
+        if (end > 3) {
+            messageLength = end;
+        }
+    }
+
+    private void append(byte b) {
+        if (messageLength == message.length) {
+            if (message.length >= MAX_MESSAGE_SIZE) {
+                truncated = true;
+                return;
+            }
+            byte[] newMessage = new byte[Math.min(message.length * 2, MAX_MESSAGE_SIZE)];
+            System.arraycopy(message, 0, newMessage, 0, messageLength);
+            message = newMessage;
+        }
+        message[messageLength++] = b;
+    }
+
+    private int read() throws IOException {
+        if (chunkPos == chunkLen) {
+            if (eof) {
+                return -1;
+            }
+            chunkLen = in.read(chunk, 0, CHUNK_SIZE);
+            chunkPos = 0;
+            if (chunkLen <= 0) {
+                chunkLen = 0;
+                eof = true;
+                return -1;
+            }
+        }
+        position++;
+        return chunk[chunkPos++] & 0xFF;
+    }
+}
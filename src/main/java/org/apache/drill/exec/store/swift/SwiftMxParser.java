@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams the transactions of ISO 20022 (MX) documents, such as pacs.008 or camt.053,
+ * with a single StAX pass. Each transaction, such as a credit transfer or a statement
+ * entry, is one row, along with the fields of the enclosing elements read before it,
+ * such as the group header or the statement account. A document without any of the
+ * known transaction elements is one row on its own.
+ * <p>
+ * Columns are named after the path of the element below the message root, cleaned up
+ * as in {@link SwiftUtils#cleanUpFieldName(String)}, so <code>GrpHdr/MsgId</code> is
+ * <code>grphdr_msgid</code>. Attributes are named as children of their element, such
+ * as <code>ntry_amt_ccy</code>. Repeated elements of a row are joined with line breaks.
+ * <p>
+ * Only the current transaction and its enclosing fields are held in memory, whatever
+ * the size of the document, and the text of columns outside the projection is never
+ * copied.
+ */
+public class SwiftMxParser implements AutoCloseable {
+
+    public static final String MESSAGE_TYPE = "message_type";
+
+    /**
+     * The number of bytes of a file enough to tell an XML document from FIN messages.
+     */
+    public static final int HEAD_SIZE = 64;
+
+    private static final String DOCUMENT = "Document";
+    private static final String SEPARATOR = "\n";
+    private static final int INITIAL_DEPTH = 32;
+
+    // Elements holding one transaction in the common message types
+    private static final Set<String> TRANSACTIONS = new HashSet<>(Arrays.asList(
+            "CdtTrfTxInf",   // pacs.008, pacs.009, pain.001
+            "DrctDbtTxInf",  // pacs.003, pain.008
+            "TxInf",         // pacs.004, pacs.007, camt.056
+            "TxInfAndSts",   // pacs.002, pain.002
+            "Ntry"));        // camt.052, camt.053, camt.054
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final SwiftProjection projection;
+    private final Map<String, String> names = new HashMap<>();
+    private final Fields context = new Fields();
+    private final Fields transaction = new Fields();
+    private final StringBuilder path = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+
+    private XMLStreamReader reader;
+    private String messageType;
+
+    // Per open element, by depth
+    private int[] pathLengths = new int[INITIAL_DEPTH];
+    private int[] contextMarks = new int[INITIAL_DEPTH];
+    private boolean[] hasTransaction = new boolean[INITIAL_DEPTH];
+
+    private int depth;
+    // Elements up to this depth are not part of the column names
+    private int baseDepth = 1;
+    private int documentDepth = -1;
+    private int transactionDepth = -1;
+    // Depth of the element whose text is being read, or -1
+    private int textDepth = -1;
+    private String textName;
+    // Path of the elements around the document, restored at its end
+    private String documentPrefix;
+
+    public SwiftMxParser(SwiftProjection projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * @param head the first bytes of a file
+     * @param length the number of valid bytes
+     * @return true if the file looks like an XML document rather than FIN messages
+     */
+    public static boolean isXml(byte[] head, int length) {
+        int i = 0;
+        // UTF-8 byte order mark
+        if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            i = 3;
+        }
+        while (i < length && (head[i] == ' ' || head[i] == '\t' || head[i] == '\r' || head[i] == '\n')) {
+            i++;
+        }
+        return i < length && head[i] == '<';
+    }
+
+    /**
+     * Starts reading a file or a message. The stream is closed by {@link #close()}.
+     */
+    public void open(InputStream in) throws IOException {
+        close();
+        try {
+            reader = FACTORY.createXMLStreamReader(in);
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to read ISO 20022 document: " + e.getMessage(), e);
+        }
+        context.clear();
+        transaction.clear();
+        path.setLength(0);
+        depth = 0;
+        baseDepth = 1;
+        documentDepth = -1;
+        transactionDepth = -1;
+        textDepth = -1;
+        messageType = null;
+    }
+
+    /**
+     * @return the message type of the last document started, such as <code>camt.053.001.08</code>, or null
+     */
+    public String messageType() {
+        return messageType;
+    }
+
+    /**
+     * Reads up to the end of the next transaction, or of the next document without
+     * any transaction, and passes its projected fields to the sink.
+     *
+     * @return true if a row was passed to the sink, false at the end of the input
+     * @throws IOException if the input is not well formed XML
+     */
+    public boolean next(SwiftFieldSink sink) throws IOException {
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (textDepth == depth && !reader.isWhiteSpace()) {
+                            appendText();
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (endElement(sink)) {
+                            return true;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return false;
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed ISO 20022 document: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the character offset of the parser in the input, for error messages
+     */
+    public long offset() {
+        return reader == null ? 0 : reader.getLocation().getCharacterOffset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            } finally {
+                reader = null;
+            }
+        }
+    }
+
+    private void startElement() {
+        depth++;
+        if (depth == pathLengths.length) {
+            pathLengths = Arrays.copyOf(pathLengths, depth * 2);
+            contextMarks = Arrays.copyOf(contextMarks, depth * 2);
+            hasTransaction = Arrays.copyOf(hasTransaction, depth * 2);
+        }
+        pathLengths[depth] = path.length();
+        contextMarks[depth] = context.size();
+        hasTransaction[depth] = false;
+
+        String localName = reader.getLocalName();
+        if (documentDepth == -1 && DOCUMENT.equals(localName)) {
+            // The message root under the document is not part of the column names
+            documentDepth = depth;
+            baseDepth = depth + 1;
+            documentPrefix = path.toString();
+            path.setLength(0);
+            String namespace = reader.getNamespaceURI();
+            messageType = namespace == null ? null : namespace.substring(namespace.lastIndexOf(':') + 1);
+            if (messageType != null && projection.isProjected(MESSAGE_TYPE)) {
+                context.add(MESSAGE_TYPE, messageType);
+            }
+        } else if (depth > baseDepth) {
+            if (path.length() > 0) {
+                path.append('_');
+            }
+            path.append(cleanName(localName));
+        }
+
+        if (transactionDepth == -1 && TRANSACTIONS.contains(localName)) {
+            transactionDepth = depth;
+        }
+
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attribute = cleanName(reader.getAttributeLocalName(i));
+            String name = path.length() == 0 ? attribute : path + "_" + attribute;
+            if (projection.isProjected(name)) {
+                fields().add(name, reader.getAttributeValue(i));
+            }
+        }
+
+        textDepth = depth;
+        textName = null;
+        text.setLength(0);
+    }
+
+    private void appendText() {
+        if (textName == null) {
+            textName = path.toString();
+            if (!projection.isProjected(textName)) {
+                textDepth = -1;
+                return;
+            }
+        }
+        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+    }
+
+    /**
+     * @return true if the element ends a row, which was passed to the sink
+     */
+    private boolean endElement(SwiftFieldSink sink) {
+        if (textDepth == depth && text.length() > 0) {
+            fields().add(textName, text.toString());
+        }
+        textDepth = -1;
+
+        boolean row = false;
+        if (depth == transactionDepth) {
+            context.writeTo(sink);
+            transaction.writeTo(sink);
+            transaction.clear();
+            transactionDepth = -1;
+            hasTransaction[depth - 1] = true;
+            row = true;
+        } else if (depth == documentDepth) {
+            if (!hasTransaction[depth]) {
+                context.writeTo(sink);
+                row = true;
+            }
+            // The next document starts afresh
+            context.truncate(contextMarks[depth]);
+            hasTransaction[depth - 1] = true;
+            path.setLength(0);
+            path.append(documentPrefix);
+            documentDepth = -1;
+            baseDepth = 1;
+        } else if (hasTransaction[depth]) {
+            // The fields of a statement or a payment information block do not apply to the next one
+            context.truncate(contextMarks[depth]);
+            hasTransaction[depth - 1] = true;
+        }
+
+        path.setLength(pathLengths[depth]);
+        depth--;
+        return row;
+    }
+
+    private Fields fields() {
+        return transactionDepth == -1 ? context : transaction;
+    }
+
+    private String cleanName(String localName) {
+        String name = names.get(localName);
+        if (name == null) {
+            name = SwiftUtils.cleanUpFieldName(localName);
+            names.put(localName, name);
+        }
+        return name;
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+
+    /**
+     * The fields of a row, in the order they were read. A repeated field keeps its
+     * first position and joins the values.
+     */
+    private static class Fields {
+        private final List<String> names = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> index = new HashMap<>();
+
+        void add(String name, String value) {
+            Integer i = index.get(name);
+            if (i == null) {
+                index.put(name, names.size());
+                names.add(name);
+                values.add(value);
+            } else {
+                values.set(i, values.get(i) + SEPARATOR + value);
+            }
+        }
+
+        int size() {
+            return names.size();
+        }
+
+        void truncate(int size) {
+            for (int i = names.size() - 1; i >= size; i--) {
+                index.remove(names.remove(i));
+                values.remove(i);
+            }
+        }
+
+        void clear() {
+            truncate(0);
+        }
+
+        void writeTo(SwiftFieldSink sink) {
+            for (int i = 0; i < names.size(); i++) {
+                sink.string(names.get(i), values.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.record.metadata.SchemaBuilder;
+import org.apache.drill.exec.record.metadata.TupleMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+/**
+ * The shape of the rows returned by the reader.
+ */
+public enum SwiftOutputMode {
+
+    /**
+     * One row per message, with a column per field, the default. The columns are the
+     * union of the fields of all the message types read, so most of them are null on
+     * any given row.
+     */
+    WIDE,
+
+    /**
+     * One row per field, holding the id of its message, the block and tag it comes from,
+     * its column name in the wide mode, and its value as a string.
+     * Batches then only hold the fields present in the messages. Every occurrence of a
+     * repeated tag is returned, whatever the repeated tags mode, and the typed components
+     * of a tag, such as its amount, are returned as fields of their own.
+     * <p>
+     * The message id holds the offset of the message in its file in its low 40 bits, and
+     * a hash of the path of the file above them, see {@link #messageId(String, long)}, so
+     * that the messages of different files get different ids. Two paths may still share a
+     * hash, so a query joining the fields of many files back into messages should join on
+     * the <code>filename</code> or <code>fqn</code> column as well.
+     */
+    LONG;
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftOutputMode.class);
+
+    public static final String MESSAGE_ID_COLUMN = "message_id";
+    public static final String BLOCK_COLUMN = "block";
+    public static final String TAG_COLUMN = "tag";
+    public static final String LABEL_COLUMN = "label";
+    public static final String VALUE_COLUMN = "value";
+
+    // Bits of the message id holding the offset of the message, then the hash of the path of the file
+    private static final int OFFSET_BITS = 40;
+    private static final int FILE_BITS = 23;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    /**
+     * @param outputMode the output mode of the format config, which may be null
+     * @return the mode
+     */
+    public static SwiftOutputMode of(String outputMode) {
+        if (outputMode == null || outputMode.isEmpty()) {
+            return WIDE;
+        }
+        try {
+            return valueOf(outputMode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw UserException
+                    .validationError()
+                    .message("Unknown SWIFT output mode: %s. Use wide or long.", outputMode)
+                    .build(logger);
+        }
+    }
+
+    /**
+     * @param path the path of the file holding the message
+     * @param offset the offset of the message in the file, below 1 TB
+     * @return the id of the message in the long mode, which is positive
+     */
+    public static long messageId(String path, long offset) {
+        long hash = path.hashCode() * 0x9e3779b97f4a7c15L;
+        return (hash >>> (Long.SIZE - FILE_BITS)) << OFFSET_BITS | (offset & OFFSET_MASK);
+    }
+
+    /**
+     * @return the offset in its file of the message with the given id
+     */
+    public static long messageOffset(long messageId) {
+        return messageId & OFFSET_MASK;
+    }
+
+    /**
+     * @return the schema of the rows of the long mode, with every column nullable
+     */
+    public static TupleMetadata longSchema() {
+        return new SchemaBuilder()
+                .addNullable(MESSAGE_ID_COLUMN, MinorType.BIGINT)
+                .addNullable(BLOCK_COLUMN, MinorType.INT)
+                .addNullable(TAG_COLUMN, MinorType.VARCHAR)
+                .addNullable(LABEL_COLUMN, MinorType.VARCHAR)
+                .addNullable(VALUE_COLUMN, MinorType.VARCHAR)
+                .buildSchema();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses messages on a pool of worker threads while the reader thread keeps
+ * splitting the file and writing vectors. The reader submits the raw messages in
+ * file order and takes the parsed {@link SwiftRecord}s back in the same order.
+ * <p>
+ * At most <code>queueDepth</code> messages are in flight, which bounds the memory
+ * held by the pipeline. Records are recycled once written. The pipeline itself is
+ * not thread safe: it is only used by the reader thread, and each worker has its
+ * own parser.
+ */
+public class SwiftParsePipeline implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_DEPTH = 64;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final ExecutorService workers;
+    private final ThreadLocal<SwiftMessageParser> parsers;
+    private final int queueDepth;
+    private final ArrayDeque<Future<SwiftRecord>> pending = new ArrayDeque<>();
+    private final ArrayDeque<SwiftRecord> free = new ArrayDeque<>();
+    private SwiftRecord current;
+
+    public SwiftParsePipeline(int threads, int queueDepth, SwiftProjection projection, Locale locale,
+                              SwiftRepeatedTags repeatedTags) {
+        this.queueDepth = queueDepth > 0 ? queueDepth : DEFAULT_QUEUE_DEPTH;
+        this.parsers = ThreadLocal.withInitial(() -> new SwiftMessageParser(projection, locale, repeatedTags));
+        this.workers = Executors.newFixedThreadPool(threads, new WorkerFactory());
+    }
+
+    /**
+     * Works out the number of parse threads of a reader. When the width per node is set,
+     * the reader runs in one of up to that many fragments of the drillbit, so it gets its
+     * share of the cores and no more. Otherwise the reader cannot tell how many fragments
+     * the scan has on the drillbit, which for a few files is often just one, so only the
+     * number of cores caps the threads set in the format config.
+     *
+     * @param requested the number of threads set in the format config
+     * @param cores the number of cores of the drillbit
+     * @param widthPerNode the maximum number of fragments per drillbit, or 0 if Drill decides
+     * @return the number of threads, at least 1
+     */
+    public static int threads(int requested, int cores, long widthPerNode) {
+        long share = widthPerNode > 0 ? Math.max(1, cores / widthPerNode) : cores;
+        return (int) Math.max(1, Math.min(requested, share));
+    }
+
+    /**
+     * @return true if no more message can be submitted until one is taken
+     */
+    public boolean isFull() {
+        return pending.size() >= queueDepth;
+    }
+
+    /**
+     * Copies a message and queues it for parsing.
+     *
+     * @param truncated true if the message was cut short by the splitter, which makes it malformed
+     */
+    public void submit(byte[] buffer, int length, long offset, boolean truncated) {
+        SwiftRecord record = free.isEmpty() ? new SwiftRecord() : free.poll();
+        record.reset(buffer, length, offset, truncated);
+        pending.add(workers.submit(() -> {
+            record.parse(parsers.get());
+            return record;
+        }));
+    }
+
+    /**
+     * Waits for the oldest message in flight to be parsed. The record is valid until
+     * the next call, when it is recycled.
+     *
+     * @return the record of the message, or null if no message is in flight
+     */
+    public SwiftRecord take() throws InterruptedException, ExecutionException {
+        if (current != null) {
+            free.add(current);
+            current = null;
+        }
+        Future<SwiftRecord> next = pending.poll();
+        if (next == null) {
+            return null;
+        }
+        current = next.get();
+        return current;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        pending.clear();
+        free.clear();
+        current = null;
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private final int pool = POOL_COUNT.incrementAndGet();
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "swift-parse-" + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
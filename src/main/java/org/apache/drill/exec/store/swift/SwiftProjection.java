@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.expression.SchemaPath;
+import org.apache.drill.exec.util.Utilities;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The set of columns a query asks for, used by {@link SwiftUtils#parseMessage(String, SwiftProjection)}
+ * to skip the blocks and fields that nobody reads. Column names are compared in lower case,
+ * as Drill column names are case-insensitive.
+ */
+public class SwiftProjection {
+
+    /**
+     * Projects every column, as for a <code>SELECT *</code> query.
+     */
+    public static final SwiftProjection ALL = new SwiftProjection(null);
+
+    public static final String SENDER = "sender";
+    public static final String RECEIVER = "receiver";
+    // Prefixes of the BIC directory attributes of the sender and receiver
+    public static final String SENDER_PREFIX = SENDER + "_";
+    public static final String RECEIVER_PREFIX = RECEIVER + "_";
+
+    // Columns derived from blocks 1 and 2 without a block prefix
+    private static final Set<String> MESSAGE_COLUMNS = new HashSet<>();
+
+    static {
+        MESSAGE_COLUMNS.add(SENDER);
+        MESSAGE_COLUMNS.add(RECEIVER);
+        MESSAGE_COLUMNS.add("uuid");
+        MESSAGE_COLUMNS.add("message_type");
+        MESSAGE_COLUMNS.add("block_count");
+    }
+
+    private final Set<String> columns;
+    private final boolean block1;
+    private final boolean block2;
+    private final boolean correspondentBIC;
+    private final boolean tags;
+    private final boolean block5;
+
+    private SwiftProjection(Set<String> columns) {
+        this.columns = columns;
+        if (columns == null) {
+            block1 = true;
+            block2 = true;
+            correspondentBIC = true;
+            tags = true;
+            block5 = true;
+            return;
+        }
+
+        boolean hasBlock1 = false;
+        boolean hasBlock2 = false;
+        boolean hasBIC = false;
+        boolean hasTags = false;
+        boolean hasBlock5 = false;
+        for (String column : columns) {
+            if (column.startsWith("block1_")) {
+                hasBlock1 = true;
+            } else if (column.startsWith("block2_")) {
+                hasBlock2 = true;
+            } else if (column.startsWith("block5_")) {
+                hasBlock5 = true;
+            } else if (column.startsWith("correspondent_bic_")) {
+                hasBIC = true;
+            } else if (!MESSAGE_COLUMNS.contains(column)
+                    && !column.equals(SwiftErrorMode.ERROR_COLUMN) && !column.equals(SwiftErrorMode.OFFSET_COLUMN)
+                    && !column.equals(SwiftRepeatedTags.ENTRY_COLUMN)) {
+                // Anything else may be the label of a block 3 or block 4 tag
+                hasTags = true;
+            }
+        }
+        block1 = hasBlock1;
+        block2 = hasBlock2;
+        correspondentBIC = hasBIC;
+        tags = hasTags;
+        block5 = hasBlock5;
+    }
+
+    /**
+     * Builds the projection from the columns of a scan.
+     *
+     * @param projectedColumns the columns of the scan, or null to project every column
+     * @return the projection
+     */
+    public static SwiftProjection of(Collection<SchemaPath> projectedColumns) {
+        return of(projectedColumns, false);
+    }
+
+    /**
+     * Builds the projection from the columns of a scan which adds the attributes of a
+     * {@link SwiftBicDirectory}. A column such as <code>sender_name</code> may then need
+     * the sender, so the sender is projected along with it.
+     *
+     * @param projectedColumns the columns of the scan, or null to project every column
+     * @param bicDirectory true if the scan adds the attributes of a BIC directory
+     * @return the projection
+     */
+    public static SwiftProjection of(Collection<SchemaPath> projectedColumns, boolean bicDirectory) {
+        if (projectedColumns == null || Utilities.isStarQuery(projectedColumns)) {
+            return ALL;
+        }
+        Set<String> columns = new HashSet<>();
+        for (SchemaPath column : projectedColumns) {
+            String name = column.getRootSegmentPath().toLowerCase(Locale.ROOT);
+            columns.add(name);
+            if (bicDirectory && name.startsWith(SENDER_PREFIX)) {
+                columns.add(SENDER);
+            } else if (bicDirectory && name.startsWith(RECEIVER_PREFIX)) {
+                columns.add(RECEIVER);
+            }
+        }
+        return new SwiftProjection(columns);
+    }
+
+    /**
+     * @param name the lower case column name
+     * @return true if the column is projected
+     */
+    public boolean isProjected(String name) {
+        return columns == null || columns.contains(name);
+    }
+
+    /**
+     * @return true if no column at all is projected, as for a <code>COUNT(*)</code> query
+     */
+    public boolean isEmpty() {
+        return columns != null && columns.isEmpty();
+    }
+
+    public boolean projectsBlock1() {
+        return block1;
+    }
+
+    public boolean projectsBlock2() {
+        return block2;
+    }
+
+    public boolean projectsCorrespondentBIC() {
+        return correspondentBIC;
+    }
+
+    /**
+     * @return true if any column may be the label of a block 3 or block 4 tag
+     */
+    public boolean projectsTags() {
+        return tags;
+    }
+
+    public boolean projectsBlock5() {
+        return block5;
+    }
+}
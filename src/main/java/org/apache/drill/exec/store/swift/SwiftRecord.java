@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import io.netty.buffer.DrillBuf;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * A message and the fields parsed from it, held until they can be written. Records
+ * let the message be parsed on one thread and written on another: the parser fills
+ * the record through the {@link SwiftFieldSink} interface, and the record replays the
+ * fields into the actual sink in the same order.
+ * <p>
+ * Records are meant to be recycled, so their arrays only grow. A record created to keep
+ * the sources of the fields also replays the blocks and tags the fields come from. The
+ * column indexes of the fields are always kept, see {@link SwiftFieldSink#column(SwiftFieldLabels, int)}.
+ */
+public class SwiftRecord implements SwiftFieldSink {
+
+    private static final int INITIAL_FIELD_COUNT = 64;
+    private static final int INITIAL_MESSAGE_SIZE = 8 * 1024;
+
+    private static final byte STRING = 0;
+    private static final byte DATE = 1;
+    private static final byte DECIMAL = 2;
+    private static final byte STRING_ELEMENT = 3;
+    private static final byte DATE_ELEMENT = 4;
+    private static final byte DECIMAL_ELEMENT = 5;
+    private static final byte SOURCE = 6;
+    private static final byte COLUMN = 7;
+
+    private byte[] message = new byte[INITIAL_MESSAGE_SIZE];
+    private int length;
+    private long offset;
+
+    private int fieldCount;
+    private String[] names = new String[INITIAL_FIELD_COUNT];
+    private Object[] values = new Object[INITIAL_FIELD_COUNT];
+    private byte[] kinds = new byte[INITIAL_FIELD_COUNT];
+    private int[] indexes = new int[INITIAL_FIELD_COUNT];
+
+    private final boolean sources;
+    private boolean parsed;
+    private String error;
+
+    public SwiftRecord() {
+        this(false);
+    }
+
+    /**
+     * @param sources true to keep the block and tag of the fields, see {@link SwiftFieldSink#needsSources()}
+     */
+    public SwiftRecord(boolean sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Copies a message into the record and clears the fields of the previous message.
+     */
+    public void reset(byte[] buffer, int length, long offset) {
+        reset(buffer, length, offset, false);
+    }
+
+    /**
+     * Copies a message into the record and clears the fields of the previous message.
+     *
+     * @param truncated true if the message was cut short by the splitter, in which case it is not parsed
+     */
+    public void reset(byte[] buffer, int length, long offset, boolean truncated) {
+        if (message.length < length) {
+            message = new byte[Math.max(length, message.length * 2)];
+        }
+        System.arraycopy(buffer, 0, message, 0, length);
+        this.length = length;
+        this.offset = offset;
+        clear();
+        error = truncated ? SwiftMessageSplitter.TRUNCATED_ERROR : null;
+    }
+
+    /**
+     * Copies a message held in a {@link DrillBuf} into the record and clears the fields of
+     * the previous message.
+     */
+    public void reset(DrillBuf buffer, int start, int end) {
+        int length = end - start;
+        if (message.length < length) {
+            message = new byte[Math.max(length, message.length * 2)];
+        }
+        buffer.getBytes(start, message, 0, length);
+        this.length = length;
+        this.offset = 0;
+        clear();
+    }
+
+    /**
+     * @return true if the record holds the same message as the buffer range
+     */
+    public boolean holds(DrillBuf buffer, int start, int end) {
+        if (end - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.getByte(start + i) != message[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clears the fields of the previous message, for a record used as a plain buffer of fields.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, fieldCount, null);
+        fieldCount = 0;
+        parsed = false;
+        error = null;
+    }
+
+    /**
+     * Parses the message of the record into the record itself.
+     */
+    public void parse(SwiftMessageParser parser) {
+        if (error != null) {
+            return;
+        }
+        parsed = parser.parse(message, 0, length, this);
+        error = parsed ? null : parser.error();
+    }
+
+    public byte[] message() {
+        return message;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    /**
+     * @return true if the message was parsed, false if it is malformed. See {@link #error()}.
+     */
+    public boolean isParsed() {
+        return parsed;
+    }
+
+    public String error() {
+        return error;
+    }
+
+    /**
+     * @return the number of fields of the record, counting the sources and column indexes of the fields
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Passes the parsed fields to the sink, in the order they were parsed.
+     */
+    public void replay(SwiftFieldSink sink) {
+        for (int i = 0; i < fieldCount; i++) {
+            replay(i, sink);
+        }
+    }
+
+    /**
+     * Passes the next field to the sink, with the sources and index that come before it, so that
+     * the fields can be written one at a time.
+     *
+     * @param from the index of the first field to replay
+     * @return the index just past the field, or -1 if there are only sources left
+     */
+    public int replayNext(int from, SwiftFieldSink sink) {
+        int i = from;
+        while (i < fieldCount && (kinds[i] == SOURCE || kinds[i] == COLUMN)) {
+            replay(i++, sink);
+        }
+        if (i == fieldCount) {
+            return -1;
+        }
+        replay(i, sink);
+        return i + 1;
+    }
+
+    private void replay(int i, SwiftFieldSink sink) {
+        switch (kinds[i]) {
+            case DATE:
+                sink.date(names[i], (LocalDate) values[i]);
+                break;
+            case DECIMAL:
+                sink.decimal(names[i], (BigDecimal) values[i]);
+                break;
+            case STRING_ELEMENT:
+                sink.stringElement(names[i], (String) values[i]);
+                break;
+            case DATE_ELEMENT:
+                sink.dateElement(names[i], (LocalDate) values[i]);
+                break;
+            case DECIMAL_ELEMENT:
+                sink.decimalElement(names[i], (BigDecimal) values[i]);
+                break;
+            case SOURCE:
+                sink.source(indexes[i], names[i]);
+                break;
+            case COLUMN:
+                if (sink.needsColumns()) {
+                    sink.column((SwiftFieldLabels) values[i], indexes[i]);
+                }
+                break;
+            default:
+                sink.string(names[i], (String) values[i]);
+        }
+    }
+
+    @Override
+    public void string(String name, String value) {
+        add(STRING, name, value);
+    }
+
+    @Override
+    public void date(String name, LocalDate value) {
+        add(DATE, name, value);
+    }
+
+    @Override
+    public void decimal(String name, BigDecimal value) {
+        add(DECIMAL, name, value);
+    }
+
+    @Override
+    public void stringElement(String name, String value) {
+        add(STRING_ELEMENT, name, value);
+    }
+
+    @Override
+    public void dateElement(String name, LocalDate value) {
+        add(DATE_ELEMENT, name, value);
+    }
+
+    @Override
+    public void decimalElement(String name, BigDecimal value) {
+        add(DECIMAL_ELEMENT, name, value);
+    }
+
+    @Override
+    public boolean needsSources() {
+        return sources;
+    }
+
+    @Override
+    public void source(int block, String tag) {
+        add(SOURCE, tag, null, block);
+    }
+
+    @Override
+    public boolean needsColumns() {
+        return true;
+    }
+
+    @Override
+    public void column(SwiftFieldLabels labels, int index) {
+        add(COLUMN, null, labels, index);
+    }
+
+    private void add(byte kind, String name, Object value) {
+        add(kind, name, value, 0);
+    }
+
+    private void add(byte kind, String name, Object value, int index) {
+        if (fieldCount == names.length) {
+            int newSize = fieldCount * 2;
+            names = Arrays.copyOf(names, newSize);
+            values = Arrays.copyOf(values, newSize);
+            kinds = Arrays.copyOf(kinds, newSize);
+            indexes = Arrays.copyOf(indexes, newSize);
+        }
+        kinds[fieldCount] = kind;
+        names[fieldCount] = name;
+        values[fieldCount] = value;
+        indexes[fieldCount] = index;
+        fieldCount++;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How the reader returns the tags which occur more than once in block 4 of a message,
+ * such as the <code>:61:</code> statement lines and <code>:86:</code> information of
+ * an MT940. Block 3 and the other tags always keep a single value.
+ */
+public enum SwiftRepeatedTags {
+
+    /**
+     * One row per message, where a repeated tag keeps its last value, the default.
+     */
+    LAST,
+
+    /**
+     * One row per message, where every block 4 tag is an array holding its values in
+     * message order. The typed columns of a tag are arrays too, and only hold the
+     * components that could be converted.
+     */
+    ARRAY,
+
+    /**
+     * One row per entry of the repeating sequence of the message type, such as each
+     * <code>:61:</code> statement line and its <code>:86:</code> of an MT940. The rows
+     * of a message repeat its other fields, and number the entries from 1 in the
+     * {@link #ENTRY_COLUMN} column. A message without entries, or of a type without a
+     * known sequence, is returned as a single row. Entries are written as the reader
+     * reaches them, so a statement is never held in memory as a whole, which is why this
+     * mode parses on the reader thread even when the format sets parse threads.
+     */
+    ROWS;
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftRepeatedTags.class);
+
+    public static final String ENTRY_COLUMN = "entry_number";
+
+    /**
+     * Tags of the repeating sequence of each message type. The first tag starts an
+     * entry, and the entry runs as long as the tags that follow are in the sequence.
+     */
+    private static final Map<String, String[]> SEQUENCES = new HashMap<>();
+
+    static {
+        SEQUENCES.put("101", new String[] {"21", "21F", "23E", "32B", "50C", "50L", "50F", "50G", "50H", "52A",
+                "52C", "56A", "56C", "56D", "57A", "57C", "57D", "59", "59A", "59F", "70", "77B", "33B", "71A",
+                "25A", "36"});
+        SEQUENCES.put("940", new String[] {"61", "86"});
+        SEQUENCES.put("942", new String[] {"61", "86"});
+        SEQUENCES.put("950", new String[] {"61"});
+        SEQUENCES.put("970", new String[] {"61"});
+    }
+
+    /**
+     * @param repeatedTags the repeated tags mode of the format config, which may be null
+     * @return the mode
+     */
+    public static SwiftRepeatedTags of(String repeatedTags) {
+        if (repeatedTags == null || repeatedTags.isEmpty()) {
+            return LAST;
+        }
+        try {
+            return valueOf(repeatedTags.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw UserException
+                    .validationError()
+                    .message("Unknown SWIFT repeated tags mode: %s. Use last, array or rows.", repeatedTags)
+                    .build(logger);
+        }
+    }
+
+    /**
+     * @param messageType a message type, such as <code>940</code>, which may be null
+     * @return the tags of the repeating sequence of the message type, starting with the
+     * tag which opens an entry, or null if the type has no known sequence
+     */
+    public static String[] sequence(String messageType) {
+        return messageType == null ? null : SEQUENCES.get(messageType);
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import com.prowidesoftware.swift.model.field.AmountContainer;
+import com.prowidesoftware.swift.model.field.CurrencyContainer;
+import com.prowidesoftware.swift.model.field.DateContainer;
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.record.metadata.SchemaBuilder;
+import org.apache.drill.exec.record.metadata.TupleMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The full set of columns of the message types of the Prowide model, known before
+ * reading any message. With the <code>fixed</code> schema mode the reader declares these columns
+ * when it opens a file, so a file mixing message types produces batches of a single
+ * schema instead of widening the schema each time a message brings a new tag.
+ * <p>
+ * The tags of each message type are those of the Prowide class of the type, such as
+ * <code>MT103</code>, which has a getter per field allowed by the FIN standard, so the
+ * registry follows the version of Prowide on the classpath. Their column names are the
+ * Prowide labels, as for the dynamic schema, and the typed date, currency
+ * and amount columns are declared for the fields whose Prowide model has them.
+ * The schema follows the mode of repeated tags, see {@link SwiftRepeatedTags}.
+ * <p>
+ * A format restricted to message types outside of the registry is rejected. Without
+ * such a restriction the schema has the columns of every type of the registry, and the
+ * fields of messages of other types which are not columns of the schema are dropped,
+ * and the reader warns about it once.
+ */
+public class SwiftSchemaRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftSchemaRegistry.class);
+
+    public static final String DYNAMIC = "dynamic";
+    public static final String FIXED = "fixed";
+
+    private static final String FIELD_CLASS_PREFIX = "com.prowidesoftware.swift.model.field.Field";
+
+    // Typed components of a field, as flags
+    private static final int HAS_DATE = 1;
+    private static final int HAS_CURRENCY = 2;
+    private static final int HAS_AMOUNT = 4;
+
+    private static final String MT_CLASS_PREFIX = "com.prowidesoftware.swift.model.mt.mt";
+
+    // Getters of the fields of a Prowide message class, such as getField32A
+    private static final Pattern FIELD_GETTER = Pattern.compile("getField(\\d{2}[A-Z]?)");
+
+    private static final Map<String, List<String>> TAGS = loadTags();
+
+    /**
+     * Columns derived from the header and trailer blocks, in the order of the parser.
+     * The UUID column keeps the upper case name used by the parser.
+     */
+    private static final String[] HEADER_COLUMNS = {
+            "sender", "receiver", "UUID",
+            "correspondent_bic_bic", "correspondent_bic_bic11", "correspondent_bic_institution",
+            "correspondent_bic_country", "correspondent_bic_location", "correspondent_bic_banch",
+            "message_type", "block_count",
+            "block1_name", "block1_application_id", "block1_service_id", "block1_logical_terminal",
+            "block1_session_number", "block1_sequence_number",
+            "block2_name", "block2_block_value", "block2_message_type", "block2_message_priority",
+            "block2_is_input", "block2_is_output", "block2_direction",
+            "block2_input_value", "block2_receiver_address", "block2_delivery_monitoring",
+            "block2_obsolescence_period", "block2_delivery_monitoring_desc",
+            "block2_output_value", "block2_sender_input_time", "block2_mir", "block2_mir_date",
+            "block2_mir_logical_terminal", "block2_mir_session_number", "block2_mir_sequence_number",
+            "block2_receiver_output_date", "block2_receiver_output_time", "block2_priority_desc",
+            "block5_name", "block5_tag_count", "block5_is_empty",
+            "block5_mac", "block5_chk", "block5_pde", "block5_pde_desc", "block5_pdm", "block5_pdm_desc",
+            "block5_dlm", "block5_dlm_desc", "block5_mrf", "block5_tng", "block5_tng_desc",
+            "block5_sys", "block5_sys_desc",
+            "block5_tag_mac", "block5_tag_chk", "block5_tag_pde", "block5_tag_pdm", "block5_tag_dlm",
+            "block5_tag_mrf", "block5_tag_tng", "block5_tag_sys"
+    };
+
+    private static final Map<String, Integer> COMPONENTS = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the tags of block 4 of each message type from the Prowide model, in which
+     * message type <i>nnn</i> is the class <code>MTnnn</code> of the package of its category,
+     * with a getter per field.
+     */
+    private static Map<String, List<String>> loadTags() {
+        Map<String, List<String>> tags = new TreeMap<>();
+        ClassLoader classLoader = SwiftSchemaRegistry.class.getClassLoader();
+        for (int i = 0; i < 1000; i++) {
+            String messageType = String.format("%03d", i);
+            Class<?> messageClass;
+            try {
+                messageClass = Class.forName(MT_CLASS_PREFIX + messageType.charAt(0) + "xx.MT" + messageType,
+                        false, classLoader);
+            } catch (ClassNotFoundException e) {
+                // Not a message type of the Prowide model
+                continue;
+            }
+            Set<String> messageTags = new TreeSet<>();
+            for (Method method : messageClass.getMethods()) {
+                Matcher matcher = FIELD_GETTER.matcher(method.getName());
+                if (method.getParameterCount() == 0 && matcher.matches()) {
+                    messageTags.add(matcher.group(1));
+                }
+            }
+            if (!messageTags.isEmpty()) {
+                tags.put(messageType, Collections.unmodifiableList(new ArrayList<>(messageTags)));
+            }
+        }
+        logger.debug("Loaded the tags of {} SWIFT message types", tags.size());
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * @return the message types known to the registry
+     */
+    public static Set<String> messageTypes() {
+        return TAGS.keySet();
+    }
+
+    /**
+     * @param messageType a message type, such as <code>103</code>
+     * @return the tags of block 4 of the message type, or null if it is not known to the registry
+     */
+    public static List<String> tags(String messageType) {
+        return TAGS.get(messageType);
+    }
+
+    /**
+     * @param schemaMode the schema mode of the format config, which may be null
+     * @return true for the fixed schema mode
+     */
+    public static boolean isFixed(String schemaMode) {
+        if (schemaMode == null || schemaMode.isEmpty() || DYNAMIC.equalsIgnoreCase(schemaMode)) {
+            return false;
+        }
+        if (FIXED.equalsIgnoreCase(schemaMode)) {
+            return true;
+        }
+        throw UserException
+                .validationError()
+                .message("Unknown SWIFT schema mode: %s. Use %s or %s.", schemaMode, DYNAMIC, FIXED)
+                .build(logger);
+    }
+
+    /**
+     * Builds the schema of the given message types, which is the header and trailer
+     * columns, followed by the columns of block 3 and of the block 4 tags of each type.
+     *
+     * @param messageTypes the message types, or null for all the types of the registry
+     * @param locale the locale of the labels
+     * @return the schema, with every column nullable
+     * @throws UserException if one of the message types is not known to the registry
+     */
+    public static TupleMetadata schema(Collection<String> messageTypes, Locale locale) {
+        return schema(messageTypes, locale, SwiftRepeatedTags.LAST);
+    }
+
+    /**
+     * Builds the schema of the given message types for a mode of repeated tags. With
+     * {@link SwiftRepeatedTags#ARRAY} the block 4 columns are arrays, and with
+     * {@link SwiftRepeatedTags#ROWS} the schema ends with the entry number.
+     */
+    public static TupleMetadata schema(Collection<String> messageTypes, Locale locale, SwiftRepeatedTags repeatedTags) {
+        Collection<String> types = messageTypes == null || messageTypes.isEmpty() ? TAGS.keySet() : messageTypes;
+
+        // Column names are case insensitive, and the same label may come from several types
+        Map<String, MinorType> columns = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        Set<String> arrays = new HashSet<>();
+        for (String name : HEADER_COLUMNS) {
+            addColumn(columns, names, name, MinorType.VARCHAR);
+        }
+        for (String messageType : types) {
+            SwiftFieldLabels labels = SwiftFieldLabels.forMessageType(messageType, locale);
+            List<String> tags = new ArrayList<>(Arrays.asList(SwiftFieldLabels.BLOCK3_TAGS));
+            List<String> block4 = TAGS.get(messageType);
+            if (block4 == null) {
+                // The fields of its block 4 would all be dropped
+                throw UserException
+                        .validationError()
+                        .message("Message type %s is not in the SWIFT schema registry. "
+                                + "Use the %s schema mode to read it.", messageType, DYNAMIC)
+                        .build(logger);
+            }
+            tags.addAll(block4);
+            for (int i = 0; i < tags.size(); i++) {
+                String tag = tags.get(i);
+                String label = labels.columnName(tag);
+                // The tags of block 4 follow those of block 3
+                Set<String> arrayNames = repeatedTags == SwiftRepeatedTags.ARRAY
+                        && i >= SwiftFieldLabels.BLOCK3_TAGS.length ? arrays : null;
+                addColumn(columns, names, arrayNames, label, MinorType.VARCHAR);
+                int components = components(tag);
+                if ((components & HAS_DATE) != 0) {
+                    addColumn(columns, names, arrayNames, label + "_date", MinorType.DATE);
+                }
+                if ((components & HAS_CURRENCY) != 0) {
+                    addColumn(columns, names, arrayNames, label + "_currency", MinorType.VARCHAR);
+                }
+                if ((components & HAS_AMOUNT) != 0) {
+                    addColumn(columns, names, arrayNames, label + "_amount", MinorType.VARDECIMAL);
+                }
+            }
+        }
+        if (repeatedTags == SwiftRepeatedTags.ROWS) {
+            addColumn(columns, names, SwiftRepeatedTags.ENTRY_COLUMN, MinorType.BIGINT);
+        }
+
+        SchemaBuilder builder = new SchemaBuilder();
+        for (Map.Entry<String, MinorType> column : columns.entrySet()) {
+            boolean array = arrays.contains(column.getKey());
+            if (column.getValue() == MinorType.VARDECIMAL) {
+                if (array) {
+                    builder.addArray(column.getKey(), MinorType.VARDECIMAL,
+                            SwiftMessageParser.AMOUNT_PRECISION, SwiftMessageParser.AMOUNT_SCALE);
+                } else {
+                    builder.addNullable(column.getKey(), MinorType.VARDECIMAL,
+                            SwiftMessageParser.AMOUNT_PRECISION, SwiftMessageParser.AMOUNT_SCALE);
+                }
+            } else if (array) {
+                builder.addArray(column.getKey(), column.getValue());
+            } else {
+                builder.addNullable(column.getKey(), column.getValue());
+            }
+        }
+        return builder.buildSchema();
+    }
+
+    private static void addColumn(Map<String, MinorType> columns, Set<String> names, String name, MinorType type) {
+        addColumn(columns, names, null, name, type);
+    }
+
+    /**
+     * @param arrays the names of the array columns, to which the column is added, or null
+     */
+    private static void addColumn(Map<String, MinorType> columns, Set<String> names, Set<String> arrays,
+                                  String name, MinorType type) {
+        if (names.add(name.toLowerCase(Locale.ROOT))) {
+            columns.put(name, type);
+            if (arrays != null) {
+                arrays.add(name);
+            }
+        }
+    }
+
+    /**
+     * @return the typed components of the Prowide model of a tag, as flags
+     */
+    private static int components(String tag) {
+        Integer components = COMPONENTS.get(tag);
+        if (components == null) {
+            int flags = 0;
+            try {
+                Class<?> fieldClass = Class.forName(FIELD_CLASS_PREFIX + tag);
+                if (DateContainer.class.isAssignableFrom(fieldClass)) {
+                    flags |= HAS_DATE;
+                }
+                if (CurrencyContainer.class.isAssignableFrom(fieldClass)) {
+                    flags |= HAS_CURRENCY;
+                }
+                if (AmountContainer.class.isAssignableFrom(fieldClass)) {
+                    flags |= HAS_AMOUNT;
+                }
+            } catch (ClassNotFoundException e) {
+                // Not a standard field, only the text column applies
+            }
+            components = flags;
+            COMPONENTS.put(tag, components);
+        }
+        return components;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.exec.physical.base.ScanStats;
+import org.apache.drill.exec.physical.base.ScanStats.GroupScanProperty;
+import org.apache.drill.exec.store.dfs.DrillFileSystem;
+import org.apache.drill.exec.store.schedule.CompleteFileWork;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estimates the number of rows of a scan for the planner, which otherwise assumes one
+ * row per KB of data. A split with an up to date {@link SwiftMessageIndex} has an exact
+ * message count, taken from the size of the index. Other splits are sampled: the first
+ * messages of the split give the number of messages per byte, unless the sample covers
+ * the whole split, in which case the count is exact too.
+ * <p>
+ * When the format filters messages on their header, the count is scaled by the share of
+ * the sampled messages, or of the sampled index entries, which pass the filter.
+ * <p>
+ * Only the first splits of a scan are sampled, and the others are assumed to have the
+ * same density, so that the estimate only costs a few reads and does not change from
+ * one call of the planner to the next. The estimate of each split is cached until the
+ * length or modification time of its file changes, and shared with the copies of the plugin for the header
+ * conditions pushed into a scan, see {@link #withConfig(SwiftFormatConfig)}. The
+ * estimates count messages, so they are a lower bound for ISO 20022 documents, which
+ * are not sampled, for the rows mode of repeated tags, and for the long output mode,
+ * which returns a row per field.
+ * The messages per byte of a compressed file are those of the uncompressed data, which
+ * makes the estimate a lower bound too.
+ */
+public class SwiftStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftStatistics.class);
+
+    // Bytes of messages sampled at the start of a split without an index
+    private static final int SAMPLE_SIZE = 64 * 1024;
+    // Entries of an index sampled to apply the header filter
+    private static final int SAMPLE_ENTRIES = 1024;
+    private static final int MAX_SAMPLED_SPLITS = 16;
+    private static final int CACHE_SIZE = 4096;
+    // The estimate of the planner when nothing is known about the data
+    private static final int DEFAULT_BYTES_PER_ROW = 1024;
+
+    private final SwiftEnvelope envelope;
+    private final SwiftHeaderFilter filter;
+    // Tells apart the estimates of the header conditions sharing the cache
+    private final String filterKey;
+
+    // Estimated rows by header conditions and split, NaN for the splits which cannot be sampled
+    private final Map<String, Double> cache;
+
+    public SwiftStatistics(SwiftFormatConfig config) {
+        this(config, new LinkedHashMap<String, Double>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
+    }
+
+    private SwiftStatistics(SwiftFormatConfig config, Map<String, Double> cache) {
+        this.envelope = SwiftEnvelope.of(config.getEnvelope());
+        SwiftHeaderFilter headerFilter = SwiftHeaderFilter.of(config);
+        this.filter = headerFilter.isEmpty() ? null : headerFilter;
+        this.filterKey = config.getMessageTypes() + "|" + config.getSenders() + "|" + config.getReceivers() + "|"
+                + config.getDirection() + "|" + config.getMirDateFrom() + "|" + config.getMirDateTo();
+        this.cache = cache;
+    }
+
+    /**
+     * @param config a copy of the format config with other header conditions
+     * @return the statistics of the config, sharing the cache of these statistics
+     */
+    public SwiftStatistics withConfig(SwiftFormatConfig config) {
+        return new SwiftStatistics(config, cache);
+    }
+
+    /**
+     * @param fs the file system holding the files of the scan
+     * @param work the splits of the scan
+     * @return the statistics of the scan, never with an exact row count
+     */
+    public ScanStats scanStats(DrillFileSystem fs, Iterable<CompleteFileWork> work) {
+        long totalBytes = 0;
+        long sampledBytes = 0;
+        double sampledRows = 0;
+        int splitCount = 0;
+        for (CompleteFileWork split : work) {
+            totalBytes += split.getTotalBytes();
+            if (splitCount++ < MAX_SAMPLED_SPLITS) {
+                double rows = estimate(fs, split);
+                if (!Double.isNaN(rows)) {
+                    sampledBytes += split.getTotalBytes();
+                    sampledRows += rows;
+                }
+            }
+        }
+        double rows;
+        if (sampledBytes > 0) {
+            rows = sampledRows * totalBytes / sampledBytes;
+        } else {
+            rows = totalBytes / (double) DEFAULT_BYTES_PER_ROW;
+        }
+        return new ScanStats(GroupScanProperty.NO_EXACT_ROW_COUNT, Math.round(rows), 1, totalBytes);
+    }
+
+    /**
+     * @return the estimated rows of the split, or NaN if the split cannot be sampled
+     */
+    private double estimate(DrillFileSystem fs, CompleteFileWork split) {
+        FileStatus status;
+        try {
+            status = fs.getFileStatus(split.getPath());
+        } catch (IOException e) {
+            logger.debug("Unable to sample SWIFT split {}", split.getPath(), e);
+            return Double.NaN;
+        }
+        // A file rewritten or appended to since its estimate gets a new one
+        String key = filterKey + "|" + split.getPath() + "@" + split.getStart() + "+" + split.getLength()
+                + "#" + status.getModificationTime() + "+" + status.getLen();
+        synchronized (cache) {
+            Double rows = cache.get(key);
+            if (rows != null) {
+                return rows;
+            }
+        }
+        double rows = Double.NaN;
+        try {
+            rows = countIndex(fs, split, status);
+            if (Double.isNaN(rows)) {
+                rows = sample(fs, split);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Unable to sample SWIFT split {}", key, e);
+        }
+        synchronized (cache) {
+            cache.put(key, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Counts the messages of a split from the size of its index, without reading the entries.
+     *
+     * @return the rows of the split, or NaN if the split has no up to date index
+     */
+    private double countIndex(DrillFileSystem fs, CompleteFileWork split, FileStatus status) throws IOException {
+        Path path = split.getPath();
+        long start = split.getStart();
+        SwiftMessageIndex.Reader reader = SwiftMessageIndex.open(fs, path, status, start, start + split.getLength(),
+                null, false);
+        if (reader == null) {
+            return Double.NaN;
+        }
+        try {
+            long indexLength = fs.getFileStatus(SwiftMessageIndex.indexPath(path, start)).getLen();
+            long messages = (indexLength - SwiftMessageIndex.HEADER_SIZE) / SwiftMessageIndex.ENTRY_SIZE;
+            if (filter == null) {
+                return messages;
+            }
+            int entries = 0;
+            int matches = 0;
+            while (entries < SAMPLE_ENTRIES && reader.next()) {
+                entries++;
+                if (filter.matches(reader.entry())) {
+                    matches++;
+                }
+            }
+            return entries == 0 ? 0 : (double) messages * matches / entries;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Splits the first messages of a split.
+     *
+     * @return the rows of the split, or NaN if it holds an ISO 20022 document
+     */
+    private double sample(DrillFileSystem fs, CompleteFileWork split) throws IOException {
+        Path path = split.getPath();
+        long start = split.getStart();
+        long end = start + split.getLength();
+        if (envelope == SwiftEnvelope.MX || (envelope == SwiftEnvelope.AUTO && isMx(fs, path))) {
+            return Double.NaN;
+        }
+        boolean compressed = new CompressionCodecFactory(fs.getConf()).getCodec(path) != null;
+        try (InputStream in = fs.openPossiblyCompressedStream(path)) {
+            SwiftMessageSplitter splitter;
+            if (compressed || start == 0) {
+                splitter = new SwiftMessageSplitter(in, 0, compressed ? Long.MAX_VALUE : end, envelope);
+            } else {
+                ((Seekable) in).seek(start);
+                splitter = new SwiftMessageSplitter(in, start, end, envelope);
+            }
+
+            long first = -1;
+            long last = 0;
+            int matches = 0;
+            while (last - first < SAMPLE_SIZE) {
+                if (!splitter.next()) {
+                    // The whole split was sampled
+                    return matches;
+                }
+                if (first == -1) {
+                    first = splitter.offset();
+                }
+                last = splitter.offset() + splitter.length();
+                if (filter == null || filter.matches(splitter.buffer(), 0, splitter.length())) {
+                    matches++;
+                }
+            }
+            return (double) matches * split.getLength() / (last - first);
+        }
+    }
+
+    private static boolean isMx(DrillFileSystem fs, Path path) throws IOException {
+        byte[] head = new byte[SwiftMxParser.HEAD_SIZE];
+        int length = 0;
+        try (InputStream in = fs.openPossiblyCompressedStream(path)) {
+            int count;
+            while (length < head.length && (count = in.read(head, length, head.length - length)) > 0) {
+                length += count;
+            }
+        }
+        return SwiftMxParser.isXml(head, length);
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds the blocks and tags of a FIN message by walking its raw bytes.
+ * <p>
+ * The tokenizer records offsets only. It does not decode or copy anything, and it
+ * reuses its offset arrays from one message to the next, so tokenizing a message
+ * does not allocate once the arrays have grown to fit the largest message.
+ * Values are decoded by the caller, and only for the fields it actually needs.
+ * <p>
+ * Block 3, block 5 and system messages with a block 4 made of <code>{name:value}</code>
+ * pairs are split into tags, as is a regular text block 4 made of <code>:name:value</code>
+ * lines. Blocks 1 and 2 are fixed length and are exposed as a whole.
+ */
+public class SwiftTokenizer {
+
+    private static final int INITIAL_TAG_COUNT = 64;
+
+    private byte[] buffer;
+    private int offset;
+    private int end;
+
+    // Content offsets of blocks 1 to 5, indexed by block number. -1 when the block is missing.
+    private final int[] blockStart = new int[6];
+    private final int[] blockEnd = new int[6];
+    private int blockCount;
+
+    private int tagCount;
+    private int[] tagBlock = new int[INITIAL_TAG_COUNT];
+    private int[] tagNameStart = new int[INITIAL_TAG_COUNT];
+    private int[] tagNameEnd = new int[INITIAL_TAG_COUNT];
+    private int[] tagValueStart = new int[INITIAL_TAG_COUNT];
+    private int[] tagValueEnd = new int[INITIAL_TAG_COUNT];
+
+    private String error;
+
+    /**
+     * Tokenizes a message.
+     *
+     * @param buffer the buffer holding the message
+     * @param offset the offset of the message in the buffer
+     * @param length the length of the message
+     * @return true if the message is well formed, false otherwise. See {@link #error()}.
+     */
+    public boolean tokenize(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.end = offset + length;
+        for (int i = 0; i < blockStart.length; i++) {
+            blockStart[i] = -1;
+            blockEnd[i] = -1;
+        }
+        blockCount = 0;
+        tagCount = 0;
+        error = null;
+
+        int pos = offset;
+        while (pos < end) {
+            byte b = buffer[pos];
+            if (b != '{') {
+                if (isWhitespace(b)) {
+                    pos++;
+                    continue;
+                }
+                return fail("Unexpected character outside of a block");
+            }
+            int idEnd = indexOf(':', pos + 1, end);
+            if (idEnd == -1) {
+                return fail("Block without identifier");
+            }
+            int contentStart = idEnd + 1;
+            int contentEnd = closingBrace(contentStart);
+            if (contentEnd == -1) {
+                return fail("Unterminated block");
+            }
+
+            int block = idEnd == pos + 2 ? buffer[pos + 1] - '0' : -1;
+            if (block >= 1 && block <= 5) {
+                if (blockStart[block] != -1) {
+                    return fail("Duplicate block");
+                }
+                blockStart[block] = contentStart;
+                blockEnd[block] = contentEnd;
+                if (block == 3 || block == 5) {
+                    if (!tokenizeBraceTags(block, contentStart, contentEnd)) {
+                        return false;
+                    }
+                } else if (block == 4) {
+                    if (!tokenizeBlock4(contentStart, contentEnd)) {
+                        return false;
+                    }
+                }
+            }
+            blockCount++;
+            pos = contentEnd + 1;
+        }
+
+        if (blockStart[1] == -1) {
+            return fail("Missing basic header block");
+        }
+        return true;
+    }
+
+    /**
+     * @return the reason the last message could not be tokenized, or null if it was well formed
+     */
+    public String error() {
+        return error;
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the offset of the message in the buffer
+     */
+    public int messageStart() {
+        return offset;
+    }
+
+    /**
+     * @return the offset in the buffer just past the end of the message
+     */
+    public int messageEnd() {
+        return end;
+    }
+
+    /**
+     * @return the number of blocks in the message, including user blocks
+     */
+    public int blockCount() {
+        return blockCount;
+    }
+
+    public boolean hasBlock(int block) {
+        return blockStart[block] != -1;
+    }
+
+    /**
+     * @return the offset of the first byte of the block content, after <code>{n:</code>
+     */
+    public int blockStart(int block) {
+        return blockStart[block];
+    }
+
+    /**
+     * @return the offset of the closing brace of the block
+     */
+    public int blockEnd(int block) {
+        return blockEnd[block];
+    }
+
+    public int blockLength(int block) {
+        return blockEnd[block] - blockStart[block];
+    }
+
+    public int tagCount() {
+        return tagCount;
+    }
+
+    /**
+     * @return the number of the block holding the tag
+     */
+    public int tagBlock(int tag) {
+        return tagBlock[tag];
+    }
+
+    public int tagNameStart(int tag) {
+        return tagNameStart[tag];
+    }
+
+    public int tagNameEnd(int tag) {
+        return tagNameEnd[tag];
+    }
+
+    public int tagValueStart(int tag) {
+        return tagValueStart[tag];
+    }
+
+    public int tagValueEnd(int tag) {
+        return tagValueEnd[tag];
+    }
+
+    public String tagName(int tag) {
+        return string(tagNameStart[tag], tagNameEnd[tag]);
+    }
+
+    public String tagValue(int tag) {
+        return string(tagValueStart[tag], tagValueEnd[tag]);
+    }
+
+    /**
+     * @return true if the name of the tag is the given ASCII name
+     */
+    public boolean tagNameEquals(int tag, String name) {
+        return regionEquals(tagNameStart[tag], tagNameEnd[tag], name);
+    }
+
+    /**
+     * Decodes a range of the buffer.
+     */
+    public String string(int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return true if the range of the buffer holds the given ASCII string
+     */
+    public boolean regionEquals(int start, int end, String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tokenizeBraceTags(int block, int start, int end) {
+        int pos = start;
+        while (pos < end) {
+            byte b = buffer[pos];
+            if (b != '{') {
+                if (isWhitespace(b)) {
+                    pos++;
+                    continue;
+                }
+                return fail("Unexpected character between tags");
+            }
+            int tagEnd = closingBrace(pos + 1);
+            if (tagEnd == -1 || tagEnd > end) {
+                return fail("Unterminated tag");
+            }
+            int colon = indexOf(':', pos + 1, tagEnd);
+            if (colon == -1) {
+                // A tag without a value, such as {PDE}
+                addTag(block, pos + 1, tagEnd, tagEnd, tagEnd);
+            } else {
+                addTag(block, pos + 1, colon, colon + 1, tagEnd);
+            }
+            pos = tagEnd + 1;
+        }
+        return true;
+    }
+
+    private boolean tokenizeBlock4(int start, int end) {
+        int pos = start;
+        while (pos < end && isWhitespace(buffer[pos])) {
+            pos++;
+        }
+        if (pos < end && buffer[pos] == '{') {
+            return tokenizeBraceTags(4, pos, end);
+        }
+
+        // Text block, terminated by a line holding a single hyphen
+        int textEnd = end;
+        if (textEnd > pos && buffer[textEnd - 1] == '-') {
+            textEnd--;
+        }
+        while (textEnd > pos && isWhitespace(buffer[textEnd - 1])) {
+            textEnd--;
+        }
+
+        while (pos < textEnd) {
+            if (buffer[pos] != ':') {
+                return fail("Malformed tag in block 4");
+            }
+            int nameEnd = indexOf(':', pos + 1, textEnd);
+            if (nameEnd == -1) {
+                return fail("Malformed tag in block 4");
+            }
+            int valueStart = nameEnd + 1;
+            int next = nextTextTag(valueStart, textEnd);
+            int valueEnd = next;
+            while (valueEnd > valueStart && (buffer[valueEnd - 1] == '\n' || buffer[valueEnd - 1] == '\r')) {
+                valueEnd--;
+            }
+            addTag(4, pos + 1, nameEnd, valueStart, valueEnd);
+            pos = next;
+        }
+        return true;
+    }
+
+    /**
+     * A field continues up to the next line starting with a colon. SWIFT does not
+     * allow field content lines to start with a colon.
+     */
+    private int nextTextTag(int pos, int textEnd) {
+        for (int i = pos; i < textEnd - 1; i++) {
+            if (buffer[i] == '\n' && buffer[i + 1] == ':') {
+                return i + 1;
+            }
+        }
+        return textEnd;
+    }
+
+    private void addTag(int block, int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (tagCount == tagBlock.length) {
+            int newSize = tagCount * 2;
+            tagBlock = grow(tagBlock, newSize);
+            tagNameStart = grow(tagNameStart, newSize);
+            tagNameEnd = grow(tagNameEnd, newSize);
+            tagValueStart = grow(tagValueStart, newSize);
+            tagValueEnd = grow(tagValueEnd, newSize);
+        }
+        tagBlock[tagCount] = block;
+        tagNameStart[tagCount] = nameStart;
+        tagNameEnd[tagCount] = nameEnd;
+        tagValueStart[tagCount] = valueStart;
+        tagValueEnd[tagCount] = valueEnd;
+        tagCount++;
+    }
+
+    /**
+     * @param pos the offset just past an opening brace
+     * @return the offset of the matching closing brace, or -1 if there is none
+     */
+    private int closingBrace(int pos) {
+        int depth = 1;
+        for (int i = pos; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '{') {
+                depth++;
+            } else if (b == '}') {
+                if (--depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b == c) {
+                return i;
+            }
+            if (b == '{' || b == '}') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean fail(String message) {
+        error = message;
+        return false;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static int[] grow(int[] array, int size) {
+        int[] newArray = new int[size];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.AutoCloseables;
+import org.apache.drill.exec.store.dfs.DrillFileSystem;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point up to which a file that keeps growing, such as the daily file of a SWIFT
+ * gateway, has been read by an incremental scan. The next incremental scan of the file
+ * only reads the messages appended since.
+ * <p>
+ * The watermark of <code>dir/file.fin</code> is held in the hidden file
+ * <code>dir/.file.fin.name.swiftwm</code>, next to the {@link SwiftMessageIndex} of the
+ * file. Its name is derived from the format config, so each format keeps a watermark of
+ * its own, but all the queries of a format share it: a message returned to one query is
+ * not returned to the next one, whatever its columns or filters.
+ * <p>
+ * The watermark holds the offset just past the last complete message read, the length and
+ * modification time of the file when it was read, and the last bytes of that message.
+ * When the file has changed since, the watermark only applies if the file still holds
+ * the same bytes in front of the offset, so that a file that was truncated or replaced
+ * by a new one of the same name is read again from the start.
+ * <p>
+ * The last message of the file may still be growing, even when its blocks look complete,
+ * as the trailer block may be appended later. It is only read once another message
+ * follows it or once the file has not changed for {@link #QUIET_PERIOD_MS}.
+ */
+public class SwiftWatermark {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftWatermark.class);
+
+    private static final String SUFFIX = ".swiftwm";
+    private static final int MAGIC = 0x5357574D;
+    private static final int VERSION = 1;
+    // Bytes in front of the offset compared to tell an appended file from a replaced one
+    public static final int TAIL_SIZE = 64;
+    // Time after which a file that has not changed is assumed to be fully written
+    static final long QUIET_PERIOD_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private SwiftWatermark() {
+    }
+
+    /**
+     * @param name the name of the watermark, see {@link #name(SwiftFormatConfig)}
+     * @return the path of the watermark of the file
+     */
+    public static Path watermarkPath(Path file, String name) {
+        return new Path(file.getParent(), "." + file.getName() + "." + name + SUFFIX);
+    }
+
+    /**
+     * @return the name of the watermarks of a format, which only depends on its config
+     */
+    public static String name(SwiftFormatConfig config) {
+        return Integer.toHexString(config.hashCode());
+    }
+
+    /**
+     * @return true if the file has not changed for {@link #QUIET_PERIOD_MS}, in which case
+     * its last message is complete
+     */
+    public static boolean isQuiet(DrillFileSystem fs, Path file) {
+        try {
+            long modificationTime = fs.getFileStatus(file).getModificationTime();
+            return System.currentTimeMillis() - modificationTime >= QUIET_PERIOD_MS;
+        } catch (IOException e) {
+            logger.debug("Unable to check whether {} is still being written", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the watermark of a file.
+     *
+     * @param fs the file system holding the file
+     * @param file the SWIFT file
+     * @param name the name of the watermark
+     * @param status the current status of the file
+     * @return the offset from which to read the file, or 0 if the file has no watermark
+     * matching its current content
+     */
+    public static long read(DrillFileSystem fs, Path file, String name, FileStatus status) {
+        Path watermarkPath = watermarkPath(file, name);
+        DataInputStream in = null;
+        try {
+            if (!fs.exists(watermarkPath)) {
+                return 0;
+            }
+            in = new DataInputStream(fs.open(watermarkPath));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.debug("Ignoring SWIFT watermark {} of another version", watermarkPath);
+                return 0;
+            }
+            long length = in.readLong();
+            long modificationTime = in.readLong();
+            long offset = in.readLong();
+            byte[] tail = new byte[in.readInt()];
+            in.readFully(tail);
+            if (length == status.getLen() && modificationTime == status.getModificationTime()) {
+                return offset;
+            }
+            if (offset > status.getLen() || !matchesTail(fs, file, offset, tail)) {
+                logger.debug("Ignoring SWIFT watermark {} of a file that was replaced", watermarkPath);
+                return 0;
+            }
+            return offset;
+        } catch (IOException e) {
+            logger.warn("Unable to read SWIFT watermark {}", watermarkPath, e);
+            return 0;
+        } finally {
+            AutoCloseables.closeSilently(in);
+        }
+    }
+
+    private static boolean matchesTail(DrillFileSystem fs, Path file, long offset, byte[] tail) throws IOException {
+        byte[] bytes = new byte[tail.length];
+        try (FSDataInputStream in = fs.open(file)) {
+            in.readFully(offset - tail.length, bytes, 0, bytes.length);
+        }
+        return Arrays.equals(bytes, tail);
+    }
+
+    /**
+     * Moves the watermark of a file past a message. The watermark is written to a temporary
+     * file first, so that a scan failing halfway leaves the old one in place. It is optional,
+     * so a failure to write it, for instance in a read only directory, is logged and ignored.
+     *
+     * @param name the name of the watermark
+     * @param status the status of the file when the scan started
+     * @param offset the offset just past the last complete message read
+     * @param tail the last bytes of the message, at most {@link #TAIL_SIZE}
+     * @param tailLength the number of bytes of the tail
+     */
+    public static void write(DrillFileSystem fs, Path file, String name, FileStatus status, long offset, byte[] tail,
+                             int tailLength) {
+        Path watermarkPath = watermarkPath(file, name);
+        Path tmpPath = new Path(file.getParent(), watermarkPath.getName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(fs.create(tmpPath, true))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(status.getLen());
+                out.writeLong(status.getModificationTime());
+                out.writeLong(offset);
+                out.writeInt(tailLength);
+                out.write(tail, 0, tailLength);
+            }
+            fs.delete(watermarkPath, false);
+            if (!fs.rename(tmpPath, watermarkPath)) {
+                throw new IOException("Unable to rename " + tmpPath + " to " + watermarkPath);
+            }
+            logger.debug("Moved SWIFT watermark {} to offset {}", watermarkPath, offset);
+        } catch (IOException e) {
+            logger.warn("Unable to write SWIFT watermark {}", watermarkPath, e);
+            try {
+                fs.delete(tmpPath, false);
+            } catch (IOException deleteError) {
+                logger.debug("Unable to delete {}", tmpPath, deleteError);
+            }
+        }
+    }
+}
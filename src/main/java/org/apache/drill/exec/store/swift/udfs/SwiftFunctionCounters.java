@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift.udfs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a parsing function, kept in its workspace so there is one set per
+ * fragment. Functions have no hook at the end of the query, so the counters are
+ * reported in the log instead of the profile: each failure is logged at debug
+ * level, and a summary is logged at warn level on the first failure and then each
+ * time the number of failures doubles, so broken messages do not go unnoticed
+ * without flooding the log.
+ * <p>
+ * The hits of {@link SwiftParseCache} are also added up per function across all
+ * fragments of the drillbit, see {@link #totalCacheHits(String)}.
+ */
+public class SwiftFunctionCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftFunctionCounters.class);
+
+    private static final ConcurrentHashMap<String, LongAdder> TOTAL_CACHE_HITS = new ConcurrentHashMap<>();
+
+    private final String function;
+    private long messages;
+    private long failures;
+    private long bytes;
+    private long largestMessage;
+    private long cacheHits;
+    private long cacheMisses;
+    private long nextReport = 1;
+    private final LongAdder totalCacheHits;
+
+    public SwiftFunctionCounters(String function) {
+        this.function = function;
+        this.totalCacheHits = TOTAL_CACHE_HITS.computeIfAbsent(function, name -> new LongAdder());
+    }
+
+    /**
+     * @return the number of messages the function found in {@link SwiftParseCache} since the drillbit started
+     */
+    public static long totalCacheHits(String function) {
+        LongAdder hits = TOTAL_CACHE_HITS.get(function);
+        return hits == null ? 0 : hits.sum();
+    }
+
+    /**
+     * Counts a message passed to the function.
+     */
+    public void message(int length) {
+        messages++;
+        bytes += length;
+        largestMessage = Math.max(largestMessage, length);
+    }
+
+    /**
+     * Counts a message found in {@link SwiftParseCache}.
+     */
+    public void cacheHit() {
+        cacheHits++;
+        totalCacheHits.increment();
+    }
+
+    /**
+     * Counts a message parsed because it was not in {@link SwiftParseCache}.
+     */
+    public void cacheMiss() {
+        cacheMisses++;
+    }
+
+    /**
+     * Counts a message the function could not parse.
+     */
+    public void failure(String error) {
+        failures++;
+        logger.debug("{} was unable to parse a SWIFT message: {}", function, error);
+        if (failures == nextReport) {
+            nextReport *= 2;
+            logger.warn("{} was unable to parse {} of {} SWIFT messages so far ({} bytes, largest message {} bytes). Last error: {}",
+                    function, failures, messages, bytes, largestMessage, error);
+        }
+    }
+
+    public long messages() {
+        return messages;
+    }
+
+    public long failures() {
+        return failures;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public long largestMessage() {
+        return largestMessage;
+    }
+
+    public long cacheHits() {
+        return cacheHits;
+    }
+
+    public long cacheMisses() {
+        return cacheMisses;
+    }
+}
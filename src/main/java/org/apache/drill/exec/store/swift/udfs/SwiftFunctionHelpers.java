@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift.udfs;
+
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.exec.store.swift.SwiftBicDirectory;
+import org.apache.drill.exec.store.swift.SwiftHeaderPart;
+import org.apache.drill.exec.store.swift.SwiftTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Helpers for the SWIFT functions. Function arguments such as a tag name or header part
+ * are usually constants, so the functions keep the last resolved argument and only
+ * resolve it again when the argument bytes change.
+ */
+public class SwiftFunctionHelpers {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwiftFunctionHelpers.class);
+
+    private SwiftFunctionHelpers() {
+    }
+
+    /**
+     * @return true if the buffer range holds the given ASCII string
+     */
+    public static boolean asciiEquals(DrillBuf buffer, int start, int end, String value) {
+        if (value == null || end - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer.getByte(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the string held in the buffer range
+     */
+    public static String toString(DrillBuf buffer, int start, int end) {
+        return buffer.toString(start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Normalizes a tag name argument, such as <code>:32a:</code>, to the tag name <code>32A</code>.
+     */
+    public static String tagName(String tag) {
+        String name = tag.trim();
+        if (name.startsWith(":")) {
+            name = name.substring(1);
+        }
+        if (name.endsWith(":")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Resolves a header part argument.
+     *
+     * @throws UserException if there is no such header part
+     */
+    public static SwiftHeaderPart headerPart(String name) {
+        SwiftHeaderPart part = SwiftHeaderPart.fromName(name.trim());
+        if (part == null) {
+            throw UserException.functionError()
+                    .message("Unknown SWIFT header part: %s", name)
+                    .build(logger);
+        }
+        return part;
+    }
+
+    /**
+     * Finds the first tag with the given name in blocks 3, 4 or 5.
+     *
+     * @return the index of the tag in the tokenizer, or -1 if the message has no such tag
+     */
+    public static int findTag(SwiftTokenizer tokenizer, String tagName) {
+        for (int i = 0; i < tokenizer.tagCount(); i++) {
+            if (tokenizer.tagNameEquals(i, tagName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the BIC11 of a 12 character logical terminal address held in the source
+     * buffer into the output buffer.
+     *
+     * @return the output buffer, reallocated if needed
+     */
+    public static DrillBuf writeBic11(DrillBuf source, int terminalStart, DrillBuf out) {
+        out = out.reallocIfNeeded(SwiftHeaderPart.BIC11_LENGTH);
+        out.setBytes(0, source, terminalStart, 8);
+        out.setBytes(8, source, terminalStart + 9, 3);
+        return out;
+    }
+
+    /**
+     * @return the BIC directory set by the {@link SwiftBicDirectory#PATH_PROPERTY} system property
+     * @throws UserException if the property is not set or the directory cannot be read
+     */
+    public static SwiftBicDirectory bicDirectory() {
+        String path = System.getProperty(SwiftBicDirectory.PATH_PROPERTY);
+        if (path == null || path.trim().isEmpty()) {
+            throw UserException.functionError()
+                    .message("No BIC directory, set the %s system property of the drillbits", SwiftBicDirectory.PATH_PROPERTY)
+                    .build(logger);
+        }
+        return SwiftBicDirectory.forPath(path.trim());
+    }
+
+    /**
+     * Resolves an attribute argument of a BIC directory lookup.
+     *
+     * @throws UserException if the directory has no such attribute
+     */
+    public static int bicAttribute(SwiftBicDirectory.Table table, String name) {
+        int attribute = table.attributeIndex(name);
+        if (attribute == -1) {
+            throw UserException.functionError()
+                    .message("Unknown BIC directory attribute: %s", name)
+                    .addContext("Attributes", String.join(", ", table.attributes()))
+                    .build(logger);
+        }
+        return attribute;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift.udfs;
+
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.exec.expr.holders.VarCharHolder;
+import org.apache.drill.exec.store.swift.SwiftFieldSink;
+import org.apache.drill.exec.store.swift.SwiftOutputMode;
+import org.apache.drill.exec.vector.complex.writer.BaseWriter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the fields of a parsed message into the list output of a UDF, as one map per
+ * field with the same keys as the columns of the long output mode, see
+ * {@link SwiftOutputMode#LONG}. The sink may reallocate the output buffer, so the
+ * function must take it back through {@link #buffer()} once the message has been written.
+ */
+public class SwiftKeyValueWriterSink implements SwiftFieldSink {
+
+    private final VarCharHolder holder = new VarCharHolder();
+    private BaseWriter.ListWriter writer;
+    private DrillBuf buffer;
+    private int block;
+    private String tag;
+
+    public SwiftKeyValueWriterSink reset(BaseWriter.ListWriter writer, DrillBuf buffer) {
+        this.writer = writer;
+        this.buffer = buffer;
+        this.block = 0;
+        this.tag = null;
+        return this;
+    }
+
+    public DrillBuf buffer() {
+        return buffer;
+    }
+
+    @Override
+    public boolean needsSources() {
+        return true;
+    }
+
+    @Override
+    public void source(int block, String tag) {
+        this.block = block;
+        this.tag = tag;
+    }
+
+    @Override
+    public void string(String name, String value) {
+        BaseWriter.MapWriter entry = writer.map();
+        entry.start();
+        if (block != 0) {
+            entry.integer(SwiftOutputMode.BLOCK_COLUMN).writeInt(block);
+        }
+        if (tag != null) {
+            write(entry, SwiftOutputMode.TAG_COLUMN, tag);
+        }
+        write(entry, SwiftOutputMode.LABEL_COLUMN, name);
+        write(entry, SwiftOutputMode.VALUE_COLUMN, value);
+        entry.end();
+    }
+
+    private void write(BaseWriter.MapWriter entry, String key, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer = buffer.reallocIfNeeded(bytes.length);
+        buffer.setBytes(0, bytes);
+
+        holder.start = 0;
+        holder.end = bytes.length;
+        holder.buffer = buffer;
+        entry.varChar(key).write(holder);
+    }
+}
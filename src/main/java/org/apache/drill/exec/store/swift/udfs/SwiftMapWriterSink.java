@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift.udfs;
+
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.exec.expr.holders.VarCharHolder;
+import org.apache.drill.exec.store.swift.SwiftFieldSink;
+import org.apache.drill.exec.store.swift.SwiftMessageParser;
+import org.apache.drill.exec.vector.complex.writer.BaseWriter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the fields of a parsed message into the map output of a UDF. The sink may
+ * reallocate the output buffer, so the function must take it back through
+ * {@link #buffer()} once the message has been written.
+ */
+public class SwiftMapWriterSink implements SwiftFieldSink {
+
+    private final VarCharHolder holder = new VarCharHolder();
+    private BaseWriter.MapWriter writer;
+    private DrillBuf buffer;
+
+    public SwiftMapWriterSink reset(BaseWriter.MapWriter writer, DrillBuf buffer) {
+        this.writer = writer;
+        this.buffer = buffer;
+        return this;
+    }
+
+    public DrillBuf buffer() {
+        return buffer;
+    }
+
+    @Override
+    public void string(String name, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer = buffer.reallocIfNeeded(bytes.length);
+        buffer.setBytes(0, bytes);
+
+        holder.start = 0;
+        holder.end = bytes.length;
+        holder.buffer = buffer;
+        writer.varChar(name).write(holder);
+    }
+
+    @Override
+    public void date(String name, LocalDate value) {
+        // Drill dates are held as milliseconds since the epoch, at midnight UTC
+        writer.date(name).writeDate(TimeUnit.DAYS.toMillis(value.toEpochDay()));
+    }
+
+    @Override
+    public void decimal(String name, BigDecimal value) {
+        writer.varDecimal(name, SwiftMessageParser.AMOUNT_SCALE, SwiftMessageParser.AMOUNT_PRECISION)
+                .writeVarDecimal(value);
+    }
+}
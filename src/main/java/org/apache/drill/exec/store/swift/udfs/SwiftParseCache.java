@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.drill.exec.store.swift.udfs;
+
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.exec.expr.fn.impl.XXHash;
+import org.apache.drill.exec.store.swift.SwiftMessageParser;
+import org.apache.drill.exec.store.swift.SwiftProjection;
+import org.apache.drill.exec.store.swift.SwiftRecord;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * The last few messages parsed by <code>parse_swift_cached</code>, with their fields,
+ * so that an operator calling the function several times on the same row parses the
+ * message once. Each call of a function in a query has its own workspace, so the cache
+ * is kept per thread instead, and shared by all the calls running on that thread.
+ * <p>
+ * Drill evaluates each operator over a whole batch before the next operator starts, so
+ * the cache only serves the calls of one operator on the same row, such as several
+ * fields taken from the same message in a select list. A call in the select list and
+ * another in the <code>WHERE</code> clause are made by different operators, a batch
+ * apart, and both parse the message.
+ * <p>
+ * Messages are looked up by the hash and length of their bytes, then compared in
+ * full, so a hash collision cannot return the fields of another message. The cache
+ * holds at most {@link #ENTRIES} messages of at most {@link #MAX_MESSAGE_SIZE} bytes
+ * each, replaced in turn, and is only softly reachable from its thread, so the memory
+ * of the cache of an idle thread can be reclaimed once the query is over.
+ */
+public class SwiftParseCache {
+
+    public static final int ENTRIES = 4;
+    public static final int MAX_MESSAGE_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<SoftReference<SwiftParseCache>> CACHES = new ThreadLocal<>();
+
+    private final SwiftMessageParser parser = new SwiftMessageParser(SwiftProjection.ALL);
+    private final SwiftRecord[] records = new SwiftRecord[ENTRIES];
+    private final long[] hashes = new long[ENTRIES];
+    private int next;
+
+    private SwiftParseCache() {
+    }
+
+    /**
+     * @return the cache of the current thread
+     */
+    public static SwiftParseCache current() {
+        SoftReference<SwiftParseCache> reference = CACHES.get();
+        SwiftParseCache cache = reference == null ? null : reference.get();
+        if (cache == null) {
+            cache = new SwiftParseCache();
+            CACHES.set(new SoftReference<>(cache));
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the parsed fields of a message, parsing it unless it is in the cache. The
+     * record is valid until the next call on the thread.
+     *
+     * @param counters the counters of the calling function, which count the cache hits and misses
+     * @return the record of the message, which may have failed to parse, see
+     * {@link SwiftRecord#isParsed()}, or null if the message is too large to be cached
+     */
+    public SwiftRecord parse(DrillBuf buffer, int start, int end, SwiftFunctionCounters counters) {
+        if (end - start > MAX_MESSAGE_SIZE) {
+            return null;
+        }
+        long hash = XXHash.hash64(start, end, buffer, 0);
+        for (int i = 0; i < ENTRIES; i++) {
+            SwiftRecord record = records[i];
+            if (record != null && hashes[i] == hash && record.holds(buffer, start, end)) {
+                counters.cacheHit();
+                return record;
+            }
+        }
+
+        counters.cacheMiss();
+        SwiftRecord record = records[next];
+        if (record == null) {
+            record = new SwiftRecord();
+            records[next] = record;
+        }
+        record.reset(buffer, start, end);
+        record.parse(parser);
+        hashes[next] = hash;
+        next = (next + 1) % ENTRIES;
+        return record;
+    }
+}
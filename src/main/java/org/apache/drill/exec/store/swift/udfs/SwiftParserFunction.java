@@ -23,6 +23,8 @@ import org.apache.drill.exec.expr.DrillSimpleFunc;
 import org.apache.drill.exec.expr.annotations.FunctionTemplate;
 import org.apache.drill.exec.expr.annotations.Output;
 import org.apache.drill.exec.expr.annotations.Param;
+import org.apache.drill.exec.expr.annotations.Workspace;
+import org.apache.drill.exec.expr.holders.NullableBigIntHolder;
 import org.apache.drill.exec.expr.holders.NullableVarCharHolder;
 import org.apache.drill.exec.vector.complex.writer.BaseWriter;
 
@@ -46,46 +48,521 @@ public class SwiftParserFunction {
         @Inject
         DrillBuf outBuffer;
 
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftMessageParser parser;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.udfs.SwiftMapWriterSink sink;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters counters;
+
         @Override
         public void setup() {
-            // no op
+            parser = new org.apache.drill.exec.store.swift.SwiftMessageParser(org.apache.drill.exec.store.swift.SwiftProjection.ALL);
+            sink = new org.apache.drill.exec.store.swift.udfs.SwiftMapWriterSink();
+            counters = new org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters("swift_parse");
+        }
+
+        @Override
+        public void eval() {
+            org.apache.drill.exec.vector.complex.writer.BaseWriter.MapWriter queryMapWriter = outWriter.rootAsMap();
+
+            // If the message is empty or parsing failed, return an empty map
+            if (messageText.isSet == 0) {
+                queryMapWriter.start();
+                queryMapWriter.end();
+                return;
+            }
+
+            counters.message(messageText.end - messageText.start);
+            sink.reset(queryMapWriter, outBuffer);
+            boolean parsed = parser.parse(messageText.buffer, messageText.start, messageText.end, sink);
+            outBuffer = sink.buffer();
+            if (!parsed) {
+                counters.failure(parser.error());
+                queryMapWriter.start();
+                queryMapWriter.end();
+            }
+        }
+    }
+
+    /**
+     * Parses a FIN message like <code>parse_swift</code>, but keeps the fields of the last
+     * few messages, so that calling the function again on the same message in the same
+     * select list, as to take several fields from it, does not parse it again. Calls in
+     * different clauses of a query run in different operators and do not share the
+     * parsed message. See {@link SwiftParseCache}.
+     */
+    @FunctionTemplate(
+            names = {"parse_swift_cached", "swift_parse_cached"},
+            scope = FunctionTemplate.FunctionScope.SIMPLE)
+    public static class SwiftParseCached implements DrillSimpleFunc {
+        @Param
+        NullableVarCharHolder messageText;
+
+        @Output
+        BaseWriter.ComplexWriter outWriter;
+
+        @Inject
+        DrillBuf outBuffer;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftMessageParser parser;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.udfs.SwiftMapWriterSink sink;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters counters;
+
+        @Override
+        public void setup() {
+            // Parses the messages too large for the cache
+            parser = new org.apache.drill.exec.store.swift.SwiftMessageParser(org.apache.drill.exec.store.swift.SwiftProjection.ALL);
+            sink = new org.apache.drill.exec.store.swift.udfs.SwiftMapWriterSink();
+            counters = new org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters("parse_swift_cached");
         }
 
         @Override
         public void eval() {
-            String raw_message = org.apache.drill.exec.expr.fn.impl.StringFunctionHelpers.getStringFromVarCharHolder(messageText);
-            java.util.HashMap parsedSwiftData = org.apache.drill.exec.store.swift.SwiftUtils.parseMessage(raw_message);
+            org.apache.drill.exec.vector.complex.writer.BaseWriter.MapWriter queryMapWriter = outWriter.rootAsMap();
 
             // If the message is empty or parsing failed, return an empty map
-            if (messageText.isSet == 0 || parsedSwiftData == null) {
-                org.apache.drill.exec.vector.complex.writer.BaseWriter.MapWriter queryMapWriter = outWriter.rootAsMap();
+            if (messageText.isSet == 0) {
                 queryMapWriter.start();
                 queryMapWriter.end();
                 return;
             }
 
+            counters.message(messageText.end - messageText.start);
+            sink.reset(queryMapWriter, outBuffer);
+            org.apache.drill.exec.store.swift.SwiftRecord record = org.apache.drill.exec.store.swift.udfs.SwiftParseCache.current()
+                    .parse(messageText.buffer, messageText.start, messageText.end, counters);
+            boolean parsed;
+            String error;
+            if (record == null) {
+                parsed = parser.parse(messageText.buffer, messageText.start, messageText.end, sink);
+                error = parser.error();
+            } else {
+                parsed = record.isParsed();
+                error = record.error();
+                if (parsed) {
+                    record.replay(sink);
+                }
+            }
+            outBuffer = sink.buffer();
+            if (!parsed) {
+                counters.failure(error);
+                queryMapWriter.start();
+                queryMapWriter.end();
+            }
+        }
+    }
+
+    /**
+     * Parses an ISO 20022 (MX) document into a map holding its message type and a
+     * <code>transactions</code> array, with one map per transaction. The transactions
+     * have the same fields as the rows of the format plugin.
+     */
+    @FunctionTemplate(
+            names = {"parse_swift_mx", "swift_parse_mx"},
+            scope = FunctionTemplate.FunctionScope.SIMPLE)
+    public static class SwiftParseMx implements DrillSimpleFunc {
+        @Param
+        NullableVarCharHolder messageText;
+
+        @Output
+        BaseWriter.ComplexWriter outWriter;
+
+        @Inject
+        DrillBuf outBuffer;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftMxParser parser;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftRecord transaction;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.udfs.SwiftMapWriterSink sink;
 
+        @Workspace
+        org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters counters;
+
+        @Override
+        public void setup() {
+            parser = new org.apache.drill.exec.store.swift.SwiftMxParser(org.apache.drill.exec.store.swift.SwiftProjection.ALL);
+            transaction = new org.apache.drill.exec.store.swift.SwiftRecord();
+            sink = new org.apache.drill.exec.store.swift.udfs.SwiftMapWriterSink();
+            counters = new org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters("parse_swift_mx");
+        }
+
+        @Override
+        public void eval() {
+            org.apache.drill.exec.vector.complex.writer.BaseWriter.MapWriter queryMapWriter = outWriter.rootAsMap();
+            queryMapWriter.start();
+            if (messageText.isSet == 0) {
+                queryMapWriter.end();
+                return;
+            }
+
+            counters.message(messageText.end - messageText.start);
+            org.apache.drill.exec.vector.complex.writer.BaseWriter.ListWriter transactions = queryMapWriter.list("transactions");
+            transactions.startList();
             try {
-                org.apache.drill.exec.vector.complex.writer.BaseWriter.MapWriter queryMapWriter = outWriter.rootAsMap();
-                java.util.Iterator fieldIterator = parsedSwiftData.keySet().iterator();
-                while (fieldIterator.hasNext()) {
-                    String fieldName = (String) fieldIterator.next();
-                    String field = (String) parsedSwiftData.get(fieldName);
-                    org.apache.drill.exec.expr.holders.VarCharHolder rowHolder = new org.apache.drill.exec.expr.holders.VarCharHolder();
-
-                    byte[] rowStringBytes = field.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-                    outBuffer = outBuffer.reallocIfNeeded(rowStringBytes.length);
-                    outBuffer.setBytes(0, rowStringBytes);
-
-                    rowHolder.start = 0;
-                    rowHolder.end = rowStringBytes.length;
-                    rowHolder.buffer = outBuffer;
-
-                    queryMapWriter.varChar(fieldName).write(rowHolder);
+                parser.open(new io.netty.buffer.ByteBufInputStream(
+                        messageText.buffer.slice(messageText.start, messageText.end - messageText.start)));
+                // Each transaction is buffered, so that no empty map is left after the last one
+                transaction.clear();
+                while (parser.next(transaction)) {
+                    org.apache.drill.exec.vector.complex.writer.BaseWriter.MapWriter transactionWriter = transactions.map();
+                    transactionWriter.start();
+                    sink.reset(transactionWriter, outBuffer);
+                    transaction.replay(sink);
+                    outBuffer = sink.buffer();
+                    transactionWriter.end();
+                    transaction.clear();
                 }
-            } catch (Exception e) {
-                // Log or handle error
+            } catch (java.io.IOException e) {
+                counters.failure(e.getMessage());
+            }
+            transactions.endList();
+
+            String messageType = parser.messageType();
+            if (messageType != null) {
+                sink.reset(queryMapWriter, outBuffer);
+                sink.string(org.apache.drill.exec.store.swift.SwiftMxParser.MESSAGE_TYPE, messageType);
+                outBuffer = sink.buffer();
+            }
+            queryMapWriter.end();
+        }
+    }
+
+    /**
+     * Parses a FIN message into a list with one map per field, holding the block, tag,
+     * label and value of the field, like the rows of the long output mode of the format
+     * plugin. Flattening the list gives the fields of messages of any type without the
+     * sparse columns of <code>parse_swift</code>. A malformed message gives an empty list.
+     */
+    @FunctionTemplate(
+            names = {"parse_swift_kv", "swift_parse_kv"},
+            scope = FunctionTemplate.FunctionScope.SIMPLE)
+    public static class SwiftParseKeyValue implements DrillSimpleFunc {
+        @Param
+        NullableVarCharHolder messageText;
+
+        @Output
+        BaseWriter.ComplexWriter outWriter;
+
+        @Inject
+        DrillBuf outBuffer;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftMessageParser parser;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftRecord fields;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.udfs.SwiftKeyValueWriterSink sink;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters counters;
+
+        @Override
+        public void setup() {
+            parser = new org.apache.drill.exec.store.swift.SwiftMessageParser(org.apache.drill.exec.store.swift.SwiftProjection.ALL,
+                    java.util.Locale.getDefault(), org.apache.drill.exec.store.swift.SwiftRepeatedTags.ARRAY);
+            fields = new org.apache.drill.exec.store.swift.SwiftRecord(true);
+            sink = new org.apache.drill.exec.store.swift.udfs.SwiftKeyValueWriterSink();
+            counters = new org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters("parse_swift_kv");
+        }
+
+        @Override
+        public void eval() {
+            org.apache.drill.exec.vector.complex.writer.BaseWriter.ListWriter listWriter = outWriter.rootAsList();
+            listWriter.startList();
+            if (messageText.isSet == 0) {
+                listWriter.endList();
+                return;
+            }
+
+            counters.message(messageText.end - messageText.start);
+            // The fields are buffered, so that a malformed message leaves no partial list
+            fields.clear();
+            if (parser.parse(messageText.buffer, messageText.start, messageText.end, fields)) {
+                sink.reset(listWriter, outBuffer);
+                fields.replay(sink);
+                outBuffer = sink.buffer();
+            } else {
+                counters.failure(parser.error());
+            }
+            listWriter.endList();
+        }
+    }
+
+    /**
+     * Returns the message type of a FIN message, such as <code>103</code>, by reading it
+     * from the application header without parsing the rest of the message.
+     */
+    @FunctionTemplate(
+            names = {"swift_message_type"},
+            scope = FunctionTemplate.FunctionScope.SIMPLE)
+    public static class SwiftMessageType implements DrillSimpleFunc {
+        @Param
+        NullableVarCharHolder messageText;
+
+        @Output
+        NullableVarCharHolder out;
+
+        @Override
+        public void setup() {
+            // no op
+        }
+
+        @Override
+        public void eval() {
+            long range = messageText.isSet == 0 ? org.apache.drill.exec.store.swift.SwiftHeaderPart.NOT_FOUND
+                    : org.apache.drill.exec.store.swift.SwiftHeaderPart.MESSAGE_TYPE.locate(messageText.buffer, messageText.start, messageText.end);
+            if (range == org.apache.drill.exec.store.swift.SwiftHeaderPart.NOT_FOUND) {
+                out.isSet = 0;
+                return;
+            }
+            // The result points into the input buffer, no copy is needed
+            out.isSet = 1;
+            out.buffer = messageText.buffer;
+            out.start = org.apache.drill.exec.store.swift.SwiftHeaderPart.start(range);
+            out.end = org.apache.drill.exec.store.swift.SwiftHeaderPart.end(range);
+        }
+    }
+
+    /**
+     * Returns a fixed position part of the basic or application header of a FIN message,
+     * such as <code>swift_header(msg, 'sender')</code> or <code>swift_header(msg, 'mir_date')</code>.
+     * Sender and receiver are returned as BIC11.
+     */
+    @FunctionTemplate(
+            names = {"swift_header"},
+            scope = FunctionTemplate.FunctionScope.SIMPLE)
+    public static class SwiftHeader implements DrillSimpleFunc {
+        @Param
+        NullableVarCharHolder messageText;
+
+        @Param
+        NullableVarCharHolder partName;
+
+        @Output
+        NullableVarCharHolder out;
+
+        @Inject
+        DrillBuf outBuffer;
+
+        @Workspace
+        String lastPartName;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftHeaderPart part;
+
+        @Override
+        public void setup() {
+            // no op
+        }
+
+        @Override
+        public void eval() {
+            if (messageText.isSet == 0 || partName.isSet == 0) {
+                out.isSet = 0;
+                return;
+            }
+            if (!org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.asciiEquals(partName.buffer, partName.start, partName.end, lastPartName)) {
+                lastPartName = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.toString(partName.buffer, partName.start, partName.end);
+                part = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.headerPart(lastPartName);
+            }
+
+            long range = part.locate(messageText.buffer, messageText.start, messageText.end);
+            if (range == org.apache.drill.exec.store.swift.SwiftHeaderPart.NOT_FOUND) {
+                out.isSet = 0;
+                return;
+            }
+            int start = org.apache.drill.exec.store.swift.SwiftHeaderPart.start(range);
+            out.isSet = 1;
+            if (part.isBic()) {
+                outBuffer = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.writeBic11(messageText.buffer, start, outBuffer);
+                out.buffer = outBuffer;
+                out.start = 0;
+                out.end = org.apache.drill.exec.store.swift.SwiftHeaderPart.BIC11_LENGTH;
+            } else {
+                out.buffer = messageText.buffer;
+                out.start = start;
+                out.end = org.apache.drill.exec.store.swift.SwiftHeaderPart.end(range);
+            }
+        }
+    }
+
+    /**
+     * Returns the raw value of the first occurrence of a tag in blocks 3, 4 or 5 of a FIN
+     * message, such as <code>swift_extract(msg, '32A')</code>, without decoding any other field.
+     */
+    @FunctionTemplate(
+            names = {"swift_extract"},
+            scope = FunctionTemplate.FunctionScope.SIMPLE)
+    public static class SwiftExtract implements DrillSimpleFunc {
+        @Param
+        NullableVarCharHolder messageText;
+
+        @Param
+        NullableVarCharHolder tagText;
+
+        @Output
+        NullableVarCharHolder out;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftMessageParser parser;
+
+        @Workspace
+        String lastTagText;
+
+        @Workspace
+        String tagName;
+
+        @Override
+        public void setup() {
+            parser = new org.apache.drill.exec.store.swift.SwiftMessageParser(org.apache.drill.exec.store.swift.SwiftProjection.ALL);
+        }
+
+        @Override
+        public void eval() {
+            if (messageText.isSet == 0 || tagText.isSet == 0) {
+                out.isSet = 0;
+                return;
+            }
+            if (!org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.asciiEquals(tagText.buffer, tagText.start, tagText.end, lastTagText)) {
+                lastTagText = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.toString(tagText.buffer, tagText.start, tagText.end);
+                tagName = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.tagName(lastTagText);
+            }
+
+            if (!parser.tokenize(messageText.buffer, messageText.start, messageText.end)) {
+                out.isSet = 0;
+                return;
+            }
+            org.apache.drill.exec.store.swift.SwiftTokenizer tokenizer = parser.tokenizer();
+            int tag = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.findTag(tokenizer, tagName);
+            if (tag == -1) {
+                out.isSet = 0;
+                return;
+            }
+            // Tokenizer offsets are relative to the start of the message in the input buffer
+            out.isSet = 1;
+            out.buffer = messageText.buffer;
+            out.start = messageText.start + tokenizer.tagValueStart(tag);
+            out.end = messageText.start + tokenizer.tagValueEnd(tag);
+        }
+    }
+
+    /**
+     * Returns a 64 bit hash of the business content of a FIN message, which is the same for
+     * all copies of the message whatever their session numbers, trailers or line endings.
+     * See {@link org.apache.drill.exec.store.swift.SwiftFingerprint}.
+     */
+    @FunctionTemplate(
+            names = {"swift_fingerprint"},
+            scope = FunctionTemplate.FunctionScope.SIMPLE)
+    public static class SwiftFingerprintFunction implements DrillSimpleFunc {
+        @Param
+        NullableVarCharHolder messageText;
+
+        @Output
+        NullableBigIntHolder out;
+
+        @Override
+        public void setup() {
+            // no op
+        }
+
+        @Override
+        public void eval() {
+            long hash = messageText.isSet == 0 ? org.apache.drill.exec.store.swift.SwiftFingerprint.NOT_FOUND
+                    : org.apache.drill.exec.store.swift.SwiftFingerprint.fingerprint(messageText.buffer, messageText.start, messageText.end);
+            if (hash == org.apache.drill.exec.store.swift.SwiftFingerprint.NOT_FOUND) {
+                out.isSet = 0;
+                return;
+            }
+            out.isSet = 1;
+            out.value = hash;
+        }
+    }
+
+    /**
+     * Returns an attribute of the entry of a BIC8, BIC11 or logical terminal address in
+     * the BIC directory of the drillbit, such as <code>swift_bic_lookup(bic, 'name')</code>.
+     * A branch which is not in the directory falls back to its head office.
+     * See {@link org.apache.drill.exec.store.swift.SwiftBicDirectory}.
+     */
+    @FunctionTemplate(
+            names = {"swift_bic_lookup"},
+            scope = FunctionTemplate.FunctionScope.SIMPLE)
+    public static class SwiftBicLookup implements DrillSimpleFunc {
+        @Param
+        NullableVarCharHolder bicText;
+
+        @Param
+        NullableVarCharHolder attributeName;
+
+        @Output
+        NullableVarCharHolder out;
+
+        @Inject
+        DrillBuf outBuffer;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftBicDirectory directory;
+
+        @Workspace
+        org.apache.drill.exec.store.swift.SwiftBicDirectory.Table table;
+
+        @Workspace
+        String lastAttributeName;
+
+        @Workspace
+        int attribute;
+
+        @Override
+        public void setup() {
+            directory = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.bicDirectory();
+        }
+
+        @Override
+        public void eval() {
+            if (bicText.isSet == 0 || attributeName.isSet == 0) {
+                out.isSet = 0;
+                return;
+            }
+            // The table changes when the directory file is reloaded
+            org.apache.drill.exec.store.swift.SwiftBicDirectory.Table current = directory.table();
+            if (current != table || !org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.asciiEquals(attributeName.buffer, attributeName.start, attributeName.end, lastAttributeName)) {
+                table = current;
+                lastAttributeName = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.toString(attributeName.buffer, attributeName.start, attributeName.end);
+                attribute = org.apache.drill.exec.store.swift.udfs.SwiftFunctionHelpers.bicAttribute(table, lastAttributeName);
+            }
+
+            int record = table.lookup(bicText.buffer, bicText.start, bicText.end);
+            if (record == org.apache.drill.exec.store.swift.SwiftBicDirectory.NOT_FOUND) {
+                out.isSet = 0;
+                return;
+            }
+            int start = table.valueStart(record, attribute);
+            int length = table.valueLength(start);
+            if (length == 0) {
+                out.isSet = 0;
+                return;
             }
+            outBuffer = outBuffer.reallocIfNeeded(length);
+            table.copyValue(start, length, outBuffer);
+            out.isSet = 1;
+            out.buffer = outBuffer;
+            out.start = 0;
+            out.end = length;
         }
     }
 }
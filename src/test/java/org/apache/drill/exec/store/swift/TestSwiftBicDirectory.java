@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestSwiftBicDirectory {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBicDirectoryLoadAndReload() throws Exception {
+        // More entries than the initial table holds, so that the table grows while the file is read
+        Path path = folder.newFile("bic_directory.txt").toPath();
+        StringBuilder directory = new StringBuilder("bic\tname\tcountry\n");
+        for (int i = 0; i < 5000; i++) {
+            directory.append(String.format("BK%04dBE\tBank %d\tBE\n", i, i));
+        }
+        directory.append("BANKBEBBXXX\tHead office\tBE\n");
+        Files.write(path, directory.toString().getBytes(StandardCharsets.UTF_8));
+
+        SwiftBicDirectory bicDirectory = SwiftBicDirectory.forPath(path.toString());
+        SwiftBicDirectory.Table table = bicDirectory.table();
+        assertEquals(5001, table.size());
+        assertEquals("Bank 4321", table.value(table.lookup("BK4321BEXXX"), 0));
+        // A branch falls back to its head office
+        assertEquals("Head office", table.value(table.lookup("BANKBEBB123"), 0));
+        assertEquals(SwiftBicDirectory.NOT_FOUND, table.lookup("NOTABICX"));
+
+        // The changed file is loaded in the background, then replaces the table
+        Files.write(path, "bic\tname\nBANKBEBB\tRenamed\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        bicDirectory.checkForChanges().get();
+        SwiftBicDirectory.Table reloaded = bicDirectory.table();
+        assertEquals(1, reloaded.size());
+        assertEquals("Renamed", reloaded.value(reloaded.lookup("BANKBEBBXXX"), 0));
+        // The previous table is left as it was for the lookups still using it
+        assertEquals("Bank 4321", table.value(table.lookup("BK4321BEXXX"), 0));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.types.TypeProtos.DataMode;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.physical.resultSet.ResultSetLoader;
+import org.apache.drill.exec.physical.resultSet.RowSetLoader;
+import org.apache.drill.exec.physical.resultSet.impl.ResultSetLoaderImpl;
+import org.apache.drill.exec.physical.rowSet.RowSet;
+import org.apache.drill.exec.physical.rowSet.RowSetReader;
+import org.apache.drill.exec.record.metadata.MetadataUtils;
+import org.apache.drill.test.SubOperatorTest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSwiftColumnSink extends SubOperatorTest {
+
+    @Test
+    public void testSchemaWidensAcrossBatches() throws IOException {
+        byte[][] messages = readMessages();
+        String[] types = {"103", "202", "940"};
+        String[] references = {"0061350113089908", "TRN202REF", "STMT20230915"};
+
+        ResultSetLoader loader = new ResultSetLoaderImpl(fixture.allocator());
+        RowSetLoader rowWriter = loader.writer();
+        SwiftColumnSink sink = new SwiftColumnSink(rowWriter, false);
+        SwiftMessageParser parser = new SwiftMessageParser(SwiftProjection.ALL);
+
+        // One message per batch, each message type adds columns. The first message is read
+        // again at the end, after another writer has changed the schema.
+        int columnCount = 0;
+        for (int i = 0; i <= messages.length; i++) {
+            int message = i % messages.length;
+            if (i == messages.length) {
+                rowWriter.addColumn(MetadataUtils.newScalar("extra", MinorType.VARCHAR, DataMode.OPTIONAL));
+            }
+            loader.startBatch();
+            rowWriter.start();
+            assertTrue(parser.parse(messages[message], 0, messages[message].length, sink));
+            rowWriter.save();
+            RowSet batch = fixture.wrap(loader.harvest());
+
+            assertTrue(batch.schema().size() >= columnCount);
+            columnCount = batch.schema().size();
+            String reference = SwiftFieldLabels.forMessageType(types[message], Locale.getDefault()).columnName("20");
+            RowSetReader reader = batch.reader();
+            assertTrue(reader.next());
+            assertEquals(types[message], reader.scalar("message_type").getString());
+            assertEquals(references[message], reader.scalar(reference).getString());
+            batch.clear();
+        }
+        loader.close();
+    }
+
+    private byte[][] readMessages() throws IOException {
+        byte[][] messages = new byte[0][];
+        try (InputStream in = getClass().getResourceAsStream("/swift/messages.fin")) {
+            SwiftMessageSplitter splitter = new SwiftMessageSplitter(in);
+            while (splitter.next()) {
+                messages = Arrays.copyOf(messages, messages.length + 1);
+                messages[messages.length - 1] = Arrays.copyOf(splitter.buffer(), splitter.length());
+            }
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import com.prowidesoftware.swift.model.field.Field;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TestSwiftFieldLabels {
+
+    @Test
+    public void testFieldLabelCache() {
+        SwiftFieldLabels labels = SwiftFieldLabels.forMessageType("103", Locale.ENGLISH);
+        assertSame(labels, SwiftFieldLabels.forMessageType("103", Locale.ENGLISH));
+
+        String expected = SwiftUtils.cleanUpFieldName(Field.getLabel("32A", "103", null, Locale.ENGLISH));
+        assertEquals(expected, labels.columnName("32A"));
+        assertSame(labels.columnName("32A"), labels.columnName("32A"));
+    }
+}
@@ -0,0 +1,767 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.common.exceptions.UserRemoteException;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.ops.OperatorMetricRegistry;
+import org.apache.drill.exec.physical.rowSet.RowSet;
+import org.apache.drill.exec.physical.rowSet.RowSetBuilder;
+import org.apache.drill.exec.record.metadata.SchemaBuilder;
+import org.apache.drill.exec.record.metadata.TupleMetadata;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.ClusterTest;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.apache.drill.test.rowSet.RowSetComparison;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.apache.drill.test.rowSet.RowSetUtilities.objArray;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestSwiftFormat extends ClusterTest {
+
+    // Copies of messages.fin in large.fin
+    private static final int LARGE_FILE_COPIES = 1000;
+
+    private static final String BIC_DIRECTORY = "BIC\tName\tCity\tCountry\n" +
+            "ESPBESMM\tBanco Espanol\tMadrid\tES\n" +
+            "BANKBEBBXXX\tBank Belgium\tBrussels\tBE\n" +
+            "BANKDEFF\tBank Deutschland\tFrankfurt\tDE\n";
+
+    // A message cut short in block 4
+    private static final String TRUNCATED_MESSAGE = "{1:F01BANKBEBBAXXX0000000000}{2:I202BANKDEFFXXXXN}{4:\n:20:TRUNC\n";
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        // Profiles are saved for the tests checking the metrics of the scan
+        ClusterTest.startCluster(ClusterFixture.builder(dirTestWatcher).saveProfiles());
+
+        SwiftFormatConfig formatConfig = new SwiftFormatConfig(Collections.singletonList("fin"));
+        cluster.defineFormat("dfs", "swift", formatConfig);
+        dirTestWatcher.copyResourceToRoot(Paths.get("swift/"));
+
+        // A format restricted to some message types, which keeps a message index
+        SwiftFormatConfig indexedConfig = new FormatBuilder("swx").messageTypes("103", "940").messageIndex().build();
+        cluster.defineFormat("dfs", "swift_indexed", indexedConfig);
+        Path swiftDir = dirTestWatcher.getRootDir().toPath().resolve("swift");
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("indexed.swx"));
+
+        // A format with the fixed schema of all the known message types
+        SwiftFormatConfig fixedConfig = new FormatBuilder("sfx").schemaMode(SwiftSchemaRegistry.FIXED).build();
+        cluster.defineFormat("dfs", "swift_fixed", fixedConfig);
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("fixed.sfx"));
+
+        // A format parsing on worker threads, with a queue shorter than the file
+        SwiftFormatConfig parallelConfig = new FormatBuilder("spx").parseThreads(2, 2).build();
+        cluster.defineFormat("dfs", "swift_parallel", parallelConfig);
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("parallel.spx"));
+
+        // Formats tolerating malformed messages, up to one per file for the skip mode
+        SwiftFormatConfig skipConfig = new FormatBuilder("ssk").errorMode("skip", 1).build();
+        cluster.defineFormat("dfs", "swift_skip", skipConfig);
+        SwiftFormatConfig emitConfig = new FormatBuilder("sem").errorMode("emit", 0).build();
+        cluster.defineFormat("dfs", "swift_emit", emitConfig);
+        byte[] messages = Files.readAllBytes(swiftDir.resolve("messages.fin"));
+        byte[] truncated = TRUNCATED_MESSAGE.getBytes(StandardCharsets.US_ASCII);
+        writeFile(swiftDir.resolve("malformed.fin"), truncated, messages);
+        writeFile(swiftDir.resolve("malformed.ssk"), truncated, messages);
+        writeFile(swiftDir.resolve("twice.ssk"), truncated, messages, truncated);
+        writeFile(swiftDir.resolve("malformed.sem"), truncated, messages);
+        // A message over the size limit, after the others, in a format which keeps a message index
+        SwiftFormatConfig indexedEmitConfig = new FormatBuilder("sie").messageIndex().errorMode("emit", 0).build();
+        cluster.defineFormat("dfs", "swift_indexed_emit", indexedEmitConfig);
+        StringBuilder oversized = new StringBuilder("{1:F01BANKBEBBAXXX0000000002}{2:I202BANKDEFFXXXXN}{4:\n:79:");
+        while (oversized.length() <= SwiftMessageSplitter.MAX_MESSAGE_SIZE) {
+            oversized.append("LINE OF NARRATIVE\n");
+        }
+        oversized.append("-}");
+        byte[] oversizedBytes = oversized.toString().getBytes(StandardCharsets.US_ASCII);
+        writeFile(swiftDir.resolve("oversized.sie"), messages, oversizedBytes);
+        byte[][] copies = new byte[LARGE_FILE_COPIES][];
+        Arrays.fill(copies, messages);
+        writeFile(swiftDir.resolve("large.fin"), copies);
+
+        // Formats returning the repeated tags as arrays and as one row per statement line
+        SwiftFormatConfig arrayConfig = new FormatBuilder("sar").repeatedTags("array").build();
+        cluster.defineFormat("dfs", "swift_array", arrayConfig);
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("array.sar"));
+        SwiftFormatConfig rowsConfig = new FormatBuilder("srw").repeatedTags("rows").build();
+        cluster.defineFormat("dfs", "swift_rows", rowsConfig);
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("rows.srw"));
+
+        // A format adding the attributes of a BIC directory
+        Path bicDirectory = swiftDir.resolve("bic_directory.txt");
+        Files.write(bicDirectory, BIC_DIRECTORY.getBytes(StandardCharsets.UTF_8));
+        SwiftFormatConfig bicConfig = new FormatBuilder("sbc").bicDirectory(bicDirectory.toString()).build();
+        cluster.defineFormat("dfs", "swift_bic", bicConfig);
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("bic.sbc"));
+
+        // A format returning one row per field
+        SwiftFormatConfig longConfig = new FormatBuilder("slg").outputMode("long").build();
+        cluster.defineFormat("dfs", "swift_long", longConfig);
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("long.slg"));
+        Files.createDirectories(swiftDir.resolve("long"));
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("long/first.slg"));
+        Files.copy(swiftDir.resolve("messages.fin"), swiftDir.resolve("long/second.slg"));
+
+        // A format reading only the messages appended since the previous scan
+        SwiftFormatConfig incrementalConfig = new FormatBuilder("sic").incremental().build();
+        cluster.defineFormat("dfs", "swift_incremental", incrementalConfig);
+
+        // ISO 20022 documents, detected by the default envelope
+        SwiftFormatConfig mxConfig = new SwiftFormatConfig(Collections.singletonList("mx"));
+        cluster.defineFormat("dfs", "swift_mx", mxConfig);
+        Files.copy(swiftDir.resolve("statement.xml"), swiftDir.resolve("statement.mx"));
+    }
+
+    /**
+     * @return the row count of the scan in the plan of the query
+     */
+    private static double scanRowCount(String sql) throws Exception {
+        String plan = client.queryBuilder().sql(sql).explainText();
+        for (String line : plan.split("\n")) {
+            Matcher matcher = Pattern.compile("rowcount = ([0-9.E]+)").matcher(line);
+            if (line.contains("Scan(") && matcher.find()) {
+                return Double.parseDouble(matcher.group(1));
+            }
+        }
+        throw new AssertionError("No scan in the plan: " + plan);
+    }
+
+    private static void writeFile(Path path, byte[]... parts) throws Exception {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        }
+    }
+
+    /**
+     * Builds the format configs of the tests, each naming only the options it sets.
+     */
+    private static class FormatBuilder {
+        private final String extension;
+        private List<String> messageTypes;
+        private boolean messageIndex;
+        private String schemaMode;
+        private int parseThreads;
+        private int queueDepth;
+        private String errorMode;
+        private int maxErrors;
+        private String repeatedTags;
+        private String bicDirectory;
+        private String outputMode;
+        private boolean incremental;
+
+        FormatBuilder(String extension) {
+            this.extension = extension;
+        }
+
+        FormatBuilder messageTypes(String... messageTypes) {
+            this.messageTypes = Arrays.asList(messageTypes);
+            return this;
+        }
+
+        FormatBuilder messageIndex() {
+            this.messageIndex = true;
+            return this;
+        }
+
+        FormatBuilder schemaMode(String schemaMode) {
+            this.schemaMode = schemaMode;
+            return this;
+        }
+
+        FormatBuilder parseThreads(int parseThreads, int queueDepth) {
+            this.parseThreads = parseThreads;
+            this.queueDepth = queueDepth;
+            return this;
+        }
+
+        FormatBuilder errorMode(String errorMode, int maxErrors) {
+            this.errorMode = errorMode;
+            this.maxErrors = maxErrors;
+            return this;
+        }
+
+        FormatBuilder repeatedTags(String repeatedTags) {
+            this.repeatedTags = repeatedTags;
+            return this;
+        }
+
+        FormatBuilder bicDirectory(String bicDirectory) {
+            this.bicDirectory = bicDirectory;
+            return this;
+        }
+
+        FormatBuilder outputMode(String outputMode) {
+            this.outputMode = outputMode;
+            return this;
+        }
+
+        FormatBuilder incremental() {
+            this.incremental = true;
+            return this;
+        }
+
+        SwiftFormatConfig build() {
+            return new SwiftFormatConfig(Collections.singletonList(extension), messageTypes, null, null, null, null,
+                    null, messageIndex, schemaMode, parseThreads, queueDepth, errorMode, maxErrors, null, repeatedTags,
+                    bicDirectory, outputMode, incremental);
+        }
+    }
+
+    /**
+     * @return a row of the schema with the given values, as pairs of column name and value, and nulls elsewhere
+     */
+    private static Object[] row(TupleMetadata schema, Object... values) {
+        Object[] row = new Object[schema.size()];
+        for (int i = 0; i < values.length; i += 2) {
+            int index = schema.index((String) values[i]);
+            assertTrue("No column " + values[i], index != -1);
+            row[index] = values[i + 1];
+        }
+        return row;
+    }
+
+    @Test
+    public void testStarQuery() throws Exception {
+        String sql = "SELECT * FROM dfs.`swift/messages.fin`";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        // The columns come from the fields of all the messages, so the expected rows are
+        // built on the schema of the results, and compared on the columns below
+        TupleMetadata schema = results.schema();
+        String reference103 = SwiftFieldLabels.forMessageType("103", Locale.getDefault()).columnName("20");
+        String reference202 = SwiftFieldLabels.forMessageType("202", Locale.getDefault()).columnName("20");
+        String reference940 = SwiftFieldLabels.forMessageType("940", Locale.getDefault()).columnName("20");
+        String amount103 = SwiftFieldLabels.forMessageType("103", Locale.getDefault()).columnName("32A");
+        String amount202 = SwiftFieldLabels.forMessageType("202", Locale.getDefault()).columnName("32A");
+
+        RowSet expected = new RowSetBuilder(client.allocator(), schema)
+                .addRow(row(schema, "message_type", "103", "block2_direction", "Output",
+                        "block1_logical_terminal", "BICFOOYYAXXX", reference103, "0061350113089908",
+                        amount103 + "_date", LocalDate.of(2006, 10, 28), amount103 + "_currency", "EUR",
+                        amount103 + "_amount", new BigDecimal("100000.0000")))
+                .addRow(row(schema, "message_type", "202", "block2_direction", "Input",
+                        "block1_logical_terminal", "BANKBEBBAXXX", reference202, "TRN202REF",
+                        amount202 + "_date", LocalDate.of(2023, 9, 15), amount202 + "_currency", "USD",
+                        amount202 + "_amount", new BigDecimal("2500000.0000")))
+                .addRow(row(schema, "message_type", "940", "block2_direction", "Output",
+                        "block1_logical_terminal", "BANKDEFFAXXX", reference940, "STMT20230915"))
+                .build();
+
+        Boolean[] mask = new Boolean[schema.size()];
+        Arrays.fill(mask, false);
+        for (String column : Arrays.asList("message_type", "block2_direction", "block1_logical_terminal",
+                reference103, reference202, reference940, amount103 + "_date", amount103 + "_currency",
+                amount103 + "_amount", amount202 + "_date", amount202 + "_currency", amount202 + "_amount")) {
+            mask[schema.index(column)] = true;
+        }
+        new RowSetComparison(expected).withMask(mask).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testExplicitQuery() throws Exception {
+        String sql = "SELECT message_type, block2_direction FROM dfs.`swift/messages.fin` ORDER BY message_type";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .addNullable("block2_direction", MinorType.VARCHAR)
+                .buildSchema();
+
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("103", "Output")
+                .addRow("202", "Input")
+                .addRow("940", "Output")
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testTypedColumns() throws Exception {
+        String label = SwiftFieldLabels.forMessageType("202", Locale.getDefault()).columnName("32A");
+        String sql = String.format("SELECT `%1$s_date`, `%1$s_currency`, `%1$s_amount` FROM dfs.`swift/messages.fin` " +
+                "WHERE message_type = '202'", label);
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable(label + "_date", MinorType.DATE)
+                .addNullable(label + "_currency", MinorType.VARCHAR)
+                .addNullable(label + "_amount", MinorType.VARDECIMAL,
+                        SwiftMessageParser.AMOUNT_PRECISION, SwiftMessageParser.AMOUNT_SCALE)
+                .buildSchema();
+
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow(LocalDate.of(2023, 9, 15), "USD", new BigDecimal("2500000.0000"))
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testMessageIndex() throws Exception {
+        String sql = "SELECT message_type FROM dfs.`swift/indexed.swx` ORDER BY message_type";
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .buildSchema();
+
+        // The first scan filters the messages on their header and writes the index
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("103")
+                .addRow("940")
+                .build();
+        new RowSetComparison(expected).verifyAndClearAll(results);
+        File index = dirTestWatcher.getRootDir().toPath().resolve("swift/.indexed.swx.0.swiftidx").toFile();
+        assertTrue(index.exists());
+
+        // The next scans go through the index
+        results = client.queryBuilder().sql(sql).rowSet();
+        expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("103")
+                .addRow("940")
+                .build();
+        new RowSetComparison(expected).verifyAndClearAll(results);
+
+        long count = client.queryBuilder().sql("SELECT COUNT(*) FROM dfs.`swift/indexed.swx`").singletonLong();
+        assertEquals(2L, count);
+    }
+
+    @Test
+    public void testFixedSchema() throws Exception {
+        String sql = "SELECT * FROM dfs.`swift/fixed.sfx`";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+        TupleMetadata expectedSchema = SwiftSchemaRegistry.schema(null, Locale.getDefault());
+        assertEquals(3, results.rowCount());
+        assertEquals(expectedSchema.size(), results.schema().size());
+        assertTrue(expectedSchema.isEquivalent(results.schema()));
+        results.clear();
+
+        // The registry follows the message classes of Prowide
+        assertTrue(SwiftSchemaRegistry.messageTypes().containsAll(Arrays.asList("103", "202", "300", "940")));
+        assertTrue(SwiftSchemaRegistry.tags("103").containsAll(Arrays.asList("20", "23B", "32A", "50K", "59", "71A")));
+
+        // A message type outside of the registry would lose its block 4 fields
+        try {
+            SwiftSchemaRegistry.schema(Collections.singletonList("000"), Locale.getDefault());
+            fail();
+        } catch (UserException e) {
+            assertTrue(e.getMessage().contains("Message type 000 is not in the SWIFT schema registry"));
+        }
+    }
+
+    @Test
+    public void testParallelParsing() throws Exception {
+        String sql = "SELECT message_type, block2_direction FROM dfs.`swift/parallel.spx`";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .addNullable("block2_direction", MinorType.VARCHAR)
+                .buildSchema();
+
+        // Messages are written in file order
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("103", "Output")
+                .addRow("202", "Input")
+                .addRow("940", "Output")
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testFilterPushDown() throws Exception {
+        String sql = "SELECT message_type FROM dfs.`swift/messages.fin` "
+                + "WHERE message_type IN ('202', '940') AND block2_direction = 'Output'";
+        // The IN list may reach the rule as a SEARCH. The scan only keeps the MT940, which the statistics see
+        assertEquals(1.0, scanRowCount(sql), 0.0);
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .buildSchema();
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("940")
+                .build();
+        new RowSetComparison(expected).verifyAndClearAll(results);
+
+        // The conditions of the format, 103 and 940, are narrowed, not replaced
+        sql = "SELECT message_type FROM dfs.`swift/indexed.swx` WHERE message_type IN ('202', '940')";
+        assertEquals(1.0, scanRowCount(sql), 0.0);
+        // No message type is left, so the scan matches no message
+        sql = "SELECT message_type FROM dfs.`swift/indexed.swx` WHERE message_type = '202'";
+        assertEquals(0.0, scanRowCount(sql), 0.0);
+        assertEquals(0L, client.queryBuilder().sql(sql).run().recordCount());
+
+        // The message types of a fixed schema give its columns, so they are not narrowed
+        sql = "SELECT * FROM dfs.`swift/fixed.sfx` WHERE message_type = '103'";
+        assertEquals(3.0, scanRowCount(sql), 0.0);
+        results = client.queryBuilder().sql(sql).rowSet();
+        assertEquals(1, results.rowCount());
+        assertEquals(SwiftSchemaRegistry.schema(null, Locale.getDefault()).size(), results.schema().size());
+        results.clear();
+    }
+
+    @Test
+    public void testScanMetrics() throws Exception {
+        QuerySummary summary = client.queryBuilder().sql("SELECT * FROM dfs.`swift/messages.fin`").run();
+        assertEquals(3, summary.recordCount());
+
+        // The profile names the metrics of the scan
+        String[] names = OperatorMetricRegistry.getMetricNames(SwiftFormatPlugin.OPERATOR_TYPE);
+        for (SwiftBatchReader.Metric metric : SwiftBatchReader.Metric.values()) {
+            assertEquals(metric.name(), names[metric.metricId()]);
+        }
+
+        ProfileParser profile = client.parseProfile(summary.queryIdString());
+        List<ProfileParser.OperatorProfile> scans = profile.getOpsOfType(SwiftFormatPlugin.OPERATOR_TYPE);
+        assertTrue(!scans.isEmpty());
+        long messagesRead = 0;
+        long messagesFailed = 0;
+        long bytesRead = 0;
+        long largestMessage = 0;
+        for (ProfileParser.OperatorProfile scan : scans) {
+            messagesRead += scan.getMetric(SwiftBatchReader.Metric.MESSAGES_READ.metricId());
+            messagesFailed += scan.getMetric(SwiftBatchReader.Metric.MESSAGES_FAILED.metricId());
+            bytesRead += scan.getMetric(SwiftBatchReader.Metric.BYTES_READ.metricId());
+            largestMessage = Math.max(largestMessage, scan.getMetric(SwiftBatchReader.Metric.LARGEST_MESSAGE.metricId()));
+        }
+        assertEquals(3L, messagesRead);
+        assertEquals(0L, messagesFailed);
+        long fileSize = Files.size(dirTestWatcher.getRootDir().toPath().resolve("swift/messages.fin"));
+        assertTrue(largestMessage > 0 && largestMessage < bytesRead);
+        assertTrue(bytesRead <= fileSize);
+    }
+
+    @Test
+    public void testCountQuery() throws Exception {
+        String sql = "SELECT COUNT(*) FROM dfs.`swift/messages.fin`";
+        long count = client.queryBuilder().sql(sql).singletonLong();
+        assertEquals(3L, count);
+    }
+
+    @Test
+    public void testMalformedMessageFails() throws Exception {
+        // Counting fails on the same message as reading
+        for (String query : new String[] {"SELECT * FROM dfs.`swift/malformed.fin`",
+                "SELECT COUNT(*) FROM dfs.`swift/malformed.fin`"}) {
+            try {
+                client.queryBuilder().sql(query).run();
+                fail();
+            } catch (UserRemoteException e) {
+                assertTrue(e.getMessage().contains("Unable to parse SWIFT message at offset 0"));
+            }
+        }
+    }
+
+    @Test
+    public void testSkipMalformedMessages() throws Exception {
+        String sql = "SELECT message_type FROM dfs.`swift/malformed.ssk` ORDER BY message_type";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .buildSchema();
+
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("103")
+                .addRow("202")
+                .addRow("940")
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+        // Counting skips the same messages
+        assertEquals(3L, client.queryBuilder().sql("SELECT COUNT(*) FROM dfs.`swift/malformed.ssk`").singletonLong());
+
+        // The second malformed message is over the limit
+        for (String query : new String[] {"SELECT message_type FROM dfs.`swift/twice.ssk`",
+                "SELECT COUNT(*) FROM dfs.`swift/twice.ssk`"}) {
+            try {
+                client.queryBuilder().sql(query).run();
+                fail();
+            } catch (UserRemoteException e) {
+                assertTrue(e.getMessage().contains("Too many malformed SWIFT messages"));
+            }
+        }
+    }
+
+    @Test
+    public void testEmitMalformedMessages() throws Exception {
+        String sql = "SELECT message_type, _error, _raw_offset FROM dfs.`swift/malformed.sem`";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .addNullable("_error", MinorType.VARCHAR)
+                .addNullable("_raw_offset", MinorType.BIGINT)
+                .buildSchema();
+
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow(null, "Unterminated block", 0L)
+                .addRow("103", null, null)
+                .addRow("202", null, null)
+                .addRow("940", null, null)
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testOversizedMessageThroughIndex() throws Exception {
+        String sql = "SELECT _error, _raw_offset FROM dfs.`swift/oversized.sie` WHERE _error IS NOT NULL";
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("_error", MinorType.VARCHAR)
+                .addNullable("_raw_offset", MinorType.BIGINT)
+                .buildSchema();
+        long offset = Files.size(dirTestWatcher.getRootDir().toPath().resolve("swift/messages.fin"));
+
+        // The first scan reads the file and writes the index, the second one reads through the index,
+        // which must still flag the message as truncated rather than parse the start of it
+        for (int scan = 0; scan < 2; scan++) {
+            RowSet results = client.queryBuilder().sql(sql).rowSet();
+            RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                    .addRow(SwiftMessageSplitter.TRUNCATED_ERROR, offset)
+                    .build();
+            new RowSetComparison(expected).verifyAndClearAll(results);
+            File index = dirTestWatcher.getRootDir().toPath().resolve("swift/.oversized.sie.0.swiftidx").toFile();
+            assertTrue(index.exists());
+        }
+    }
+
+    @Test
+    public void testMxStatement() throws Exception {
+        String sql = "SELECT message_type, stmt_id, stmt_ntry_amt, stmt_ntry_amt_ccy FROM dfs.`swift/statement.mx`";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .addNullable("stmt_id", MinorType.VARCHAR)
+                .addNullable("stmt_ntry_amt", MinorType.VARCHAR)
+                .addNullable("stmt_ntry_amt_ccy", MinorType.VARCHAR)
+                .buildSchema();
+
+        // One row per statement entry
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("camt.053.001.08", "STMT-1", "250.00", "EUR")
+                .addRow("camt.053.001.08", "STMT-1", "500.00", "EUR")
+                .addRow("camt.053.001.08", "STMT-2", "75.50", "USD")
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testRepeatedTagKeepsLastValue() throws Exception {
+        String label = SwiftFieldLabels.forMessageType("940", Locale.getDefault()).columnName("61");
+        String sql = String.format("SELECT `%s_amount` FROM dfs.`swift/messages.fin` WHERE message_type = '940'", label);
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable(label + "_amount", MinorType.VARDECIMAL,
+                        SwiftMessageParser.AMOUNT_PRECISION, SwiftMessageParser.AMOUNT_SCALE)
+                .buildSchema();
+
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow(new BigDecimal("500.0000"))
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testRepeatedTagsAsArrays() throws Exception {
+        String label = SwiftFieldLabels.forMessageType("940", Locale.getDefault()).columnName("61");
+        String sql = String.format("SELECT message_type, `%s_amount` FROM dfs.`swift/array.sar` " +
+                "WHERE message_type = '940'", label);
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .addArray(label + "_amount", MinorType.VARDECIMAL,
+                        SwiftMessageParser.AMOUNT_PRECISION, SwiftMessageParser.AMOUNT_SCALE)
+                .buildSchema();
+
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("940", objArray(new BigDecimal("250.0000"), new BigDecimal("500.0000")))
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testBicDirectory() throws Exception {
+        // The sender itself is not projected, the directory attributes are enough
+        String sql = "SELECT message_type, sender_name, sender_country, receiver_name FROM dfs.`swift/bic.sbc` " +
+                "ORDER BY message_type";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_type", MinorType.VARCHAR)
+                .addNullable("sender_name", MinorType.VARCHAR)
+                .addNullable("sender_country", MinorType.VARCHAR)
+                .addNullable("receiver_name", MinorType.VARCHAR)
+                .buildSchema();
+
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow("103", "Banco Espanol", "ES", null)
+                .addRow("202", "Bank Belgium", "BE", "Bank Deutschland")
+                .addRow("940", "Bank Belgium", "BE", "Bank Deutschland")
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+    }
+
+    @Test
+    public void testLongOutputMode() throws Exception {
+        // The low 40 bits of the message id are the offset of the message in the file
+        String sql = "SELECT mod(message_id, 1099511627776) AS message_offset, block, tag, label, `value` " +
+                "FROM dfs.`swift/long.slg` WHERE tag = '20' ORDER BY message_id";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+
+        TupleMetadata expectedSchema = new SchemaBuilder()
+                .addNullable("message_offset", MinorType.BIGINT)
+                .addNullable("block", MinorType.INT)
+                .addNullable("tag", MinorType.VARCHAR)
+                .addNullable("label", MinorType.VARCHAR)
+                .addNullable("value", MinorType.VARCHAR)
+                .buildSchema();
+
+        RowSet expected = new RowSetBuilder(client.allocator(), expectedSchema)
+                .addRow(0L, 4, "20", SwiftFieldLabels.forMessageType("103", Locale.getDefault()).columnName("20"),
+                        "0061350113089908")
+                .addRow(501L, 4, "20", SwiftFieldLabels.forMessageType("202", Locale.getDefault()).columnName("20"),
+                        "TRN202REF")
+                .addRow(677L, 4, "20", SwiftFieldLabels.forMessageType("940", Locale.getDefault()).columnName("20"),
+                        "STMT20230915")
+                .build();
+
+        new RowSetComparison(expected).verifyAndClearAll(results);
+
+        // Every occurrence of a repeated tag is a row of its own
+        String label = SwiftFieldLabels.forMessageType("940", Locale.getDefault()).columnName("86");
+        sql = String.format("SELECT COUNT(*) FROM dfs.`swift/long.slg` WHERE tag = '86' AND label = '%s'", label);
+        assertEquals(2L, client.queryBuilder().sql(sql).singletonLong());
+
+        // The messages at the same offsets of two files get different ids
+        sql = "SELECT COUNT(DISTINCT message_id) FROM dfs.`swift/long`";
+        assertEquals(6L, client.queryBuilder().sql(sql).singletonLong());
+    }
+
+    @Test
+    public void testIncrementalScan() throws Exception {
+        // A feed file whose last message is still being written
+        Path feed = dirTestWatcher.getRootDir().toPath().resolve("swift").resolve("feed.sic");
+        byte[] messages = Files.readAllBytes(dirTestWatcher.getRootDir().toPath().resolve("swift").resolve("messages.fin"));
+        writeFile(feed, messages, TRUNCATED_MESSAGE.getBytes(StandardCharsets.US_ASCII));
+        String sql = "SELECT COUNT(*) FROM dfs.`swift/feed.sic`";
+        assertEquals(3L, client.queryBuilder().sql(sql).singletonLong());
+
+        // Nothing was appended since
+        assertEquals(0L, client.queryBuilder().sql(sql).singletonLong());
+
+        // The last message is completed and more messages follow. The last one of those
+        // may still get its trailer, until the file stops changing.
+        Files.write(feed, "-}\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+        Files.write(feed, messages, StandardOpenOption.APPEND);
+        assertEquals(3L, client.queryBuilder().sql(sql).singletonLong());
+        makeQuiet(feed);
+        assertEquals(1L, client.queryBuilder().sql(sql).singletonLong());
+
+        // A file replaced by a shorter one is read again from the start
+        writeFile(feed, messages);
+        makeQuiet(feed);
+        assertEquals(3L, client.queryBuilder().sql(sql).singletonLong());
+
+        // A scan stopped by a limit does not move the watermark
+        Files.write(feed, messages, StandardOpenOption.APPEND);
+        makeQuiet(feed);
+        assertEquals(1, client.queryBuilder().sql("SELECT message_type FROM dfs.`swift/feed.sic` LIMIT 1")
+                .run().recordCount());
+        assertEquals(3L, client.queryBuilder().sql(sql).singletonLong());
+    }
+
+    private static void makeQuiet(Path path) throws Exception {
+        long modified = System.currentTimeMillis() - 2 * SwiftWatermark.QUIET_PERIOD_MS;
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modified));
+    }
+
+    @Test
+    public void testLimitStopsReading() throws Exception {
+        String sql = "SELECT message_type FROM dfs.`swift/large.fin` LIMIT 2";
+        QuerySummary summary = client.queryBuilder().sql(sql).run();
+        assertEquals(2, summary.recordCount());
+
+        // The reader stops at the limit instead of reading the whole file
+        ProfileParser profile = client.parseProfile(summary.queryIdString());
+        List<ProfileParser.OperatorProfile> scans = profile.getOpsOfType(SwiftFormatPlugin.OPERATOR_TYPE);
+        long bytesRead = 0;
+        for (ProfileParser.OperatorProfile scan : scans) {
+            bytesRead += scan.getMetric(SwiftBatchReader.Metric.BYTES_READ.metricId());
+        }
+        long fileSize = Files.size(dirTestWatcher.getRootDir().toPath().resolve("swift/large.fin"));
+        assertTrue(bytesRead > 0);
+        assertTrue("Read " + bytesRead + " bytes of " + fileSize, bytesRead < fileSize / LARGE_FILE_COPIES);
+    }
+
+    @Test
+    public void testScanStatistics() throws Exception {
+        // Estimated from the messages at the start of the file, each copy holds 3 messages
+        assertEquals(3.0 * LARGE_FILE_COPIES, scanRowCount("SELECT * FROM dfs.`swift/large.fin`"),
+                0.1 * LARGE_FILE_COPIES);
+
+        // The whole file is sampled, and the format only keeps 2 of its 3 messages
+        assertEquals(2.0, scanRowCount("SELECT * FROM dfs.`swift/indexed.swx`"), 0.0);
+
+        // A file which changed is estimated again rather than taken from the cache
+        Path swiftDir = dirTestWatcher.getRootDir().toPath().resolve("swift");
+        Path changing = swiftDir.resolve("changing.fin");
+        byte[] messages = Files.readAllBytes(swiftDir.resolve("messages.fin"));
+        writeFile(changing, messages);
+        assertEquals(3.0, scanRowCount("SELECT * FROM dfs.`swift/changing.fin`"), 0.0);
+        writeFile(changing, messages, messages);
+        Files.setLastModifiedTime(changing, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertEquals(6.0, scanRowCount("SELECT * FROM dfs.`swift/changing.fin`"), 0.0);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSwiftHeaderFilter {
+
+    private static final byte[] OUTPUT_103 = ("{1:F01BICFOOYYAXXX8683497519}" +
+            "{2:O1031535051028ESPBESMMAXXX54237522470510281535N}{4:\n:20:REF\n-}")
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] INPUT_202 = ("{1:F01BANKBEBBAXXX0000000000}{2:I202BANKDEFFXXXXN}{4:\n:20:REF\n-}")
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void testEmptyFilter() {
+        SwiftHeaderFilter filter = new SwiftHeaderFilter(null, null, null, null, null, null);
+        assertTrue(filter.isEmpty());
+        assertTrue(matches(filter, OUTPUT_103));
+        assertTrue(matches(filter, INPUT_202));
+    }
+
+    @Test
+    public void testMessageType() {
+        SwiftHeaderFilter filter = new SwiftHeaderFilter(Arrays.asList("202", "940"), null, null, null, null, null);
+        assertFalse(filter.isEmpty());
+        assertFalse(matches(filter, OUTPUT_103));
+        assertTrue(matches(filter, INPUT_202));
+    }
+
+    @Test
+    public void testDirection() {
+        SwiftHeaderFilter filter = new SwiftHeaderFilter(null, null, null, "output", null, null);
+        assertTrue(matches(filter, OUTPUT_103));
+        assertFalse(matches(filter, INPUT_202));
+    }
+
+    @Test
+    public void testSenderAndReceiver() {
+        // The sender of an output message is the MIR terminal, the receiver the basic header terminal
+        assertTrue(matches(new SwiftHeaderFilter(null, Collections.singletonList("ESPBESMM"), null, null, null, null),
+                OUTPUT_103));
+        assertTrue(matches(new SwiftHeaderFilter(null, Collections.singletonList("espbesmmxxx"), null, null, null, null),
+                OUTPUT_103));
+        assertFalse(matches(new SwiftHeaderFilter(null, Collections.singletonList("ESPBESMMABC"), null, null, null, null),
+                OUTPUT_103));
+        assertTrue(matches(new SwiftHeaderFilter(null, null, Collections.singletonList("BICFOOYYXXX"), null, null, null),
+                OUTPUT_103));
+        assertTrue(matches(new SwiftHeaderFilter(null, null, Collections.singletonList("BANKDEFF"), null, null, null),
+                INPUT_202));
+        assertFalse(matches(new SwiftHeaderFilter(null, null, Collections.singletonList("BANKBEBB"), null, null, null),
+                INPUT_202));
+    }
+
+    @Test
+    public void testMirDate() {
+        assertTrue(matches(new SwiftHeaderFilter(null, null, null, null, "051028", "051028"), OUTPUT_103));
+        assertTrue(matches(new SwiftHeaderFilter(null, null, null, null, "050101", null), OUTPUT_103));
+        assertFalse(matches(new SwiftHeaderFilter(null, null, null, null, "051029", null), OUTPUT_103));
+        assertFalse(matches(new SwiftHeaderFilter(null, null, null, null, null, "051027"), OUTPUT_103));
+        // Input messages have no MIR
+        assertFalse(matches(new SwiftHeaderFilter(null, null, null, null, "000101", null), INPUT_202));
+    }
+
+    @Test
+    public void testIndexEntry() {
+        byte[] message = ("{1:F01BICFOOYYAXXX8683497519}{2:O1031535051028ESPBESMMAXXX54237522470510281535N}" +
+                "{3:{108:REF}{121:eb6305c9-1f7f-49de-aed0-16487c27b42d}}{4:\n:20:REF\n-}")
+                .getBytes(StandardCharsets.US_ASCII);
+        SwiftMessageIndex.Entry entry = new SwiftMessageIndex.Entry();
+        entry.set(42, message, 0, message.length);
+        assertEquals(42L, entry.offset());
+        assertEquals(message.length, entry.length());
+        assertEquals("O103ESPBESMMAXXXBICFOOYYAXXX051028eb6305c9-1f7f-49de-aed0-16487c27b42d",
+                new String(entry.fields(), StandardCharsets.US_ASCII));
+
+        assertTrue(new SwiftHeaderFilter(Collections.singletonList("103"), Collections.singletonList("ESPBESMMXXX"),
+                Collections.singletonList("BICFOOYY"), "O", "051001", "051031").matches(entry));
+        assertFalse(new SwiftHeaderFilter(Collections.singletonList("202"), null, null, null, null, null).matches(entry));
+        assertFalse(new SwiftHeaderFilter(null, null, null, "input", null, null).matches(entry));
+
+        // Input messages have blank MIR and UETR fields
+        entry.set(0, INPUT_202, 0, INPUT_202.length);
+        assertFalse(new SwiftHeaderFilter(null, null, null, null, "000101", null).matches(entry));
+        assertTrue(new SwiftHeaderFilter(null, Collections.singletonList("BANKBEBB"), Collections.singletonList("BANKDEFF"),
+                "I", null, null).matches(entry));
+    }
+
+    private static boolean matches(SwiftHeaderFilter filter, byte[] message) {
+        return filter.matches(message, 0, message.length);
+    }
+}
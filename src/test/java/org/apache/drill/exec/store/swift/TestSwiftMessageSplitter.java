@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSwiftMessageSplitter {
+
+    private static final String MESSAGE_1 = "{1:F01BANKBEBBAXXX0000000000}{2:I202BANKDEFFXXXXN}{4:\n:20:REF1\n-}";
+    private static final String MESSAGE_2 = "{1:F01BANKBEBBAXXX0000000001}{2:I202BANKDEFFXXXXN}{3:{108:MUR}}{4:\n:20:REF2\n-}{5:{CHK:ABC}}";
+
+    @Test
+    public void testSplitConcatenatedMessages() throws IOException {
+        List<String> messages = split(MESSAGE_1 + MESSAGE_2);
+        assertEquals(2, messages.size());
+        assertEquals(MESSAGE_1, messages.get(0));
+        assertEquals(MESSAGE_2, messages.get(1));
+    }
+
+    @Test
+    public void testSplitIgnoresSeparators() throws IOException {
+        List<String> messages = split("garbage\n" + MESSAGE_1 + "\r\n\r\n" + MESSAGE_2 + "\n");
+        assertEquals(2, messages.size());
+        assertEquals(MESSAGE_1, messages.get(0));
+        assertEquals(MESSAGE_2, messages.get(1));
+    }
+
+    @Test
+    public void testOffsets() throws IOException {
+        String input = "\n" + MESSAGE_1 + "\n" + MESSAGE_2;
+        SwiftMessageSplitter splitter = splitter(input);
+        splitter.next();
+        assertEquals(1, splitter.offset());
+        splitter.next();
+        assertEquals(MESSAGE_1.length() + 2, splitter.offset());
+        assertFalse(splitter.next());
+    }
+
+    @Test
+    public void testBlockSplits() throws IOException {
+        String input = MESSAGE_1 + "\n" + MESSAGE_2 + "\n" + MESSAGE_1 + "\n";
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+
+        // Every message must be read exactly once, whatever the split size
+        for (int splitSize = 1; splitSize <= bytes.length; splitSize++) {
+            int count = 0;
+            for (int start = 0; start < bytes.length; start += splitSize) {
+                ByteArrayInputStream in = new ByteArrayInputStream(bytes, start, bytes.length - start);
+                SwiftMessageSplitter splitter = new SwiftMessageSplitter(in, start, start + splitSize, SwiftEnvelope.AUTO);
+                while (splitter.next()) {
+                    assertTrue(splitter.offset() >= start && splitter.offset() < start + splitSize);
+                    count++;
+                }
+            }
+            assertEquals("Split size " + splitSize, 3, count);
+        }
+    }
+
+    @Test
+    public void testTruncatedMessage() throws IOException {
+        StringBuilder large = new StringBuilder("{1:F01BANKBEBBAXXX0000000002}{4:\n:79:");
+        while (large.length() <= SwiftMessageSplitter.MAX_MESSAGE_SIZE) {
+            large.append("LINE OF NARRATIVE\n");
+        }
+        large.append("-}");
+        SwiftMessageSplitter splitter = splitter(MESSAGE_1 + large + MESSAGE_2);
+        assertTrue(splitter.next());
+        assertFalse(splitter.isTruncated());
+
+        // The large message is cut short, and the next message is found after it
+        assertTrue(splitter.next());
+        assertTrue(splitter.isTruncated());
+        assertEquals(MESSAGE_1.length(), splitter.offset());
+        assertTrue(splitter.length() <= SwiftMessageSplitter.MAX_MESSAGE_SIZE);
+        assertTrue(splitter.next());
+        assertFalse(splitter.isTruncated());
+        assertEquals(MESSAGE_2, new String(splitter.buffer(), 0, splitter.length(), StandardCharsets.UTF_8));
+        assertFalse(splitter.next());
+    }
+
+    @Test
+    public void testRjeEnvelope() throws IOException {
+        String input = MESSAGE_1 + "$" + MESSAGE_2 + "\r\n$";
+        assertEquals(Arrays.asList(MESSAGE_1, MESSAGE_2), split(input, SwiftEnvelope.RJE));
+        assertEquals(Arrays.asList(MESSAGE_1, MESSAGE_2), split(input, SwiftEnvelope.AUTO));
+
+        // A separator inside a block does not end the message
+        String inBlock = "{1:F01BANKBEBBAXXX0000000000}{4:\n:79:USD$100\n-}";
+        assertEquals(Collections.singletonList(inBlock), split(inBlock + "$", SwiftEnvelope.RJE));
+    }
+
+    @Test
+    public void testDosPccEnvelope() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (String message : Arrays.asList(MESSAGE_1, MESSAGE_2)) {
+            input.append('\u0001').append(message).append('\u0003');
+            // Padding up to the end of the sector
+            while (input.length() % 512 != 0) {
+                input.append(' ');
+            }
+        }
+        assertEquals(Arrays.asList(MESSAGE_1, MESSAGE_2), split(input.toString(), SwiftEnvelope.DOSPCC));
+        assertEquals(Arrays.asList(MESSAGE_1, MESSAGE_2), split(input.toString(), SwiftEnvelope.AUTO));
+    }
+
+    @Test
+    public void testLinesEnvelope() throws IOException {
+        // A message cut short on its line does not swallow the next line
+        String truncated = "{1:F01BANKBEBBAXXX0000000002}{4:\t:20:REF3";
+        String input = "1|" + MESSAGE_1.replace('\n', '\t') + "|x\n2|" + truncated + "\r\n3|" + MESSAGE_2.replace('\n', '\t') + "\n";
+        assertEquals(Arrays.asList(MESSAGE_1.replace('\n', '\t'), truncated, MESSAGE_2.replace('\n', '\t')),
+                split(input, SwiftEnvelope.LINES));
+    }
+
+    @Test
+    public void testEnvelopeNames() {
+        assertEquals(SwiftEnvelope.AUTO, SwiftEnvelope.of(null));
+        assertEquals(SwiftEnvelope.DOSPCC, SwiftEnvelope.of("dos-pcc"));
+        assertEquals(SwiftEnvelope.RJE, SwiftEnvelope.of("rje"));
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        assertEquals(0, split("").size());
+        assertEquals(0, split("no messages here").size());
+    }
+
+    private static SwiftMessageSplitter splitter(String input) {
+        return new SwiftMessageSplitter(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> split(String input) throws IOException {
+        return split(input, SwiftEnvelope.AUTO);
+    }
+
+    private static List<String> split(String input, SwiftEnvelope envelope) throws IOException {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        SwiftMessageSplitter splitter = new SwiftMessageSplitter(new ByteArrayInputStream(bytes), 0, Long.MAX_VALUE, envelope);
+        List<String> messages = new ArrayList<>();
+        while (splitter.next()) {
+            messages.add(new String(splitter.buffer(), 0, splitter.length(), StandardCharsets.UTF_8));
+        }
+        return messages;
+    }
+}
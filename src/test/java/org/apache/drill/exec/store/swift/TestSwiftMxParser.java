@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestSwiftMxParser {
+
+    private static final String PACS_008 = "<?xml version=\"1.0\"?>\n" +
+            "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:pacs.008.001.08\"><FIToFICstmrCdtTrf>" +
+            "<GrpHdr><MsgId>MSG1</MsgId><NbOfTxs>2</NbOfTxs></GrpHdr>" +
+            "<CdtTrfTxInf><PmtId><EndToEndId>E2E1</EndToEndId></PmtId>" +
+            "<IntrBkSttlmAmt Ccy=\"EUR\">100.00</IntrBkSttlmAmt></CdtTrfTxInf>" +
+            "<CdtTrfTxInf><PmtId><EndToEndId>E2E2</EndToEndId></PmtId>" +
+            "<IntrBkSttlmAmt Ccy=\"USD\">2.50</IntrBkSttlmAmt></CdtTrfTxInf>" +
+            "</FIToFICstmrCdtTrf></Document>";
+
+    @Test
+    public void testCreditTransfers() throws IOException {
+        List<Map<String, String>> rows = parse(new ByteArrayInputStream(PACS_008.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, rows.size());
+        Map<String, String> first = rows.get(0);
+        assertEquals("pacs.008.001.08", first.get("message_type"));
+        assertEquals("MSG1", first.get("grphdr_msgid"));
+        assertEquals("E2E1", first.get("cdttrftxinf_pmtid_endtoendid"));
+        assertEquals("100.00", first.get("cdttrftxinf_intrbksttlmamt"));
+        assertEquals("EUR", first.get("cdttrftxinf_intrbksttlmamt_ccy"));
+        assertEquals("E2E2", rows.get(1).get("cdttrftxinf_pmtid_endtoendid"));
+        assertEquals("USD", rows.get(1).get("cdttrftxinf_intrbksttlmamt_ccy"));
+    }
+
+    @Test
+    public void testStatementEntries() throws IOException {
+        List<Map<String, String>> rows;
+        try (InputStream in = getClass().getResourceAsStream("/swift/statement.xml")) {
+            rows = parse(in);
+        }
+        assertEquals(3, rows.size());
+        Map<String, String> first = rows.get(0);
+        assertEquals("camt.053.001.08", first.get("message_type"));
+        assertEquals("STMT-20230915-001", first.get("grphdr_msgid"));
+        assertEquals("STMT-1", first.get("stmt_id"));
+        assertEquals("DE89370400440532013000", first.get("stmt_acct_id_iban"));
+        assertEquals("250.00", first.get("stmt_ntry_amt"));
+        assertEquals("EUR", first.get("stmt_ntry_amt_ccy"));
+        assertEquals("INVOICE 1\nINVOICE 2", first.get("stmt_ntry_ntrydtls_txdtls_rmtinf_ustrd"));
+        assertNull(rows.get(1).get("stmt_ntry_ntrydtls_txdtls_rmtinf_ustrd"));
+
+        // The fields of the first statement do not leak into the second
+        Map<String, String> third = rows.get(2);
+        assertEquals("STMT-2", third.get("stmt_id"));
+        assertNull(third.get("stmt_acct_id_iban"));
+        assertEquals("STMT-20230915-001", third.get("grphdr_msgid"));
+        assertEquals("75.50", third.get("stmt_ntry_amt"));
+    }
+
+    @Test
+    public void testDocumentWithoutTransactions() throws IOException {
+        String xml = "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:admi.002.001.01\"><admi.002.001.01>" +
+                "<RltdRef><Ref>REF1</Ref></RltdRef><Rsn><RjctgPtyRsn>X</RjctgPtyRsn></Rsn></admi.002.001.01></Document>";
+        List<Map<String, String>> rows = parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1, rows.size());
+        assertEquals("admi.002.001.01", rows.get(0).get("message_type"));
+        assertEquals("REF1", rows.get(0).get("rltdref_ref"));
+    }
+
+    @Test
+    public void testIsXml() {
+        byte[] xml = "\uFEFF  <?xml version=\"1.0\"?>".getBytes(StandardCharsets.UTF_8);
+        assertTrue(SwiftMxParser.isXml(xml, xml.length));
+        byte[] fin = "{1:F01BANKBEBBAXXX0000000000}".getBytes(StandardCharsets.UTF_8);
+        assertFalse(SwiftMxParser.isXml(fin, fin.length));
+    }
+
+    private static List<Map<String, String>> parse(InputStream in) throws IOException {
+        List<Map<String, String>> rows = new ArrayList<>();
+        try (SwiftMxParser parser = new SwiftMxParser(SwiftProjection.ALL)) {
+            parser.open(in);
+            Map<String, String> row = new LinkedHashMap<>();
+            while (parser.next(row::put)) {
+                rows.add(row);
+                row = new LinkedHashMap<>();
+            }
+        }
+        return rows;
+    }
+}
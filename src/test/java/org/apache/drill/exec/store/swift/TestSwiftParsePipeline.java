@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestSwiftParsePipeline {
+
+    @Test
+    public void testThreads() {
+        // 16 cores shared by 4 fragments
+        assertEquals(4, SwiftParsePipeline.threads(8, 16, 4));
+        assertEquals(2, SwiftParsePipeline.threads(2, 16, 4));
+        // Never less than one thread
+        assertEquals(1, SwiftParsePipeline.threads(8, 4, 16));
+    }
+
+    @Test
+    public void testThreadsWithDefaultWidth() {
+        // Without a width per node, the requested threads are only capped by the cores
+        assertEquals(8, SwiftParsePipeline.threads(8, 10, 0));
+        assertEquals(4, SwiftParsePipeline.threads(8, 4, 0));
+        assertEquals(1, SwiftParsePipeline.threads(1, 64, 0));
+    }
+
+    @Test
+    public void testRecordReplay() {
+        SwiftRecord record = new SwiftRecord();
+        byte[] message = "{1:F01BANKBEBBAXXX0000000000}".getBytes(StandardCharsets.US_ASCII);
+        record.reset(message, message.length, 42);
+        for (int i = 0; i < 100; i++) {
+            record.string("field_" + i, String.valueOf(i));
+        }
+        record.date("value_date", LocalDate.of(2023, 9, 15));
+        record.decimal("amount", new BigDecimal("2500000.00"));
+        assertEquals(42L, record.offset());
+        assertEquals(message.length, record.length());
+
+        List<String> replayed = new ArrayList<>();
+        record.replay(new SwiftFieldSink() {
+            @Override
+            public void string(String name, String value) {
+                replayed.add(name + "=" + value);
+            }
+
+            @Override
+            public void date(String name, LocalDate value) {
+                replayed.add(name + ":date=" + value);
+            }
+
+            @Override
+            public void decimal(String name, BigDecimal value) {
+                replayed.add(name + ":decimal=" + value);
+            }
+        });
+        assertEquals(102, replayed.size());
+        assertEquals("field_0=0", replayed.get(0));
+        assertEquals("field_99=99", replayed.get(99));
+        assertEquals("value_date:date=2023-09-15", replayed.get(100));
+        assertEquals("amount:decimal=2500000.00", replayed.get(101));
+
+        // Recycling the record drops the fields of the previous message
+        record.reset(message, message.length, 0);
+        List<String> none = new ArrayList<>();
+        record.replay((name, value) -> none.add(name));
+        assertEquals(0, none.size());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.drill.exec.store.swift;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestSwiftTokenizer {
+
+    private static final String MESSAGE = "{1:F01BICFOOYYAXXX8683497519}{2:O1031535051028ESPBESMMAXXX54237522470510281535N}" +
+            "{3:{113:ROMF}{108:0510280182794665}}{4:\r\n" +
+            ":20:0061350113089908\r\n" +
+            ":32A:061028EUR100000,\r\n" +
+            ":50K:/12345678\r\n" +
+            "AGENTES DE BOLSA FOO AGENCIA\r\n" +
+            ":71A:OUR\r\n" +
+            "-}{5:{MAC:88B4F929}{CHK:22EF370A4073}{PDE}}";
+
+    @Test
+    public void testTokenize() {
+        SwiftTokenizer tokenizer = tokenize(MESSAGE);
+
+        assertEquals(5, tokenizer.blockCount());
+        assertEquals("F01BICFOOYYAXXX8683497519", tokenizer.string(tokenizer.blockStart(1), tokenizer.blockEnd(1)));
+        assertEquals("O1031535051028ESPBESMMAXXX54237522470510281535N", tokenizer.string(tokenizer.blockStart(2), tokenizer.blockEnd(2)));
+
+        assertEquals(9, tokenizer.tagCount());
+        assertTag(tokenizer, 0, 3, "113", "ROMF");
+        assertTag(tokenizer, 1, 3, "108", "0510280182794665");
+        assertTag(tokenizer, 2, 4, "20", "0061350113089908");
+        assertTag(tokenizer, 3, 4, "32A", "061028EUR100000,");
+        assertTag(tokenizer, 4, 4, "50K", "/12345678\r\nAGENTES DE BOLSA FOO AGENCIA");
+        assertTag(tokenizer, 5, 4, "71A", "OUR");
+        assertTag(tokenizer, 6, 5, "MAC", "88B4F929");
+        assertTag(tokenizer, 7, 5, "CHK", "22EF370A4073");
+        assertTag(tokenizer, 8, 5, "PDE", "");
+    }
+
+    @Test
+    public void testSystemMessageBlock4() {
+        SwiftTokenizer tokenizer = tokenize("{1:F21BICFOOYYAXXX8683497519}{4:{177:0510281535}{451:0}}");
+        assertFalse(tokenizer.hasBlock(2));
+        assertEquals(2, tokenizer.tagCount());
+        assertTag(tokenizer, 0, 4, "177", "0510281535");
+        assertTag(tokenizer, 1, 4, "451", "0");
+    }
+
+    @Test
+    public void testOffsetInBuffer() {
+        String padded = "xxxx" + MESSAGE + "yyyy";
+        byte[] bytes = padded.getBytes(StandardCharsets.UTF_8);
+        SwiftTokenizer tokenizer = new SwiftTokenizer();
+        assertTrue(tokenizer.tokenize(bytes, 4, MESSAGE.length()));
+        assertTag(tokenizer, 3, 4, "32A", "061028EUR100000,");
+    }
+
+    @Test
+    public void testMalformedMessages() {
+        SwiftTokenizer tokenizer = new SwiftTokenizer();
+        assertFalse(tokenize(tokenizer, "{1:F01BICFOOYYAXXX8683497519}{4:\r\n:20:TRUNCATED"));
+        assertNotNull(tokenizer.error());
+        assertFalse(tokenize(tokenizer, "{2:I103BANKDEFFXXXXN}"));
+        assertFalse(tokenize(tokenizer, "{1:F01BICFOOYYAXXX8683497519}garbage"));
+
+        // The tokenizer is reusable after a failure
+        assertTrue(tokenize(tokenizer, MESSAGE));
+        assertEquals(null, tokenizer.error());
+    }
+
+    private static SwiftTokenizer tokenize(String message) {
+        SwiftTokenizer tokenizer = new SwiftTokenizer();
+        assertTrue(tokenize(tokenizer, message));
+        return tokenizer;
+    }
+
+    private static boolean tokenize(SwiftTokenizer tokenizer, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        return tokenizer.tokenize(bytes, 0, bytes.length);
+    }
+
+    private static void assertTag(SwiftTokenizer tokenizer, int tag, int block, String name, String value) {
+        assertEquals(block, tokenizer.tagBlock(tag));
+        assertEquals(name, tokenizer.tagName(tag));
+        assertEquals(value, tokenizer.tagValue(tag));
+        assertTrue(tokenizer.tagNameEquals(tag, name));
+    }
+}
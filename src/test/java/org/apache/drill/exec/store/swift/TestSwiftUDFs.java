@@ -20,11 +20,22 @@ package org.apache.drill.exec.store.swift;
 
 
 import org.apache.drill.exec.physical.rowSet.RowSet;
+import org.apache.drill.exec.physical.rowSet.RowSetReader;
+import org.apache.drill.exec.store.swift.udfs.SwiftFunctionCounters;
 import org.apache.drill.test.ClusterFixture;
 import org.apache.drill.test.ClusterTest;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 public class TestSwiftUDFs extends ClusterTest {
 
 
@@ -52,6 +63,13 @@ public class TestSwiftUDFs extends ClusterTest {
     @BeforeClass
     public static void setup() throws Exception {
         ClusterTest.startCluster(ClusterFixture.builder(dirTestWatcher));
+
+        // The BIC directory of swift_bic_lookup, read by the drillbit running in this JVM
+        Path bicDirectory = dirTestWatcher.getRootDir().toPath().resolve("bic_directory.txt");
+        Files.write(bicDirectory, ("bic\tname\tcountry\n" +
+                "ESPBESMM\tBanco Espanol\tES\n" +
+                "BICFOOYYXXX\tFoo Bank\tYY\n").getBytes(StandardCharsets.UTF_8));
+        System.setProperty(SwiftBicDirectory.PATH_PROPERTY, bicDirectory.toString());
     }
 
 
@@ -62,4 +80,126 @@ public class TestSwiftUDFs extends ClusterTest {
         results.print();
         results.clear();
     }
+
+    @Test
+    public void testSwiftParseCached() throws Exception {
+        // The second call is served from the cache, with the same fields as the first. Its argument is
+        // another expression, so that the two calls are not merged into one.
+        long hits = SwiftFunctionCounters.totalCacheHits("parse_swift_cached");
+        String sql = "select t.a.message_type as a_type, t.b.message_type as b_type, t.a.block2_mir_date as mir_date " +
+                "from (select parse_swift_cached('" + MESSAGE_1 + "') as a, " +
+                "parse_swift_cached(concat('" + MESSAGE_1 + "', '')) as b from (values(1))) t";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+        assertEquals(1, results.rowCount());
+        RowSetReader reader = results.reader();
+        reader.next();
+        assertEquals("103", reader.scalar("a_type").getString());
+        assertEquals("103", reader.scalar("b_type").getString());
+        assertEquals("051028", reader.scalar("mir_date").getString());
+        results.clear();
+        assertTrue(SwiftFunctionCounters.totalCacheHits("parse_swift_cached") > hits);
+    }
+
+    @Test
+    public void testParseSwiftKeyValue() throws Exception {
+        String sql = "select t.kv.block as block, t.kv.`value` as `value` from " +
+                "(select flatten(parse_swift_kv('" + MESSAGE_1 + "')) as kv from (values(1))) t where t.kv.tag = '20'";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+        assertEquals(1, results.rowCount());
+        RowSetReader reader = results.reader();
+        reader.next();
+        assertEquals(4, reader.scalar("block").getInt());
+        assertEquals("0061350113089908", reader.scalar("value").getString());
+        results.clear();
+
+        // A malformed message gives an empty list, which flattens to no row
+        sql = "select flatten(parse_swift_kv('not a message')) as kv from (values(1))";
+        results = client.queryBuilder().sql(sql).rowSet();
+        assertEquals(0, results.rowCount());
+        results.clear();
+    }
+
+    @Test
+    public void testSwiftMessageType() throws Exception {
+        String sql = "select swift_message_type('" + MESSAGE_1 + "') as message_type from (values(1))";
+        assertEquals("103", client.queryBuilder().sql(sql).singletonString());
+    }
+
+    @Test
+    public void testSwiftHeader() throws Exception {
+        String sql = "select swift_header('" + MESSAGE_1 + "', 'sender') from (values(1))";
+        assertEquals("ESPBESMMXXX", client.queryBuilder().sql(sql).singletonString());
+
+        sql = "select swift_header('" + MESSAGE_1 + "', 'receiver') from (values(1))";
+        assertEquals("BICFOOYYXXX", client.queryBuilder().sql(sql).singletonString());
+
+        sql = "select swift_header('" + MESSAGE_1 + "', 'block2_mir_date') from (values(1))";
+        assertEquals("051028", client.queryBuilder().sql(sql).singletonString());
+    }
+
+    @Test
+    public void testSwiftExtract() throws Exception {
+        String sql = "select swift_extract('" + MESSAGE_1 + "', '32A') from (values(1))";
+        assertEquals("061028EUR100000,", client.queryBuilder().sql(sql).singletonString());
+
+        sql = "select swift_extract('" + MESSAGE_1 + "', ':108:') from (values(1))";
+        assertEquals("0510280182794665", client.queryBuilder().sql(sql).singletonString());
+
+        sql = "select swift_extract('" + MESSAGE_1 + "', '99Z') from (values(1))";
+        assertNull(client.queryBuilder().sql(sql).singletonString());
+    }
+
+    @Test
+    public void testParseSwiftMx() throws Exception {
+        String xml = "<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:pacs.008.001.08\"><FIToFICstmrCdtTrf>" +
+                "<GrpHdr><MsgId>MSG1</MsgId></GrpHdr>" +
+                "<CdtTrfTxInf><PmtId><EndToEndId>E2E1</EndToEndId></PmtId></CdtTrfTxInf>" +
+                "<CdtTrfTxInf><PmtId><EndToEndId>E2E2</EndToEndId></PmtId></CdtTrfTxInf>" +
+                "</FIToFICstmrCdtTrf></Document>";
+        String sql = "select t.mx.message_type from (select parse_swift_mx('" + xml + "') as mx from (values(1))) t";
+        assertEquals("pacs.008.001.08", client.queryBuilder().sql(sql).singletonString());
+
+        sql = "select t.tx.cdttrftxinf_pmtid_endtoendid as e2e, t.tx.grphdr_msgid as msg_id from " +
+                "(select flatten(parse_swift_mx('" + xml + "').transactions) as tx from (values(1))) t";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+        assertEquals(2, results.rowCount());
+        results.clear();
+    }
+
+    @Test
+    public void testSwiftFingerprint() throws Exception {
+        // Another copy of the message, received in another session with CRLF line endings and a PDE trailer
+        String copy = MESSAGE_1
+                .replace("{1:F01BICFOOYYAXXX8683497519}", "{1:F01BICFOOYYBXXX0001000042}")
+                .replace("{2:O1031535051028ESPBESMMAXXX5423752247", "{2:O1031602051028ESPBESMMCXXX1111222233")
+                .replace("\n", "\r\n")
+                .replace("{CHK:22EF370A4073}}", "{CHK:22EF370A4073}{PDE:}}");
+        String changed = MESSAGE_1.replace(":32A:061028EUR100000,", ":32A:061028EUR100001,");
+        String sql = "select swift_fingerprint('" + MESSAGE_1 + "') = swift_fingerprint('" + copy + "') as same_copy, " +
+                "swift_fingerprint('" + MESSAGE_1 + "') = swift_fingerprint('" + changed + "') as same_changed, " +
+                "swift_fingerprint('not a message') as malformed from (values(1))";
+        RowSet results = client.queryBuilder().sql(sql).rowSet();
+        assertEquals(1, results.rowCount());
+        RowSetReader reader = results.reader();
+        reader.next();
+        assertTrue(reader.scalar("same_copy").getBoolean());
+        assertFalse(reader.scalar("same_changed").getBoolean());
+        assertTrue(reader.scalar("malformed").isNull());
+        results.clear();
+    }
+
+    @Test
+    public void testSwiftBicLookup() throws Exception {
+        String sql = "select swift_bic_lookup(swift_header('" + MESSAGE_1 + "', 'sender'), 'name') from (values(1))";
+        assertEquals("Banco Espanol", client.queryBuilder().sql(sql).singletonString());
+
+        // A branch falls back to its head office, a BIC8 stands for the head office
+        sql = "select swift_bic_lookup('ESPBESMMBCN', 'country') from (values(1))";
+        assertEquals("ES", client.queryBuilder().sql(sql).singletonString());
+        sql = "select swift_bic_lookup('BICFOOYY', 'Name') from (values(1))";
+        assertEquals("Foo Bank", client.queryBuilder().sql(sql).singletonString());
+
+        sql = "select swift_bic_lookup('BANKDEFFXXX', 'name') from (values(1))";
+        assertNull(client.queryBuilder().sql(sql).singletonString());
+    }
 }
@@ -18,10 +18,16 @@
 package org.apache.drill.exec.store.swift;
 
 
-import org.apache.commons.collections.MapUtils;
+import org.apache.drill.common.expression.SchemaPath;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 
 public class TestSwiftUtils {
 
@@ -50,6 +56,38 @@ public class TestSwiftUtils {
     @Test
     public void testParseMessage() {
         HashMap<String, String> results = SwiftUtils.parseMessage(MESSAGE_1);
-        MapUtils.verbosePrint(System.out, "results", results);
+        assertNotNull(results);
+        assertEquals("103", results.get("message_type"));
+        assertEquals("BICFOOYYAXXX", results.get("block1_logical_terminal"));
+        assertEquals("Output", results.get("block2_direction"));
+        assertEquals("051028", results.get("block2_mir_date"));
+        assertEquals("88B4F929", results.get("block5_mac"));
+        assertEquals("22EF370A4073", results.get("block5_chk"));
+
+        // Block 3 and block 4 fields are named after their labels
+        SwiftFieldLabels labels = SwiftFieldLabels.forMessageType("103", Locale.getDefault());
+        assertEquals("ROMF", results.get(labels.columnName("113")));
+        assertEquals("0061350113089908", results.get(labels.columnName("20")));
+        assertEquals("OUR", results.get(labels.columnName("71A")));
+    }
+
+    @Test
+    public void testParseMessageWithProjection() {
+        SwiftProjection projection = SwiftProjection.of(Arrays.asList(
+                SchemaPath.getSimplePath("message_type"),
+                SchemaPath.getSimplePath("block2_mir_date")));
+        HashMap<String, String> results = SwiftUtils.parseMessage(MESSAGE_1, projection);
+        assertEquals("103", results.get("message_type"));
+        assertEquals("051028", results.get("block2_mir_date"));
+        assertFalse(results.containsKey("sender"));
+        assertFalse(results.containsKey("block1_logical_terminal"));
+        assertFalse(results.containsKey("block5_chk"));
+        assertFalse(results.containsKey("block2_priority_desc"));
+    }
+
+    @Test
+    public void testCleanUpFieldName() {
+        assertEquals("value_date__currency_code__amount", SwiftUtils.cleanUpFieldName("Value Date, Currency Code, Amount"));
+        assertEquals("sender_s_reference", SwiftUtils.cleanUpFieldName("Sender's Reference"));
     }
 }